@@ -0,0 +1,96 @@
+package com.dreamwagon.terranova.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.dreamwagon.terranova.fastnoise.FastNoise;
+
+/**
+ * Throughput of {@link FastNoise} for every noise type x fractal type, in 2D and 3D, both sampled one point at a
+ * time with getNoise and in bulk with fillGrid2D/fillGrid3D. Scores are samples per microsecond.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FastNoiseBenchmark
+{
+    static final int GRID = 64;
+    static final int SAMPLES = GRID * GRID;
+
+    @Param
+    public FastNoise.NoiseType noiseType;
+
+    @Param
+    public FastNoise.FractalType fractalType;
+
+    @Param({ "2", "3" })
+    public int dimensions;
+
+    private FastNoise noise;
+    private float[] grid;
+
+    @Setup
+    public void setup()
+    {
+        noise = new FastNoise(1337);
+        noise.setNoiseType(noiseType);
+        noise.setFractalType(fractalType);
+        noise.setFrequency(0.02f);
+        noise.setFractalOctaves(5);
+
+        FastNoise lookup = new FastNoise(42);
+        lookup.setFrequency(0.2f);
+        noise.setCellularNoiseLookup(lookup);
+
+        grid = new float[SAMPLES];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void getNoise(Blackhole blackhole)
+    {
+        if (dimensions == 2) {
+            for (int y = 0; y < GRID; y++) {
+                for (int x = 0; x < GRID; x++) {
+                    blackhole.consume(noise.getNoise(x, y));
+                }
+            }
+        }
+        else {
+            for (int y = 0; y < GRID; y++) {
+                for (int x = 0; x < GRID; x++) {
+                    blackhole.consume(noise.getNoise(x, y, 0.5f));
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public float[] fillGrid()
+    {
+        if (dimensions == 2) {
+            noise.fillGrid2D(grid, 0, 0, 1, 1, GRID, GRID);
+        }
+        else {
+            noise.fillGrid3D(grid, 0, 0, 0.5f, 1, 1, 1, GRID, GRID, 1);
+        }
+        return grid;
+    }
+}
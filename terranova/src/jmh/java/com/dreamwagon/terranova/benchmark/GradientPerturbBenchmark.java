@@ -0,0 +1,93 @@
+package com.dreamwagon.terranova.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.dreamwagon.terranova.fastnoise.FastNoise;
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+
+/**
+ * Throughput of FastNoise gradientPerturb and gradientPerturbFractal on jME vectors, the way NoiseLayer warps its
+ * coordinates. Scores are samples per microsecond.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GradientPerturbBenchmark
+{
+    static final int GRID = 64;
+    static final int SAMPLES = GRID * GRID;
+
+    @Param({ "2", "3" })
+    public int dimensions;
+
+    private FastNoise noise;
+    private final Vector2f v2 = new Vector2f();
+    private final Vector3f v3 = new Vector3f();
+
+    @Setup
+    public void setup()
+    {
+        noise = new FastNoise(1337);
+        noise.setFrequency(0.015f);
+        noise.setGradientPerturbAmp(30);
+        noise.setFractalOctaves(5);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void gradientPerturb(Blackhole blackhole)
+    {
+        for (int y = 0; y < GRID; y++) {
+            for (int x = 0; x < GRID; x++) {
+                if (dimensions == 2) {
+                    v2.set(x, y);
+                    noise.gradientPerturb(v2);
+                    blackhole.consume(v2.x + v2.y);
+                }
+                else {
+                    v3.set(x, y, 0.5f);
+                    noise.gradientPerturb(v3);
+                    blackhole.consume(v3.x + v3.y + v3.z);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SAMPLES)
+    public void gradientPerturbFractal(Blackhole blackhole)
+    {
+        for (int y = 0; y < GRID; y++) {
+            for (int x = 0; x < GRID; x++) {
+                if (dimensions == 2) {
+                    v2.set(x, y);
+                    noise.gradientPerturbFractal(v2);
+                    blackhole.consume(v2.x + v2.y);
+                }
+                else {
+                    v3.set(x, y, 0.5f);
+                    noise.gradientPerturbFractal(v3);
+                    blackhole.consume(v3.x + v3.y + v3.z);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.dreamwagon.terranova.benchmark;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dreamwagon.terranova.util.ImageUtil;
+import com.jme3.texture.Texture;
+
+/**
+ * Time to combine two heightmap textures with ImageUtil.combineTextures, and to accumulate one into the other in
+ * place with ImageUtil.accumulate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ImageUtilBenchmark
+{
+    @Param({ "513", "2049" })
+    public int size;
+
+    private Texture texture1;
+    private Texture texture2;
+
+    @Setup
+    public void setup()
+    {
+        texture1 = randomTexture(size, 1);
+        texture2 = randomTexture(size, 2);
+    }
+
+    @Benchmark
+    public Texture combineTextures()
+    {
+        return ImageUtil.combineTextures(texture1, 0.5f, texture2, 0.5f);
+    }
+
+    @Benchmark
+    public Texture accumulate()
+    {
+        ImageUtil.accumulate(texture1.getImage(), texture2.getImage(), 0.5f, ImageUtil.BlendOp.ADD, null);
+        return texture1;
+    }
+
+    private static Texture randomTexture(int size, long seed)
+    {
+        Random random = new Random(seed);
+        float[] values = new float[size * size];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextFloat();
+        }
+        return ImageUtil.createGreyscaleTexture(values, size);
+    }
+}
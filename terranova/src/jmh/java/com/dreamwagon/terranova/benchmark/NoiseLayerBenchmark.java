@@ -0,0 +1,60 @@
+package com.dreamwagon.terranova.benchmark;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.dreamwagon.terranova.fastnoise.FastNoise;
+import com.dreamwagon.terranova.fastnoise.GradientPerturb;
+import com.dreamwagon.terranova.fastnoise.NoiseLayer;
+import com.jme3.texture.Texture2D;
+
+/**
+ * Time to generate a NoiseLayer texture at the heightmap sizes offered by the generator, on the calling thread
+ * and on the common pool. 8193 needs a few GB of heap, hence the larger fork heap.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class NoiseLayerBenchmark
+{
+    @Param({ "513", "2049", "8193" })
+    public int size;
+
+    @Param({ "false", "true" })
+    public boolean parallel;
+
+    @Param({ "Off", "Fractal" })
+    public GradientPerturb gradientPerturb;
+
+    private NoiseLayer layer;
+
+    @Setup
+    public void setup()
+    {
+        layer = new NoiseLayer("benchmark", 1337);
+        layer.setNoiseType(FastNoise.NoiseType.SimplexFractal);
+        layer.setFrequency(0.005f);
+        layer.setGradientPerturb(gradientPerturb);
+    }
+
+    @Benchmark
+    public Texture2D generateTexture()
+    {
+        return layer.generateTexture(size, parallel ? ForkJoinPool.commonPool() : null);
+    }
+}
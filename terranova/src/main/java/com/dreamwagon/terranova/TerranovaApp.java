@@ -32,6 +32,7 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import com.dreamwagon.terranova.constants.Constants;
 import com.dreamwagon.terranova.generator.FastNoiseHeightmapGenerator;
 import com.dreamwagon.terranova.generator.HillHeightMapTerrainGenerator;
+import com.dreamwagon.terranova.generator.AlphaMapGenerator;
 import com.dreamwagon.terranova.generator.SplatMapGenerator;
 import com.dreamwagon.terranova.io.SaveRequest;
 import com.dreamwagon.terranova.manager.TerrainManager;
@@ -90,6 +91,8 @@ public class TerranovaApp extends SimpleApplication {
 	
 	public SplatMapGenerator splatMapGenerator;
 	
+	public AlphaMapGenerator alphaMapGenerator;
+	
 	public FastNoiseHeightmapGenerator fastNoiseHeightmapGenerator;
 	
 	//Queue of nodes to be added to the root node in simple update
@@ -187,6 +190,9 @@ public class TerranovaApp extends SimpleApplication {
         splatMapGenerator = new SplatMapGenerator();
         TerranovaUiManager.persistentSettings.put(splatMapGenerator.getName(), splatMapGenerator);
         
+        alphaMapGenerator = new AlphaMapGenerator();
+        TerranovaUiManager.persistentSettings.put(alphaMapGenerator.getName(), alphaMapGenerator);
+        
         fastNoiseHeightmapGenerator = new FastNoiseHeightmapGenerator();
         TerranovaUiManager.persistentSettings.put(fastNoiseHeightmapGenerator.getName(), fastNoiseHeightmapGenerator);
         
@@ -28,6 +28,8 @@
 
 package com.dreamwagon.terranova.fastnoise;
 
+import java.util.Arrays;
+
 import com.jme3.math.Vector2f;
 import com.jme3.math.Vector3f;
 
@@ -57,15 +59,92 @@ public class FastNoise {
     private float m_gradientPerturbAmpIn = 1.0f; // keep a track of the actual input value before we modify it.
     private float m_gradientPerturbAmp = 1.0f / 0.45f;
 
+    // configuration this instance was built from, setters are rejected when set
+    private final NoiseConfig m_config;
+
     public FastNoise() {
         this(1337);
     }
 
     public FastNoise(int seed) {
+        m_config = null;
         m_seed = seed;
         CalculateFractalBounding();
     }
 
+    /**
+     * Creates an immutable FastNoise from a configuration. Every setter throws UnsupportedOperationException,
+     * so the instance can be sampled from any number of threads at once. The cellular noise lookup, if any, is
+     * built from its own configuration and is immutable too.
+     *
+     * @param config the configuration to sample
+     */
+    public FastNoise(NoiseConfig config) {
+        m_config = config;
+        m_seed = config.getSeed();
+        m_frequency = config.getFrequency();
+        m_interp = config.getInterp();
+        m_noiseType = config.getNoiseType();
+        m_octaves = config.getFractalOctaves();
+        m_lacunarity = config.getFractalLacunarity();
+        m_gain = config.getFractalGain();
+        m_fractalType = config.getFractalType();
+        m_cellularDistanceFunction = config.getCellularDistanceFunction();
+        m_cellularReturnType = config.getCellularReturnType();
+        m_cellularNoiseLookup = config.getCellularNoiseLookup() == null ? null : new FastNoise(config.getCellularNoiseLookup());
+        m_gradientPerturbAmpIn = config.getGradientPerturbAmp();
+        m_gradientPerturbAmp = config.getGradientPerturbAmp() / 0.45f;
+        CalculateFractalBounding();
+    }
+
+    /**
+     * Returns a snapshot of the current configuration, including the cellular noise lookup.
+     * @return the configuration of this object
+     * @throws IllegalArgumentException if the current configuration is not valid
+     */
+    public NoiseConfig toConfig() {
+        if (m_config != null) {
+            return m_config;
+        }
+        return NoiseConfig.builder()
+                .seed(m_seed)
+                .frequency(m_frequency)
+                .interp(m_interp)
+                .noiseType(m_noiseType)
+                .fractalOctaves(m_octaves)
+                .fractalLacunarity(m_lacunarity)
+                .fractalGain(m_gain)
+                .fractalType(m_fractalType)
+                .cellularDistanceFunction(m_cellularDistanceFunction)
+                .cellularReturnType(m_cellularReturnType)
+                .cellularNoiseLookup(m_cellularNoiseLookup == null ? null : m_cellularNoiseLookup.toConfig())
+                .gradientPerturbAmp(m_gradientPerturbAmpIn)
+                .build();
+    }
+
+    /**
+     * Returns true if this object was built from a NoiseConfig and can't be changed
+     * @return true if the setters are rejected
+     */
+    public boolean isImmutable() {
+        return m_config != null;
+    }
+
+    /**
+     * Returns true if fillGrid2D and fillGrid3D run on the Java Vector API for the supported noise types
+     * (simd build, jdk.incubator.vector module and -Dterranova.noise.vector=true)
+     * @return true if the vectorized kernels are loaded
+     */
+    public static boolean isVectorized() {
+        return VECTOR_KERNELS != null;
+    }
+
+    private void checkMutable() {
+        if (m_config != null) {
+            throw new UnsupportedOperationException("FastNoise built from a NoiseConfig is immutable, use NoiseConfig.toBuilder()");
+        }
+    }
+
     /**
      * Returns a 0 float/double
      * @return a 0 float/double
@@ -88,6 +167,7 @@ public class FastNoise {
      * @param seed the seed used for all noise types
      */
     public void setSeed(int seed) {
+        checkMutable();
         m_seed = seed;
     }
 
@@ -102,6 +182,7 @@ public class FastNoise {
      * @param frequency frequency for all noise types
      */
     public void setFrequency(float frequency) {
+        checkMutable();
         m_frequency = frequency;
     }
 
@@ -121,6 +202,7 @@ public class FastNoise {
      * @param interp the interpolation method used to smooth between noise values.
      */
     public void setInterp(Interp interp) {
+        checkMutable();
         m_interp = interp;
     }
 
@@ -135,6 +217,7 @@ public class FastNoise {
      * @param noiseType noise return type of getNoise(...)
      */
     public void setNoiseType(NoiseType noiseType) {
+        checkMutable();
         m_noiseType = noiseType;
     }
 
@@ -148,6 +231,7 @@ public class FastNoise {
      * @param octaves octave count for all fractal noise types
      */
     public void setFractalOctaves(int octaves) {
+        checkMutable();
         m_octaves = octaves;
         CalculateFractalBounding();
     }
@@ -163,6 +247,7 @@ public class FastNoise {
      * @param lacunarity octave lacunarity for all fractal noise types
      */
     public void setFractalLacunarity(float lacunarity) {
+        checkMutable();
         m_lacunarity = lacunarity;
     }
 
@@ -176,6 +261,7 @@ public class FastNoise {
      * @param gain octave gain for all fractal noise types
      */
     public void setFractalGain(float gain) {
+        checkMutable();
         m_gain = gain;
         CalculateFractalBounding();
     }
@@ -184,6 +270,11 @@ public class FastNoise {
         return m_fractalType;
     }
 
+    // 1 / (sum of the octave amplitudes), applied by the FBM and Billow fractals
+    float getFractalBounding() {
+        return m_fractalBounding;
+    }
+
     /**
      * Sets method for combining octaves in all fractal noise types
      * Default: FBM
@@ -191,6 +282,7 @@ public class FastNoise {
      * @param fractalType method for combining octaves in all fractal noise types
      */
     public void setFractalType(FractalType fractalType) {
+        checkMutable();
         m_fractalType = fractalType;
     }
 
@@ -206,6 +298,7 @@ public class FastNoise {
      * @param cellularDistanceFunction return type from cellular noise calculations
      */
     public void setCellularDistanceFunction(CellularDistanceFunction cellularDistanceFunction) {
+        checkMutable();
         m_cellularDistanceFunction = cellularDistanceFunction;
     }
 
@@ -219,6 +312,7 @@ public class FastNoise {
      * @param cellularReturnType distance function used in cellular noise calculations
      */
     public void setCellularReturnType(CellularReturnType cellularReturnType) {
+        checkMutable();
         m_cellularReturnType = cellularReturnType;
     }
 
@@ -233,6 +327,7 @@ public class FastNoise {
      * @param noise Noise used to calculate a cell value if cellular return type is NoiseLookup
      */
     public void setCellularNoiseLookup(FastNoise noise) {
+        checkMutable();
         m_cellularNoiseLookup = noise;
     }
 
@@ -248,6 +343,7 @@ public class FastNoise {
      * @param gradientPerturbAmp the maximum perturb distance from original location when using GradientPerturb{Fractal}(...)
      */
     public void setGradientPerturbAmp(float gradientPerturbAmp) {
+        checkMutable();
         m_gradientPerturbAmpIn = gradientPerturbAmp;
         m_gradientPerturbAmp = gradientPerturbAmp / 0.45f;
     }
@@ -271,6 +367,23 @@ public class FastNoise {
         }
     }
 
+    // Optional SIMD kernels, only used when compiled and run with jdk.incubator.vector and enabled with
+    // -Dterranova.noise.vector=true. Opt-in as they benchmark slower than the scalar code for most noise types.
+    private static final VectorKernels VECTOR_KERNELS = loadVectorKernels();
+
+    private static VectorKernels loadVectorKernels() {
+        if (!Boolean.getBoolean("terranova.noise.vector")) {
+            return null;
+        }
+        try {
+            return (VectorKernels) Class.forName("com.dreamwagon.terranova.fastnoise.VectorNoiseKernels")
+                    .getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError | UnsupportedOperationException e) {
+            // not compiled in, or the jdk.incubator.vector module is not resolved
+            return null;
+        }
+    }
+
     private static final Float2[] GRAD_2D = {
             new Float2(-1, -1), new Float2(1, -1), new Float2(-1, 1), new Float2(1, 1),
             new Float2(0, -1), new Float2(-1, 0), new Float2(0, 1), new Float2(1, 0),
@@ -397,9 +510,9 @@ public class FastNoise {
     }
 
     // Hashing
-    private final static int X_PRIME = 1619;
-    private final static int Y_PRIME = 31337;
-    private final static int Z_PRIME = 6971;
+    final static int X_PRIME = 1619;
+    final static int Y_PRIME = 31337;
+    final static int Z_PRIME = 6971;
     private final static int W_PRIME = 1013;
 
     private static int Hash2D(int seed, int x, int y) {
@@ -671,6 +784,371 @@ public class FastNoise {
         }
     }
 
+    // Bulk grid evaluation
+
+    /**
+     * Fills a width x height grid of 2D noise, sample (i, j) being taken at
+     * (originX + i * stepX, originY + j * stepY) and written to out[j * width + i].
+     * Each sample is identical to getNoise(x, y) at the same coordinate, but the noise type and
+     * fractal type are only resolved once per row instead of once per sample.
+     *
+     * @param out    destination array, at least width * height long
+     * @param originX x coordinate of the first sample
+     * @param originY y coordinate of the first sample
+     * @param stepX  distance between two samples along x
+     * @param stepY  distance between two samples along y
+     * @param width  number of samples along x
+     * @param height number of samples along y
+     */
+    public void fillGrid2D(float[] out, float originX, float originY, float stepX, float stepY, int width, int height) {
+        fillGrid2D(out, 0, originX, originY, stepX, stepY, width, height);
+    }
+
+    /**
+     * Same as {@link #fillGrid2D(float[], float, float, float, float, int, int)}, writing the grid
+     * starting at out[offset] so callers can fill a sub range (tile) of a larger buffer.
+     */
+    public void fillGrid2D(float[] out, int offset, float originX, float originY, float stepX, float stepY, int width, int height) {
+        float[] xs = gridCoords(originX, stepX, width);
+
+        for (int j = 0; j < height; j++) {
+            float y = (originY + j * stepY) * m_frequency;
+            fillRow2D(out, offset + j * width, xs, y, width);
+        }
+    }
+
+    /**
+     * Fills a width x height x depth grid of 3D noise, sample (i, j, k) being taken at
+     * (originX + i * stepX, originY + j * stepY, originZ + k * stepZ) and written to
+     * out[(k * height + j) * width + i].
+     * Each sample is identical to getNoise(x, y, z) at the same coordinate. Use depth 1 to get a
+     * single 2D slice of 3D noise.
+     */
+    public void fillGrid3D(float[] out, float originX, float originY, float originZ, float stepX, float stepY, float stepZ,
+                           int width, int height, int depth) {
+        fillGrid3D(out, 0, originX, originY, originZ, stepX, stepY, stepZ, width, height, depth);
+    }
+
+    /**
+     * Same as {@link #fillGrid3D(float[], float, float, float, float, float, float, int, int, int)}, writing the grid
+     * starting at out[offset].
+     */
+    public void fillGrid3D(float[] out, int offset, float originX, float originY, float originZ, float stepX, float stepY, float stepZ,
+                           int width, int height, int depth) {
+        float[] xs = gridCoords(originX, stepX, width);
+
+        for (int k = 0; k < depth; k++) {
+            float z = (originZ + k * stepZ) * m_frequency;
+
+            for (int j = 0; j < height; j++) {
+                float y = (originY + j * stepY) * m_frequency;
+                fillRow3D(out, offset + (k * height + j) * width, xs, y, z, width);
+            }
+        }
+    }
+
+    private float[] gridCoords(float origin, float step, int count) {
+        float[] coords = new float[count];
+
+        for (int i = 0; i < count; i++) {
+            coords[i] = (origin + i * step) * m_frequency;
+        }
+
+        return coords;
+    }
+
+    private static void fillZero(float[] out, int offset, int width) {
+        Arrays.fill(out, offset, offset + width, 0);
+    }
+
+    // xs and y are already multiplied by the frequency
+    private void fillRow2D(float[] out, int offset, float[] xs, float y, int width) {
+        if (VECTOR_KERNELS != null && VECTOR_KERNELS.fillRow2D(this, out, offset, xs, y, width)) {
+            return;
+        }
+
+        int seed = m_seed;
+
+        switch (m_noiseType) {
+            case Value:
+                for (int i = 0; i < width; i++) {
+                    out[offset + i] = SingleValue(seed, xs[i], y);
+                }
+                break;
+            case ValueFractal:
+                switch (m_fractalType) {
+                    case FBM:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleValueFractalFBM(xs[i], y);
+                        }
+                        break;
+                    case Billow:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleValueFractalBillow(xs[i], y);
+                        }
+                        break;
+                    case RigidMulti:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleValueFractalRigidMulti(xs[i], y);
+                        }
+                        break;
+                    default:
+                        fillZero(out, offset, width);
+                        break;
+                }
+                break;
+            case Perlin:
+                for (int i = 0; i < width; i++) {
+                    out[offset + i] = SinglePerlin(seed, xs[i], y);
+                }
+                break;
+            case PerlinFractal:
+                switch (m_fractalType) {
+                    case FBM:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SinglePerlinFractalFBM(xs[i], y);
+                        }
+                        break;
+                    case Billow:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SinglePerlinFractalBillow(xs[i], y);
+                        }
+                        break;
+                    case RigidMulti:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SinglePerlinFractalRigidMulti(xs[i], y);
+                        }
+                        break;
+                    default:
+                        fillZero(out, offset, width);
+                        break;
+                }
+                break;
+            case Simplex:
+                for (int i = 0; i < width; i++) {
+                    out[offset + i] = SingleSimplex(seed, xs[i], y);
+                }
+                break;
+            case SimplexFractal:
+                switch (m_fractalType) {
+                    case FBM:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleSimplexFractalFBM(xs[i], y);
+                        }
+                        break;
+                    case Billow:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleSimplexFractalBillow(xs[i], y);
+                        }
+                        break;
+                    case RigidMulti:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleSimplexFractalRigidMulti(xs[i], y);
+                        }
+                        break;
+                    default:
+                        fillZero(out, offset, width);
+                        break;
+                }
+                break;
+            case Cellular:
+                switch (m_cellularReturnType) {
+                    case CellValue:
+                    case NoiseLookup:
+                    case Distance:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleCellular(xs[i], y);
+                        }
+                        break;
+                    default:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleCellular2Edge(xs[i], y);
+                        }
+                        break;
+                }
+                break;
+            case WhiteNoise:
+                for (int i = 0; i < width; i++) {
+                    out[offset + i] = getWhiteNoise(xs[i], y);
+                }
+                break;
+            case Cubic:
+                for (int i = 0; i < width; i++) {
+                    out[offset + i] = SingleCubic(seed, xs[i], y);
+                }
+                break;
+            case CubicFractal:
+                switch (m_fractalType) {
+                    case FBM:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleCubicFractalFBM(xs[i], y);
+                        }
+                        break;
+                    case Billow:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleCubicFractalBillow(xs[i], y);
+                        }
+                        break;
+                    case RigidMulti:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleCubicFractalRigidMulti(xs[i], y);
+                        }
+                        break;
+                    default:
+                        fillZero(out, offset, width);
+                        break;
+                }
+                break;
+            default:
+                fillZero(out, offset, width);
+                break;
+        }
+    }
+
+    // xs, y and z are already multiplied by the frequency
+    private void fillRow3D(float[] out, int offset, float[] xs, float y, float z, int width) {
+        if (VECTOR_KERNELS != null && VECTOR_KERNELS.fillRow3D(this, out, offset, xs, y, z, width)) {
+            return;
+        }
+
+        int seed = m_seed;
+
+        switch (m_noiseType) {
+            case Value:
+                for (int i = 0; i < width; i++) {
+                    out[offset + i] = SingleValue(seed, xs[i], y, z);
+                }
+                break;
+            case ValueFractal:
+                switch (m_fractalType) {
+                    case FBM:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleValueFractalFBM(xs[i], y, z);
+                        }
+                        break;
+                    case Billow:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleValueFractalBillow(xs[i], y, z);
+                        }
+                        break;
+                    case RigidMulti:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleValueFractalRigidMulti(xs[i], y, z);
+                        }
+                        break;
+                    default:
+                        fillZero(out, offset, width);
+                        break;
+                }
+                break;
+            case Perlin:
+                for (int i = 0; i < width; i++) {
+                    out[offset + i] = SinglePerlin(seed, xs[i], y, z);
+                }
+                break;
+            case PerlinFractal:
+                switch (m_fractalType) {
+                    case FBM:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SinglePerlinFractalFBM(xs[i], y, z);
+                        }
+                        break;
+                    case Billow:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SinglePerlinFractalBillow(xs[i], y, z);
+                        }
+                        break;
+                    case RigidMulti:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SinglePerlinFractalRigidMulti(xs[i], y, z);
+                        }
+                        break;
+                    default:
+                        fillZero(out, offset, width);
+                        break;
+                }
+                break;
+            case Simplex:
+                for (int i = 0; i < width; i++) {
+                    out[offset + i] = SingleSimplex(seed, xs[i], y, z);
+                }
+                break;
+            case SimplexFractal:
+                switch (m_fractalType) {
+                    case FBM:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleSimplexFractalFBM(xs[i], y, z);
+                        }
+                        break;
+                    case Billow:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleSimplexFractalBillow(xs[i], y, z);
+                        }
+                        break;
+                    case RigidMulti:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleSimplexFractalRigidMulti(xs[i], y, z);
+                        }
+                        break;
+                    default:
+                        fillZero(out, offset, width);
+                        break;
+                }
+                break;
+            case Cellular:
+                switch (m_cellularReturnType) {
+                    case CellValue:
+                    case NoiseLookup:
+                    case Distance:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleCellular(xs[i], y, z);
+                        }
+                        break;
+                    default:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleCellular2Edge(xs[i], y, z);
+                        }
+                        break;
+                }
+                break;
+            case WhiteNoise:
+                for (int i = 0; i < width; i++) {
+                    out[offset + i] = getWhiteNoise(xs[i], y, z);
+                }
+                break;
+            case Cubic:
+                for (int i = 0; i < width; i++) {
+                    out[offset + i] = SingleCubic(seed, xs[i], y, z);
+                }
+                break;
+            case CubicFractal:
+                switch (m_fractalType) {
+                    case FBM:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleCubicFractalFBM(xs[i], y, z);
+                        }
+                        break;
+                    case Billow:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleCubicFractalBillow(xs[i], y, z);
+                        }
+                        break;
+                    case RigidMulti:
+                        for (int i = 0; i < width; i++) {
+                            out[offset + i] = SingleCubicFractalRigidMulti(xs[i], y, z);
+                        }
+                        break;
+                    default:
+                        fillZero(out, offset, width);
+                        break;
+                }
+                break;
+            default:
+                fillZero(out, offset, width);
+                break;
+        }
+    }
+
     // White Noise
 
     private int FloatCast2Int(float f) {
@@ -1217,9 +1695,9 @@ public class FastNoise {
         return SingleSimplex(m_seed, x * m_frequency, y * m_frequency, z * m_frequency);
     }
 
-    private final static float F3 = (float) (1.0 / 3.0);
-    private final static float G3 = (float) (1.0 / 6.0);
-    private final static float G33 = G3 * 3 - 1;
+    final static float F3 = (float) (1.0 / 3.0);
+    final static float G3 = (float) (1.0 / 6.0);
+    final static float G33 = G3 * 3 - 1;
 
     private float SingleSimplex(int seed, float x, float y, float z) {
         float t = (x + y + z) * F3;
@@ -1401,8 +1879,8 @@ public class FastNoise {
     //private final static float G2 = (float) (1.0 / 4.0);
 
     private final static float SQRT3 = (float) 1.7320508075688772935274463415059;
-    private final static float F2 = 0.5f * (SQRT3 - 1.0f);
-    private final static float G2 = (3.0f - SQRT3) / 6.0f;
+    final static float F2 = 0.5f * (SQRT3 - 1.0f);
+    final static float G2 = (3.0f - SQRT3) / 6.0f;
 
     private float SingleSimplex(int seed, float x, float y) {
         float t = (x + y) * F2;
@@ -1640,7 +2118,7 @@ public class FastNoise {
         return SingleCubic(m_seed, x * m_frequency, y * m_frequency, z * m_frequency);
     }
 
-    private final static float CUBIC_3D_BOUNDING = 1 / (float) (1.5 * 1.5 * 1.5);
+    final static float CUBIC_3D_BOUNDING = 1 / (float) (1.5 * 1.5 * 1.5);
 
     private float SingleCubic(int seed, float x, float y, float z) {
         int x1 = FastFloor(x);
@@ -1764,7 +2242,7 @@ public class FastNoise {
         return SingleCubic(0, x, y);
     }
 
-    private final static float CUBIC_2D_BOUNDING = 1 / (float) (1.5 * 1.5);
+    final static float CUBIC_2D_BOUNDING = 1 / (float) (1.5 * 1.5);
 
     private float SingleCubic(int seed, float x, float y) {
         int x1 = FastFloor(x);
@@ -2236,6 +2714,103 @@ public class FastNoise {
         v3.z += Lerp(lz0y, Lerp(lz0x, lz1x, ys), zs) * perturbAmp;
     }
 
+    /**
+     * Allocation free variant of gradientPerturb(Vector3f).
+     *
+     * @param xyz the point to perturb, in place, as {x, y, z}
+     */
+    public void gradientPerturb3D(float[] xyz) {
+        SingleGradientPerturb3D(m_seed, m_gradientPerturbAmp, m_frequency, xyz);
+    }
+
+    /**
+     * Allocation free variant of gradientPerturbFractal(Vector3f).
+     *
+     * @param xyz the point to perturb, in place, as {x, y, z}
+     */
+    public void gradientPerturbFractal3D(float[] xyz) {
+        int seed = m_seed;
+        float amp = m_gradientPerturbAmp * m_fractalBounding;
+        float freq = m_frequency;
+
+        SingleGradientPerturb3D(seed, amp, m_frequency, xyz);
+
+        for (int i = 1; i < m_octaves; i++) {
+            freq *= m_lacunarity;
+            amp *= m_gain;
+            SingleGradientPerturb3D(++seed, amp, freq, xyz);
+        }
+    }
+
+    private void SingleGradientPerturb3D(int seed, float perturbAmp, float frequency, float[] xyz) {
+        float xf = xyz[0] * frequency;
+        float yf = xyz[1] * frequency;
+        float zf = xyz[2] * frequency;
+
+        int x0 = FastFloor(xf);
+        int y0 = FastFloor(yf);
+        int z0 = FastFloor(zf);
+        int x1 = x0 + 1;
+        int y1 = y0 + 1;
+        int z1 = z0 + 1;
+
+        float xs, ys, zs;
+        switch (m_interp) {
+            default:
+            case Linear:
+                xs = xf - x0;
+                ys = yf - y0;
+                zs = zf - z0;
+                break;
+            case Hermite:
+                xs = InterpHermiteFunc(xf - x0);
+                ys = InterpHermiteFunc(yf - y0);
+                zs = InterpHermiteFunc(zf - z0);
+                break;
+            case Quintic:
+                xs = InterpQuinticFunc(xf - x0);
+                ys = InterpQuinticFunc(yf - y0);
+                zs = InterpQuinticFunc(zf - z0);
+                break;
+        }
+
+        Float3 vec0 = CELL_3D[Hash3D(seed, x0, y0, z0) & 255];
+        Float3 vec1 = CELL_3D[Hash3D(seed, x1, y0, z0) & 255];
+
+        float lx0x = Lerp(vec0.x, vec1.x, xs);
+        float ly0x = Lerp(vec0.y, vec1.y, xs);
+        float lz0x = Lerp(vec0.z, vec1.z, xs);
+
+        vec0 = CELL_3D[Hash3D(seed, x0, y1, z0) & 255];
+        vec1 = CELL_3D[Hash3D(seed, x1, y1, z0) & 255];
+
+        float lx1x = Lerp(vec0.x, vec1.x, xs);
+        float ly1x = Lerp(vec0.y, vec1.y, xs);
+        float lz1x = Lerp(vec0.z, vec1.z, xs);
+
+        float lx0y = Lerp(lx0x, lx1x, ys);
+        float ly0y = Lerp(ly0x, ly1x, ys);
+        float lz0y = Lerp(lz0x, lz1x, ys);
+
+        vec0 = CELL_3D[Hash3D(seed, x0, y0, z1) & 255];
+        vec1 = CELL_3D[Hash3D(seed, x1, y0, z1) & 255];
+
+        lx0x = Lerp(vec0.x, vec1.x, xs);
+        ly0x = Lerp(vec0.y, vec1.y, xs);
+        lz0x = Lerp(vec0.z, vec1.z, xs);
+
+        vec0 = CELL_3D[Hash3D(seed, x0, y1, z1) & 255];
+        vec1 = CELL_3D[Hash3D(seed, x1, y1, z1) & 255];
+
+        lx1x = Lerp(vec0.x, vec1.x, xs);
+        ly1x = Lerp(vec0.y, vec1.y, xs);
+        lz1x = Lerp(vec0.z, vec1.z, xs);
+
+        xyz[0] += Lerp(lx0y, Lerp(lx0x, lx1x, ys), zs) * perturbAmp;
+        xyz[1] += Lerp(ly0y, Lerp(ly0x, ly1x, ys), zs) * perturbAmp;
+        xyz[2] += Lerp(lz0y, Lerp(lz0x, lz1x, ys), zs) * perturbAmp;
+    }
+
     public void gradientPerturb(Vector2f v2) {
         SingleGradientPerturb(m_seed, m_gradientPerturbAmp, m_frequency, v2);
     }
@@ -2296,4 +2871,74 @@ public class FastNoise {
         v2.y += Lerp(ly0x, ly1x, ys) * perturbAmp;
     }
 
+    /**
+     * Allocation free variant of gradientPerturb(Vector2f).
+     *
+     * @param xy the point to perturb, in place, as {x, y}
+     */
+    public void gradientPerturb2D(float[] xy) {
+        SingleGradientPerturb2D(m_seed, m_gradientPerturbAmp, m_frequency, xy);
+    }
+
+    /**
+     * Allocation free variant of gradientPerturbFractal(Vector2f).
+     *
+     * @param xy the point to perturb, in place, as {x, y}
+     */
+    public void gradientPerturbFractal2D(float[] xy) {
+        int seed = m_seed;
+        float amp = m_gradientPerturbAmp * m_fractalBounding;
+        float freq = m_frequency;
+
+        SingleGradientPerturb2D(seed, amp, m_frequency, xy);
+
+        for (int i = 1; i < m_octaves; i++) {
+            freq *= m_lacunarity;
+            amp *= m_gain;
+            SingleGradientPerturb2D(++seed, amp, freq, xy);
+        }
+    }
+
+    private void SingleGradientPerturb2D(int seed, float perturbAmp, float frequency, float[] xy) {
+        float xf = xy[0] * frequency;
+        float yf = xy[1] * frequency;
+
+        int x0 = FastFloor(xf);
+        int y0 = FastFloor(yf);
+        int x1 = x0 + 1;
+        int y1 = y0 + 1;
+
+        float xs, ys;
+        switch (m_interp) {
+            default:
+            case Linear:
+                xs = xf - x0;
+                ys = yf - y0;
+                break;
+            case Hermite:
+                xs = InterpHermiteFunc(xf - x0);
+                ys = InterpHermiteFunc(yf - y0);
+                break;
+            case Quintic:
+                xs = InterpQuinticFunc(xf - x0);
+                ys = InterpQuinticFunc(yf - y0);
+                break;
+        }
+
+        Float2 vec0 = CELL_2D[Hash2D(seed, x0, y0) & 255];
+        Float2 vec1 = CELL_2D[Hash2D(seed, x1, y0) & 255];
+
+        float lx0x = Lerp(vec0.x, vec1.x, xs);
+        float ly0x = Lerp(vec0.y, vec1.y, xs);
+
+        vec0 = CELL_2D[Hash2D(seed, x0, y1) & 255];
+        vec1 = CELL_2D[Hash2D(seed, x1, y1) & 255];
+
+        float lx1x = Lerp(vec0.x, vec1.x, xs);
+        float ly1x = Lerp(vec0.y, vec1.y, xs);
+
+        xy[0] += Lerp(lx0x, lx1x, ys) * perturbAmp;
+        xy[1] += Lerp(ly0x, ly1x, ys) * perturbAmp;
+    }
+
 }
@@ -70,21 +70,40 @@ public class LayeredNoise {
         this.hardFloorStrength = hardFloorStrength;
     }
 
+    /**
+     * @return the layer masking noiseLayer (the withLayer of its first LayerMask), or null if it isn't masked
+     */
+    public NoiseLayer getMaskLayer(NoiseLayer noiseLayer) {
+
+        for (LayerMask mask : layerMasks) {
+            if (mask.getNoiseLayer().equals(noiseLayer)) {
+                return mask.getWithLayer();
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Compiles the current layers and masks into an immutable plan, to evaluate many samples or whole grids.
+     * Compile again after changing the stack.
+     */
+    public LayeredNoisePlan compile() {
+        return new LayeredNoisePlan(this);
+    }
+
     public float evaluate(Vector2f v) {
 
         float result = 0;
 
         for (NoiseLayer layer : layers) {
 
-            LayerMask mask = layerMasks.stream()
-                    .filter(m -> m.getNoiseLayer().equals(layer))
-                    .findFirst()
-                    .orElse(null);
+            NoiseLayer maskLayer = getMaskLayer(layer);
 
             float layerNoise = layer.evaluate(v);
 
-            if (mask != null) {
-                layerNoise *= mask.getWithLayer().evaluate(v);
+            if (maskLayer != null) {
+                layerNoise *= maskLayer.evaluate(v);
             }
 
             layerNoise *= layer.getStrength();
@@ -0,0 +1,161 @@
+package com.dreamwagon.terranova.fastnoise;
+
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector2f;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable evaluation plan of a {@link LayeredNoise}, built by {@link LayeredNoise#compile()}.
+ *
+ * Layer to mask bindings are resolved into index arrays once, layers that cannot contribute (disabled, zero
+ * strength or masked by a disabled layer) are dropped, and every distinct NoiseLayer is evaluated only once per
+ * sample even if it is used both as a layer and as a mask, or by several masks.
+ *
+ * The plan keeps references to the NoiseLayers but copies the stack structure, strengths and hard floor settings;
+ * compile again after changing any of them.
+ */
+public final class LayeredNoisePlan {
+
+    // distinct noise layers to evaluate per sample
+    private final NoiseLayer[] sources;
+
+    // per contributing layer: index of its source, index of its mask source (or -1) and its strength
+    private final int[] layerSources;
+    private final int[] maskSources;
+    private final float[] strengths;
+
+    private final boolean hardFloor;
+    private final float hardFloorHeight;
+    private final float hardFloorStrength;
+
+    LayeredNoisePlan(LayeredNoise layeredNoise) {
+
+        Map<NoiseLayer, Integer> sourceIndex = new IdentityHashMap<>();
+        List<NoiseLayer> sourceList = new ArrayList<>();
+        List<int[]> terms = new ArrayList<>();
+        List<Float> termStrengths = new ArrayList<>();
+
+        for (NoiseLayer layer : layeredNoise.getLayers()) {
+
+            NoiseLayer maskLayer = layeredNoise.getMaskLayer(layer);
+
+            if (!layer.isEnabled() || layer.getStrength() == 0 || (maskLayer != null && !maskLayer.isEnabled())) {
+                continue;
+            }
+
+            int layerSource = sourceIndex.computeIfAbsent(layer, l -> addSource(sourceList, l));
+            int maskSource = maskLayer == null ? -1 : sourceIndex.computeIfAbsent(maskLayer, l -> addSource(sourceList, l));
+
+            terms.add(new int[] { layerSource, maskSource });
+            termStrengths.add(layer.getStrength());
+        }
+
+        sources = sourceList.toArray(new NoiseLayer[0]);
+        layerSources = new int[terms.size()];
+        maskSources = new int[terms.size()];
+        strengths = new float[terms.size()];
+
+        for (int i = 0; i < terms.size(); i++) {
+            layerSources[i] = terms.get(i)[0];
+            maskSources[i] = terms.get(i)[1];
+            strengths[i] = termStrengths.get(i);
+        }
+
+        hardFloor = layeredNoise.isHardFloor();
+        hardFloorHeight = layeredNoise.getHardFloorHeight();
+        hardFloorStrength = layeredNoise.getHardFloorStrength();
+    }
+
+    private static int addSource(List<NoiseLayer> sourceList, NoiseLayer layer) {
+        sourceList.add(layer);
+        return sourceList.size() - 1;
+    }
+
+    /**
+     * @return the number of distinct noise layers evaluated per sample, the size of the values scratch array
+     */
+    public int getSourceCount() {
+        return sources.length;
+    }
+
+    public float evaluate(Vector2f v) {
+        return evaluate(v.x, v.y, new float[sources.length], new float[2]);
+    }
+
+    /**
+     * Same result as LayeredNoise.evaluate at (x, y), without allocating.
+     *
+     * @param values caller owned scratch array of at least getSourceCount() floats
+     * @param xy     caller owned scratch array of at least 2 floats
+     */
+    public float evaluate(float x, float y, float[] values, float[] xy) {
+
+        for (int s = 0; s < sources.length; s++) {
+            values[s] = sources[s].evaluate(x, y, xy);
+        }
+
+        return combine(values, 0, 1);
+    }
+
+    /**
+     * Fills a width x height grid with evaluate(originX + i * stepX, originY + j * stepY), written to
+     * out[offset + j * width + i]. Each source layer is filled a row at a time, so unperturbed layers run at
+     * FastNoise bulk speed. Use offset to fill bands of rows of a larger buffer from several threads.
+     */
+    public void fillGrid(float[] out, int offset, float originX, float originY, float stepX, float stepY, int width, int height) {
+
+        // one row per source, index = s * width + i
+        float[] rows = new float[sources.length * width];
+        float[] xy = new float[2];
+
+        for (int j = 0; j < height; j++) {
+
+            float y = originY + j * stepY;
+
+            for (int s = 0; s < sources.length; s++) {
+                sources[s].fillGrid(rows, s * width, originX, y, stepX, stepY, width, 1, xy);
+            }
+
+            int rowOffset = offset + j * width;
+
+            for (int i = 0; i < width; i++) {
+                out[rowOffset + i] = combine(rows, i, width);
+            }
+        }
+    }
+
+    /**
+     * Sums the contributing layers of one sample, reading the value of source s at values[start + s * stride].
+     */
+    private float combine(float[] values, int start, int stride) {
+
+        float result = 0;
+
+        for (int t = 0; t < layerSources.length; t++) {
+
+            float layerNoise = values[start + layerSources[t] * stride];
+
+            if (maskSources[t] >= 0) {
+                layerNoise *= values[start + maskSources[t] * stride];
+            }
+
+            result += layerNoise * strengths[t];
+        }
+
+        if (hardFloor) {
+
+            // density += saturate((hard_floor_y - ws_orig.y)*3)*40;
+
+            result += FastMath.saturate((hardFloorHeight - result) * 3.0f)
+                    * ((hardFloorHeight - result) * hardFloorStrength);
+
+        }
+
+        return result;
+    }
+
+}
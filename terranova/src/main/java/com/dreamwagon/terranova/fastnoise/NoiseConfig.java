@@ -0,0 +1,158 @@
+package com.dreamwagon.terranova.fastnoise;
+
+import com.dreamwagon.terranova.fastnoise.FastNoise.CellularDistanceFunction;
+import com.dreamwagon.terranova.fastnoise.FastNoise.CellularReturnType;
+import com.dreamwagon.terranova.fastnoise.FastNoise.FractalType;
+import com.dreamwagon.terranova.fastnoise.FastNoise.Interp;
+import com.dreamwagon.terranova.fastnoise.FastNoise.NoiseType;
+
+/**
+ * Immutable, validated snapshot of a {@link FastNoise} configuration.
+ *
+ * A FastNoise built with {@link FastNoise#FastNoise(NoiseConfig)} rejects every setter, so once it has been handed
+ * to worker threads (through an executor, a fork/join task or a final field) any number of them can sample it
+ * concurrently, without locking and without per thread copies. Use {@link #toBuilder()} to derive a new
+ * configuration.
+ */
+public final class NoiseConfig {
+
+    private final int seed;
+    private final float frequency;
+    private final Interp interp;
+    private final NoiseType noiseType;
+
+    private final int octaves;
+    private final float lacunarity;
+    private final float gain;
+    private final FractalType fractalType;
+
+    private final CellularDistanceFunction cellularDistanceFunction;
+    private final CellularReturnType cellularReturnType;
+    private final NoiseConfig cellularNoiseLookup;
+
+    private final float gradientPerturbAmp;
+
+    private NoiseConfig(Builder builder) {
+        seed = builder.seed;
+        frequency = builder.frequency;
+        interp = builder.interp;
+        noiseType = builder.noiseType;
+        octaves = builder.octaves;
+        lacunarity = builder.lacunarity;
+        gain = builder.gain;
+        fractalType = builder.fractalType;
+        cellularDistanceFunction = builder.cellularDistanceFunction;
+        cellularReturnType = builder.cellularReturnType;
+        cellularNoiseLookup = builder.cellularNoiseLookup;
+        gradientPerturbAmp = builder.gradientPerturbAmp;
+    }
+
+    /**
+     * @return a builder holding the FastNoise defaults
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @return a builder initialized with this configuration
+     */
+    public Builder toBuilder() {
+        return new Builder()
+                .seed(seed)
+                .frequency(frequency)
+                .interp(interp)
+                .noiseType(noiseType)
+                .fractalOctaves(octaves)
+                .fractalLacunarity(lacunarity)
+                .fractalGain(gain)
+                .fractalType(fractalType)
+                .cellularDistanceFunction(cellularDistanceFunction)
+                .cellularReturnType(cellularReturnType)
+                .cellularNoiseLookup(cellularNoiseLookup)
+                .gradientPerturbAmp(gradientPerturbAmp);
+    }
+
+    public int getSeed() { return seed; }
+    public float getFrequency() { return frequency; }
+    public Interp getInterp() { return interp; }
+    public NoiseType getNoiseType() { return noiseType; }
+    public int getFractalOctaves() { return octaves; }
+    public float getFractalLacunarity() { return lacunarity; }
+    public float getFractalGain() { return gain; }
+    public FractalType getFractalType() { return fractalType; }
+    public CellularDistanceFunction getCellularDistanceFunction() { return cellularDistanceFunction; }
+    public CellularReturnType getCellularReturnType() { return cellularReturnType; }
+    public NoiseConfig getCellularNoiseLookup() { return cellularNoiseLookup; }
+
+    /**
+     * @return the gradient perturb amplitude as passed to FastNoise.setGradientPerturbAmp
+     */
+    public float getGradientPerturbAmp() { return gradientPerturbAmp; }
+
+    public static final class Builder {
+
+        private int seed = 1337;
+        private float frequency = 0.01f;
+        private Interp interp = Interp.Quintic;
+        private NoiseType noiseType = NoiseType.Simplex;
+
+        private int octaves = 3;
+        private float lacunarity = 2.0f;
+        private float gain = 0.5f;
+        private FractalType fractalType = FractalType.FBM;
+
+        private CellularDistanceFunction cellularDistanceFunction = CellularDistanceFunction.Euclidean;
+        private CellularReturnType cellularReturnType = CellularReturnType.CellValue;
+        private NoiseConfig cellularNoiseLookup = null;
+
+        private float gradientPerturbAmp = 1.0f;
+
+        private Builder() {
+        }
+
+        public Builder seed(int seed) { this.seed = seed; return this; }
+        public Builder frequency(float frequency) { this.frequency = frequency; return this; }
+        public Builder interp(Interp interp) { this.interp = interp; return this; }
+        public Builder noiseType(NoiseType noiseType) { this.noiseType = noiseType; return this; }
+        public Builder fractalOctaves(int octaves) { this.octaves = octaves; return this; }
+        public Builder fractalLacunarity(float lacunarity) { this.lacunarity = lacunarity; return this; }
+        public Builder fractalGain(float gain) { this.gain = gain; return this; }
+        public Builder fractalType(FractalType fractalType) { this.fractalType = fractalType; return this; }
+        public Builder cellularDistanceFunction(CellularDistanceFunction function) { this.cellularDistanceFunction = function; return this; }
+        public Builder cellularReturnType(CellularReturnType returnType) { this.cellularReturnType = returnType; return this; }
+        public Builder cellularNoiseLookup(NoiseConfig lookup) { this.cellularNoiseLookup = lookup; return this; }
+        public Builder gradientPerturbAmp(float gradientPerturbAmp) { this.gradientPerturbAmp = gradientPerturbAmp; return this; }
+
+        /**
+         * @throws IllegalArgumentException if a value is missing or out of range
+         */
+        public NoiseConfig build() {
+
+            requireFinite("frequency", frequency);
+            requireFinite("fractal lacunarity", lacunarity);
+            requireFinite("fractal gain", gain);
+            requireFinite("gradient perturb amp", gradientPerturbAmp);
+
+            if (octaves < 1) {
+                throw new IllegalArgumentException("fractal octaves must be at least 1, got " + octaves);
+            }
+            if (interp == null || noiseType == null || fractalType == null
+                    || cellularDistanceFunction == null || cellularReturnType == null) {
+                throw new IllegalArgumentException("interp, noise type, fractal type and cellular settings must not be null");
+            }
+            if (cellularReturnType == CellularReturnType.NoiseLookup && cellularNoiseLookup == null) {
+                throw new IllegalArgumentException("cellular return type NoiseLookup requires a cellular noise lookup");
+            }
+
+            return new NoiseConfig(this);
+        }
+
+        private static void requireFinite(String name, float value) {
+            if (Float.isNaN(value) || Float.isInfinite(value)) {
+                throw new IllegalArgumentException(name + " must be finite, got " + value);
+            }
+        }
+    }
+
+}
@@ -1,16 +1,18 @@
 package com.dreamwagon.terranova.fastnoise;
 
-import com.jme3.math.ColorRGBA;
+import com.dreamwagon.terranova.util.ProgressMonitor;
 import com.jme3.math.Vector2f;
-import com.jme3.math.Vector3f;
 import com.jme3.texture.Image;
 import com.jme3.texture.Texture2D;
 import com.jme3.texture.image.ColorSpace;
-import com.jme3.texture.image.ImageRaster;
 import com.jme3.util.BufferUtils;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 public class NoiseLayer {
 
@@ -80,24 +82,34 @@ public class NoiseLayer {
     public void setLookupNoise(FastNoise lookupNoise) { this.lookupNoise = lookupNoise; }
 
     public float evaluate(Vector2f v) {
+        return evaluate(v.x, v.y, new float[2]);
+    }
+
+    /**
+     * Allocation free variant of evaluate(Vector2f).
+     *
+     * @param xy caller owned scratch array of at least 2 floats, used to perturb the point. Reuse it across samples.
+     */
+    public float evaluate(float x, float y, float[] xy) {
 
         if (!enabled) {
             return 0;
         }
 
-        Vector2f f = v.clone();
+        xy[0] = x;
+        xy[1] = y;
 
         switch (gradientPerturb.ordinal())
         {
             case 1:
-                perturbNoise.gradientPerturb(f);
+                perturbNoise.gradientPerturb2D(xy);
                 break;
             case 2:
-                perturbNoise.gradientPerturbFractal(f);
+                perturbNoise.gradientPerturbFractal2D(xy);
                 break;
         }
 
-        float noise = primaryNoise.getNoise(f.x * scale.x, f.y * scale.y);
+        float noise = primaryNoise.getNoise(xy[0] * scale.x, xy[1] * scale.y);
 
         if (inverted) {
             noise = -noise;
@@ -107,9 +119,49 @@ public class NoiseLayer {
 
     }
 
+    /**
+     * Fills a width x height grid with evaluate(originX + i * stepX, originY + j * stepY), written to
+     * out[offset + j * width + i]. Values are identical to evaluate; unperturbed, unscaled layers are filled
+     * a row at a time by FastNoise.
+     *
+     * @param xy caller owned scratch array of at least 2 floats
+     */
+    public void fillGrid(float[] out, int offset, float originX, float originY, float stepX, float stepY, int width, int height, float[] xy) {
+
+        if (!enabled) {
+            Arrays.fill(out, offset, offset + width * height, 0);
+            return;
+        }
+
+        if (gradientPerturb == GradientPerturb.Off && scale.x == 1 && scale.y == 1) {
+
+            primaryNoise.fillGrid2D(out, offset, originX, originY, stepX, stepY, width, height);
+
+            if (inverted) {
+                for (int i = offset; i < offset + width * height; i++) {
+                    out[i] = -out[i];
+                }
+            }
+            return;
+        }
+
+        int index = offset;
+
+        for (int j = 0; j < height; j++) {
+            float y = originY + j * stepY;
+
+            for (int i = 0; i < width; i++) {
+                out[index++] = evaluate(originX + i * stepX, y, xy);
+            }
+        }
+    }
+
     private boolean get3d;
     private float zPos = 0.5f;
 
+    // rows of the texture handled by a single fork/join tile
+    private static final int TILE_ROWS = 32;
+
     public boolean isGet3d() {
         return get3d;
     }
@@ -119,201 +171,406 @@ public class NoiseLayer {
     }
 
     public Texture2D generateTexture(int size) {
+        return generateTexture(size, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generates a greyscale texture of the layer, split in bands of rows (tiles) that are run on the given pool.
+     * Tiles compute their noise and a local min/max, the min/max are reduced, and a second pass over the tiles
+     * writes the normalized values. Every pixel only depends on its own coordinate and min/max reduction is exact,
+     * so the result is bit-identical to the serial path for a given seed.
+     *
+     * @param size width and height of the texture
+     * @param pool pool to run the tiles on, or null to generate on the calling thread
+     */
+    public Texture2D generateTexture(int size, ForkJoinPool pool) {
+
+        if (primaryNoise.getNoiseType().toString().toLowerCase().endsWith("perturb")) {
+            return generatePerturbTexture(size);
+        }
 
         ByteBuffer buffer = BufferUtils.createByteBuffer(size * size * 4);
         Image result = new Image(Image.Format.RGB8, size, size, buffer, ColorSpace.sRGB);
-        ImageRaster imageRaster = ImageRaster.create(result);
 
+        float[] noiseValues = new float[size * size];
+        float[] range = computeNoise(noiseValues, size, size, pool, ProgressMonitor.NONE);
 
+        forEachTile(size, pool, (rowStart, rowEnd) -> writeNormalizedRows(noiseValues, range, buffer, size, rowStart, rowEnd));
 
-        int halfSize = size / 2;
+        return new Texture2D(result);
+    }
 
-        float avg = 0;
-        float maxN = 0;
-        float minN = 0;
+    /**
+     * Adds this layer's noise, normalized to [0, 1] (inverted if the layer is inverted) and multiplied by weight,
+     * to acc. This is the float counterpart of generateTexture: no 8 bit quantization happens, so several layers can
+     * be summed into one buffer without banding.
+     *
+     * @param size    width and height of the grid
+     * @param weight  weight of this layer in the sum
+     * @param scratch buffer of at least size * size floats, overwritten with the raw noise
+     * @param acc     buffer of at least size * size floats the weighted noise is added to (index = y * size + x)
+     * @param pool    pool to run the tiles on, or null to run on the calling thread
+     */
+    public void accumulateNoise(int size, float weight, float[] scratch, float[] acc, ForkJoinPool pool) {
+        accumulateNoise(size, weight, scratch, acc, pool, ProgressMonitor.NONE);
+    }
+
+    /**
+     * Same as {@link #accumulateNoise(int, float, float[], float[], ForkJoinPool)}, reporting one unit of work
+     * per computed row to the monitor as each tile completes. The monitor may abort the evaluation by throwing
+     * a CancellationException, which is rethrown to the caller; acc is then left partially updated.
+     */
+    public void accumulateNoise(int size, float weight, float[] scratch, float[] acc, ForkJoinPool pool, ProgressMonitor monitor) {
+        accumulateNoise(size, size, weight, scratch, acc, pool, monitor);
+    }
+
+    /**
+     * Same as {@link #accumulateNoise(int, float, float[], float[], ForkJoinPool, ProgressMonitor)}, sampling a
+     * size * size grid over the area covered by a texture of extent * extent pixels. A small size gives a coarse
+     * preview of exactly the same terrain; with extent == size the values are those of the full resolution grid.
+     *
+     * @param extent width and height, in pixels of the full resolution texture, of the sampled area
+     */
+    public void accumulateNoise(int size, int extent, float weight, float[] scratch, float[] acc, ForkJoinPool pool, ProgressMonitor monitor) {
+
+        float[] range = computeNoise(scratch, size, extent, pool, monitor);
+
+        forEachTile(size, pool, (rowStart, rowEnd) -> accumulateNormalizedRows(scratch, range, weight, acc, size, rowStart, rowEnd));
+    }
+
+    /**
+     * Computes the raw noise of the whole grid into noiseValues.
+     *
+     * @return the {min, max} of the noise
+     */
+    private float[] computeNoise(float[] noiseValues, int size, int extent, ForkJoinPool pool, ProgressMonitor monitor) {
+
+        if (pool == null) {
+
+            float[] range = { 0, 0 };
+
+            for (int rowStart = 0; rowStart < size; rowStart += TILE_ROWS) {
+                int rowEnd = Math.min(size, rowStart + TILE_ROWS);
+                float[] tile = computeNoiseRows(noiseValues, size, extent, rowStart, rowEnd);
+                range[0] = Math.min(range[0], tile[0]);
+                range[1] = Math.max(range[1], tile[1]);
+                monitor.worked(rowEnd - rowStart);
+            }
 
-        int index = 0;
+            return range;
+        }
+
+        return pool.invoke(new NoiseTileTask(noiseValues, size, extent, 0, size, monitor));
+    }
+
+    private void forEachTile(int size, ForkJoinPool pool, RowRange rows) {
+
+        if (pool == null) {
+            rows.apply(0, size);
+        }
+        else {
+            pool.invoke(new RowTileTask(rows, 0, size));
+        }
+    }
 
-        long current = 0;
+    /**
+     * Computes the noise of rows [rowStart, rowEnd) into noiseValues (index = y * size + x). The grid covers the
+     * extent * extent area centered on the origin, so samples are extent / size apart.
+     *
+     * @return the {min, max} of the computed values. Both start at 0, as the serial generator always did.
+     */
+    private float[] computeNoiseRows(float[] noiseValues, int size, int extent, int rowStart, int rowEnd) {
 
-        // boolean get3d = false;
+        float origin = -(extent / 2);
+        float step = (float) extent / size;
+        int warpIndex = gradientPerturb.ordinal();
 
-        float noise = 0;
+        float maxN = 0;
+        float minN = 0;
+        float noise;
 
-        if (!primaryNoise.getNoiseType().toString().toLowerCase().endsWith("perturb")) {
+        int index = rowStart * size;
 
-            float[] noiseValues = new float[size * size];
-            int warpIndex = gradientPerturb.ordinal();
+        if (warpIndex == 0) {
 
             if (get3d) {
+                primaryNoise.fillGrid3D(noiseValues, index, origin, origin + rowStart * step, zPos, step, step, 0, size, rowEnd - rowStart, 1);
+            }
+            else {
+                primaryNoise.fillGrid2D(noiseValues, index, origin, origin + rowStart * step, step, step, size, rowEnd - rowStart);
+            }
+
+            for (int i = index; i < rowEnd * size; i++) {
+                noise = noiseValues[i];
+                maxN = Math.max(maxN, noise);
+                minN = Math.min(minN, noise);
+            }
+        }
+
+        else if (get3d) {
 
+            // scratch point reused for every sample of the tile
+            float[] f = new float[3];
+
+            for (int y = rowStart; y < rowEnd; y++) {
                 for (int x = 0; x < size; x++) {
-                    for (int y = 0; y < size; y++) {
-
-                        Vector3f f = new Vector3f(x - halfSize, y - halfSize, zPos);
-
-                        switch (warpIndex) {
-                            case 1:
-                                perturbNoise.gradientPerturb(f);
-                                break;
-                            case 2:
-                                perturbNoise.gradientPerturbFractal(f);
-                                break;
-                        }
-                        //noise = fNoise.GetNoise(xf, yf, zf);
-                        noise = primaryNoise.getNoise(f.x, f.y, f.z);
-
-                        avg += noise;
-                        maxN = Math.max(maxN, noise);
-                        minN = Math.min(minN, noise);
-                        noiseValues[index++] = noise;
+
+                    f[0] = origin + x * step;
+                    f[1] = origin + y * step;
+                    f[2] = zPos;
+
+                    switch (warpIndex) {
+                        case 1:
+                            perturbNoise.gradientPerturb3D(f);
+                            break;
+                        case 2:
+                            perturbNoise.gradientPerturbFractal3D(f);
+                            break;
                     }
 
+                    noise = primaryNoise.getNoise(f[0], f[1], f[2]);
+
+                    maxN = Math.max(maxN, noise);
+                    minN = Math.min(minN, noise);
+                    noiseValues[index++] = noise;
                 }
             }
+        }
 
-            else {
-
-                for (int x = 0; x < size; x++) {
-                    for (int y = 0; y < size; y++) {
+        else {
 
-                        // float xf = (float) (x - halfSize);
-                        // float yf = (float) (y - halfSize);
-                        Vector2f f = new Vector2f((float) (x - halfSize), (float) (y - halfSize));
+            float[] f = new float[2];
 
-                        switch (warpIndex)
-                        {
-                            case 1:
-                                perturbNoise.gradientPerturb(f);
-                                break;
-                            case 2:
-                                perturbNoise.gradientPerturbFractal(f);
-                                break;
-                        }
+            for (int y = rowStart; y < rowEnd; y++) {
+                for (int x = 0; x < size; x++) {
 
-                        noise = primaryNoise.getNoise(f.x, f.y);
+                    f[0] = origin + x * step;
+                    f[1] = origin + y * step;
+
+                    switch (warpIndex)
+                    {
+                        case 1:
+                            perturbNoise.gradientPerturb2D(f);
+                            break;
+                        case 2:
+                            perturbNoise.gradientPerturbFractal2D(f);
+                            break;
+                    }
 
-                        avg += noise;
-                        maxN = Math.max(maxN, noise);
-                        minN = Math.min(minN, noise);
-                        noiseValues[index++] = noise;
+                    noise = primaryNoise.getNoise(f[0], f[1]);
 
-                    }
+                    maxN = Math.max(maxN, noise);
+                    minN = Math.min(minN, noise);
+                    noiseValues[index++] = noise;
                 }
             }
+        }
 
-            avg /= index - 1;
-            index = 0;
-            float scale = 255 / (maxN - minN);
-
-            for (int x = 0; x < size; x++) {
-                for (int y = 0; y < size; y++) {
+        return new float[] { minN, maxN };
+    }
 
-                    noise = noiseValues[index++];
+    /**
+     * Writes rows [rowStart, rowEnd) of noiseValues, normalized to 0-255 with the given {min, max}, to an RGB8 buffer.
+     * Bytes are put directly (absolute puts, no shared ImageRaster) so tiles can write concurrently.
+     */
+    private void writeNormalizedRows(float[] noiseValues, float[] range, ByteBuffer buffer, int size, int rowStart, int rowEnd) {
 
-                    // unsigned char value = (unsigned char)fmax(0, fmin(255, (noise - minN) * scale));
-                    int value = (int) Math.max(0, Math.min(255, (noise - minN) * scale));
+        float minN = range[0];
+        float scale = 255 / (range[1] - minN);
 
-                    if (inverted) {
-                        value = 255 - value;
-                    }
+        for (int i = rowStart * size; i < rowEnd * size; i++) {
 
-                    // bitmap->SetPixel(x, y, Color::FromArgb(255, value, value, value));
-                    ColorRGBA color = new ColorRGBA(value / 255f, value / 255f, value / 255f, 1.0f);
-                    imageRaster.setPixel(x, y, color);
+            // unsigned char value = (unsigned char)fmax(0, fmin(255, (noise - minN) * scale));
+            int value = (int) Math.max(0, Math.min(255, (noiseValues[i] - minN) * scale));
 
-                }
+            if (inverted) {
+                value = 255 - value;
             }
 
+            byte b = (byte) value;
+            int p = i * 3;
+            buffer.put(p, b);
+            buffer.put(p + 1, b);
+            buffer.put(p + 2, b);
+        }
+    }
+
+    private void accumulateNormalizedRows(float[] noiseValues, float[] range, float weight, float[] acc, int size, int rowStart, int rowEnd) {
+
+        float minN = range[0];
+        float scale = 1 / (range[1] - minN);
+
+        for (int i = rowStart * size; i < rowEnd * size; i++) {
+
+            float value = Math.max(0, Math.min(1, (noiseValues[i] - minN) * scale));
+
+            if (inverted) {
+                value = 1 - value;
+            }
 
+            acc[i] += value * weight;
         }
-        else {
+    }
 
-            float[] noiseValues = new float[size * size * 3];
-            boolean fractal = primaryNoise.getNoiseType().toString().toLowerCase().endsWith("fractal");
+    private class NoiseTileTask extends RecursiveTask<float[]> {
 
-            if (get3d) {
+        private final float[] noiseValues;
+        private final int size, extent, rowStart, rowEnd;
+        private final ProgressMonitor monitor;
+
+        NoiseTileTask(float[] noiseValues, int size, int extent, int rowStart, int rowEnd, ProgressMonitor monitor) {
+            this.noiseValues = noiseValues;
+            this.size = size;
+            this.extent = extent;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+            this.monitor = monitor;
+        }
 
+        @Override
+        protected float[] compute() {
+
+            if (rowEnd - rowStart <= TILE_ROWS) {
+                float[] range = computeNoiseRows(noiseValues, size, extent, rowStart, rowEnd);
+                monitor.worked(rowEnd - rowStart);
+                return range;
             }
-            else {
 
-                for (int x = 0; x < size; x++) {
-                    for (int y = 0; y < size; y++) {
+            int mid = (rowStart + rowEnd) >>> 1;
+            NoiseTileTask top = new NoiseTileTask(noiseValues, size, extent, rowStart, mid, monitor);
+            NoiseTileTask bottom = new NoiseTileTask(noiseValues, size, extent, mid, rowEnd, monitor);
+            top.fork();
+            float[] b = bottom.compute();
+            float[] t = top.join();
 
-                        // float xf = (float)x;
-                        // float yf = (float)y;
+            return new float[] { Math.min(t[0], b[0]), Math.max(t[1], b[1]) };
+        }
+    }
 
-                        Vector2f f = new Vector2f(x, y);
+    private interface RowRange {
+        void apply(int rowStart, int rowEnd);
+    }
 
-                        if (fractal) {
-                            primaryNoise.gradientPerturbFractal(f);
-                        }
-                        else {
-                            primaryNoise.gradientPerturb(f);
-                        }
+    /**
+     * Runs a per row operation over bands of TILE_ROWS rows.
+     */
+    private static class RowTileTask extends RecursiveAction {
 
-                        f.x -= x;
-                        f.y -= y;
+        private final RowRange rows;
+        private final int rowStart, rowEnd;
 
-                        //avg += f.x + f.y;
+        RowTileTask(RowRange rows, int rowStart, int rowEnd) {
+            this.rows = rows;
+            this.rowStart = rowStart;
+            this.rowEnd = rowEnd;
+        }
 
-                        maxN = Math.max(maxN, Math.max(f.x, f.y));
-                        minN = Math.min(minN, Math.min(f.x, f.y));
+        @Override
+        protected void compute() {
 
-                        noiseValues[index++] = f.x;
-                        noiseValues[index++] = f.y;
-                    }
-                }
+            if (rowEnd - rowStart <= TILE_ROWS) {
+                rows.apply(rowStart, rowEnd);
+                return;
             }
 
-            if (get3d) {
-                //avg /= (index - 1) * 3;
-            }
-            else {
-                //avg /= (index - 1) * 2;
-            }
+            int mid = (rowStart + rowEnd) >>> 1;
+            invokeAll(new RowTileTask(rows, rowStart, mid), new RowTileTask(rows, mid, rowEnd));
+        }
+    }
+
+    private Texture2D generatePerturbTexture(int size) {
 
-            index = 0;
-            float scale = 255 / (maxN - minN);
+        ByteBuffer buffer = BufferUtils.createByteBuffer(size * size * 4);
+        Image result = new Image(Image.Format.RGB8, size, size, buffer, ColorSpace.sRGB);
+
+        float maxN = 0;
+        float minN = 0;
+
+        int index = 0;
+
+        float[] noiseValues = new float[size * size * 3];
+        float[] xy = new float[2];
+        boolean fractal = primaryNoise.getNoiseType().toString().toLowerCase().endsWith("fractal");
+
+        if (get3d) {
+
+        }
+        else {
 
             for (int x = 0; x < size; x++) {
                 for (int y = 0; y < size; y++) {
 
-                    int red = 0;
-                    int green = 0;
-                    int blue = 0;
-
-                    if (get3d) {
+                    xy[0] = x;
+                    xy[1] = y;
 
+                    if (fractal) {
+                        primaryNoise.gradientPerturbFractal2D(xy);
                     }
                     else {
+                        primaryNoise.gradientPerturb2D(xy);
+                    }
 
-                        HSV hsv = new HSV();
-                        hsv.h = (int) ((noiseValues[index++] - minN) * scale);
-                        hsv.s = 255;
-                        hsv.v = (int) ((noiseValues[index++] - minN) * scale);
-
-                        // RGB rgb = HSV2RGB(HSV{ (unsigned char)((noiseValues[index++] - minN) * scale), 255, (unsigned char)((noiseValues[index++] - minN) * scale) });
-                        RGB rgb = HSV2RGB(hsv);
+                    float fx = xy[0] - x;
+                    float fy = xy[1] - y;
 
-                        red = rgb.r;
-                        green = rgb.g;
-                        blue = rgb.b;
-                    }
+                    //avg += f.x + f.y;
 
-                    if (inverted) {
-                        red = 255 - red;
-                        green = 255 - green;
-                        blue = 255 - blue;
-                    }
+                    maxN = Math.max(maxN, Math.max(fx, fy));
+                    minN = Math.min(minN, Math.min(fx, fy));
 
-                    ColorRGBA colorRGBA = new ColorRGBA(red / 255f, green / 255f, blue / 255f, 1.0f);
-                    imageRaster.setPixel(x, y, colorRGBA);
+                    noiseValues[index++] = fx;
+                    noiseValues[index++] = fy;
                 }
             }
+        }
+
+        if (get3d) {
+            //avg /= (index - 1) * 3;
+        }
+        else {
+            //avg /= (index - 1) * 2;
+        }
+
+        index = 0;
+        float scale = 255 / (maxN - minN);
+
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+
+                int red = 0;
+                int green = 0;
+                int blue = 0;
+
+                if (get3d) {
+
+                }
+                else {
+
+                    int h = (int) ((noiseValues[index++] - minN) * scale);
+                    int v = (int) ((noiseValues[index++] - minN) * scale);
+
+                    // RGB rgb = HSV2RGB(HSV{ (unsigned char)((noiseValues[index++] - minN) * scale), 255, (unsigned char)((noiseValues[index++] - minN) * scale) });
+                    int rgb = hsvToRgb(h, 255, v);
+
+                    red = (rgb >> 16) & 0xFF;
+                    green = (rgb >> 8) & 0xFF;
+                    blue = rgb & 0xFF;
+                }
+
+                if (inverted) {
+                    red = 255 - red;
+                    green = 255 - green;
+                    blue = 255 - blue;
+                }
 
+                int p = (y * size + x) * 3;
+                buffer.put(p, (byte) red);
+                buffer.put(p + 1, (byte) green);
+                buffer.put(p + 2, (byte) blue);
+            }
         }
 
+
         return new Texture2D(result);
     }
 
@@ -463,58 +720,42 @@ public class NoiseLayer {
         scale.setY(y);
     }
 
-    private class RGB {
-        public int r, g, b;
-    }
-
-    private class HSV {
-        public int h, s, v;
-    }
-
-    private RGB HSV2RGB(HSV hsv) {
-
-        RGB rgb = new RGB();
+    /**
+     * Converts a color from HSV to RGB, all components 0-255.
+     *
+     * @return the color packed as 0xRRGGBB
+     */
+    private static int hsvToRgb(int h, int s, int v) {
 
         int region, remainder, p, q, t;
 
-        if (hsv.s == 0)
+        if (s == 0)
         {
-            rgb.r = hsv.v;
-            rgb.g = hsv.v;
-            rgb.b = hsv.v;
-            return rgb;
+            return (v << 16) | (v << 8) | v;
         }
 
-        region = hsv.h / 43;
-        remainder = (hsv.h - (region * 43)) * 6;
+        region = h / 43;
+        remainder = (h - (region * 43)) * 6;
 
-        p = (hsv.v * (255 - hsv.s)) >> 8;
-        q = (hsv.v * (255 - ((hsv.s * remainder) >> 8))) >> 8;
-        t = (hsv.v * (255 - ((hsv.s * (255 - remainder)) >> 8))) >> 8;
+        p = (v * (255 - s)) >> 8;
+        q = (v * (255 - ((s * remainder) >> 8))) >> 8;
+        t = (v * (255 - ((s * (255 - remainder)) >> 8))) >> 8;
 
         switch (region)
         {
             case 0:
-                rgb.r = hsv.v; rgb.g = t; rgb.b = p;
-                break;
+                return (v << 16) | (t << 8) | p;
             case 1:
-                rgb.r = q; rgb.g = hsv.v; rgb.b = p;
-                break;
+                return (q << 16) | (v << 8) | p;
             case 2:
-                rgb.r = p; rgb.g = hsv.v; rgb.b = t;
-                break;
+                return (p << 16) | (v << 8) | t;
             case 3:
-                rgb.r = p; rgb.g = q; rgb.b = hsv.v;
-                break;
+                return (p << 16) | (q << 8) | v;
             case 4:
-                rgb.r = t; rgb.g = p; rgb.b = hsv.v;
-                break;
+                return (t << 16) | (p << 8) | v;
             default:
-                rgb.r = hsv.v; rgb.g = p; rgb.b = q;
-                break;
+                return (v << 16) | (p << 8) | q;
         }
-
-        return rgb;
     }
 
     @Override
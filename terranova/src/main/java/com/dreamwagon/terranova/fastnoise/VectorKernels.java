@@ -0,0 +1,25 @@
+package com.dreamwagon.terranova.fastnoise;
+
+/**
+ * Row kernels of {@link FastNoise} that evaluate several samples at once.
+ *
+ * The implementation, VectorNoiseKernels, lives in src/main/simd and is only built by the simd Maven profile
+ * (JDK 17+, jdk.incubator.vector). FastNoise only loads it, reflectively, when the system property
+ * terranova.noise.vector is true, and uses the scalar code when it is missing or the module is not resolved at
+ * runtime. It is off by default: benchmarks show it slower than the scalar code for most noise types.
+ */
+interface VectorKernels {
+
+    /**
+     * Fills out[offset .. offset + width) with 2D noise at (xs[i], y), coordinates already multiplied by the
+     * frequency.
+     *
+     * @return false if the noise configuration is not supported, in which case nothing was written
+     */
+    boolean fillRow2D(FastNoise noise, float[] out, int offset, float[] xs, float y, int width);
+
+    /**
+     * 3D version of {@link #fillRow2D(FastNoise, float[], int, float[], float, int)}.
+     */
+    boolean fillRow3D(FastNoise noise, float[] out, int offset, float[] xs, float y, float z, int width);
+}
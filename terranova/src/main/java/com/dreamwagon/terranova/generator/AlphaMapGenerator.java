@@ -0,0 +1,261 @@
+/**
+ * Copyright 2020 DREAMWAGON LLC
+ *
+ *	Redistribution and use in source and binary forms, with or without modification, are permitted 
+ *  provided that the following conditions are met:
+ *
+ *		1. Redistributions of source code must retain the above copyright notice, this list of 
+ *		   conditions and the following disclaimer.
+ *
+ *   	2. Redistributions in binary form must reproduce the above copyright notice, this list of 
+ *   	   conditions and the following disclaimer in the documentation and/or other materials 
+ *         provided with the distribution.
+ *
+ *	   	3. Neither the name of the copyright holder nor the names of its contributors may be used to 
+ *		   endorse or promote products derived from this software without specific prior written permission.
+ *
+ *		THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+ *		IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ *		FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ *		FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT 
+ *		LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ *		HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT 
+ *		(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ *		OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.dreamwagon.terranova.generator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.dreamwagon.terranova.TerranovaApp;
+import com.dreamwagon.terranova.TerranovaBaseAssetManager;
+import com.dreamwagon.terranova.model.ToggleTexture;
+import com.dreamwagon.terranova.settings.JMETerrainSettings;
+import com.dreamwagon.terranova.settings.SplatLayerSettings;
+import com.dreamwagon.terranova.ui.AbstractSettingsDialog;
+import com.dreamwagon.terranova.ui.Setting;
+import com.dreamwagon.terranova.ui.SettingType;
+import com.dreamwagon.terranova.ui.SettingsDialogBuilder;
+import com.dreamwagon.terranova.ui.TerranovaUiManager;
+import com.dreamwagon.terranova.util.ImageUtil;
+import com.dreamwagon.terranova.util.TerrainGradientField;
+import com.jme3.texture.Image;
+import com.jme3.texture.Image.Format;
+import com.jme3.texture.Texture;
+import com.jme3.texture.Texture2D;
+import com.jme3.texture.image.ColorSpace;
+import com.jme3.util.BufferUtils;
+
+import javafx.event.ActionEvent;
+import javafx.event.EventHandler;
+import javafx.scene.Node;
+import javafx.scene.control.Button;
+import javafx.scene.control.Dialog;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.VBox;
+import javafx.scene.text.Text;
+
+/**
+ * Generates the three RGBA alpha maps of the terrain lighting material from up to 12 splat layers,
+ * one per diffuse map, each with its own height, slope and curvature rule. See @SplatEngine
+ * 
+ * @author J. Demarco
+ *
+ */
+public class AlphaMapGenerator extends AbstractSettingsDialog implements Generator<Texture[]>{
+
+	private static final String ALPHA_MAP_DIRECTORY = "terranova" + File.separator + "alphamaps";
+	
+	@Setting(displayName="Alpha Map Size", settingType = SettingType.PREDEFINED_ENUMERATION, 
+			predefinedListValues = {SplatEngine.HEIGHTMAP_RESOLUTION, "256", "512", "1024", "2048", "4096"})
+	public String alphaMapResolution = SplatEngine.HEIGHTMAP_RESOLUTION;
+	
+	private SplatLayerSettings[] splatLayers = new SplatLayerSettings[SplatEngine.MAX_LAYERS];
+	private Map<String, Dialog<Void>> splatLayerSettingsDialogMap = new HashMap<String, Dialog<Void>>();
+	
+	private ImageView[] alphaMapPreviews = new ImageView[SplatEngine.ALPHA_MAPS];
+	
+	private Texture[] alphaMaps = null;
+	
+	public AlphaMapGenerator() {
+		for (int i = 0; i < splatLayers.length; i++) {
+			String diffuseMap = "DiffuseMap";
+			if (i > 0) {
+				diffuseMap += "_" + i;
+			}
+			splatLayers[i] = new SplatLayerSettings("Layer " + i + " (" + diffuseMap + ")");
+		}
+		splatLayers[0].active = Boolean.TRUE;
+		for (int i = 0; i < alphaMapPreviews.length; i++) {
+			alphaMapPreviews[i] = new ImageView();
+		}
+	}
+	
+	@Override
+	public String getName() {
+		return AlphaMapGenerator.class.getCanonicalName();
+	}
+	
+	@Override
+	public void beforeBuildSettings(Dialog<Void> parentDialog, Node node) {
+		VBox vBox = (VBox)node;
+		HBox previewHBox = new HBox();
+		previewHBox.setSpacing(10);
+		previewHBox.getChildren().addAll(alphaMapPreviews);
+		vBox.getChildren().add(previewHBox);
+	}
+	
+	@Override
+	public void afterBuildSettings(Dialog<Void> parentDialog, Node node) {
+		VBox vBox = (VBox)node;
+		VBox layerListVBox = new VBox();
+		buildLayerView(layerListVBox);
+		
+		HBox buttonHbox = new HBox();
+		buttonHbox.setSpacing(10);
+		Button genAlphaMapsButton = new Button("Generate Alpha Maps");
+		genAlphaMapsButton.setOnAction(new EventHandler<ActionEvent>() {
+	        @Override
+	        public void handle(ActionEvent event) {
+	        	applySettings();
+	        	alphaMaps = generate();
+	        	for (int i = 0; i < alphaMaps.length; i++) {
+	        		ImageUtil.refreshImageView(alphaMapPreviews[i], alphaMaps[i], 128, 128);
+	        	}
+	        }
+	    });
+		Button applyButton = new Button("Apply to Terrain");
+		applyButton.setOnAction(new EventHandler<ActionEvent>() {
+	        @Override
+	        public void handle(ActionEvent event) {
+	        	if (alphaMaps != null) {
+	        		applyToTerrain(alphaMaps);
+	        	}
+	        }
+	    });
+		buttonHbox.getChildren().addAll(genAlphaMapsButton, applyButton);
+		vBox.getChildren().addAll(layerListVBox, buttonHbox);
+	}
+	
+	private void buildLayerView(VBox layerListVBox) {
+		resetSettingsDialog();
+		for (SplatLayerSettings sls : splatLayers) {
+			HBox hbox = new HBox();
+			hbox.setSpacing(10);
+			Text splatLayerText = new Text(sls.getName());
+			Button splatLayerSettingsButton = new Button("Settings");
+			splatLayerSettingsButton.setOnAction(new EventHandler<ActionEvent>() {
+		        @Override
+		        public void handle(ActionEvent event) {
+		        	Dialog<Void> splatLayerSettingsDialog = splatLayerSettingsDialogMap.get(sls.getName());
+		        	if (null == splatLayerSettingsDialog){
+		        		SettingsDialogBuilder<SplatLayerSettings> dialogBuilder = new SettingsDialogBuilder<SplatLayerSettings>();
+		        		splatLayerSettingsDialog = dialogBuilder.buildSettingDialog(sls, SplatLayerSettings.class, 480, 500);
+		        		splatLayerSettingsDialogMap.put(sls.getName(), splatLayerSettingsDialog);
+		        	}
+		        	else{
+		        		if (!splatLayerSettingsDialog.isShowing()){
+		        			splatLayerSettingsDialog.show();
+		        		}
+		        	}
+		        }
+		    });
+			hbox.getChildren().addAll(splatLayerText, splatLayerSettingsButton);
+			layerListVBox.getChildren().add(hbox);
+		}
+	}
+	
+	private void resetSettingsDialog(){
+		for  (Entry<String, Dialog<Void>> dlg : splatLayerSettingsDialogMap.entrySet()) {
+			dlg.getValue().close();
+		}
+		splatLayerSettingsDialogMap.clear();
+	}
+	
+	/**
+	 * Builds the alpha maps of the current terrain from the gradient field cached by the @TerrainManager. 
+	 * The field is lazy and the @SplatEngine computes slopes and curvatures a row at a time, so no 
+	 * heightmap sized slope or curvature arrays are built here.
+	 */
+	@Override
+	public Texture[] generate() {
+		return generate(TerranovaApp.INSTANCE.terrainManager.getGradientField());
+	}
+	
+	/**
+	 * 
+	 * @param gradientField heights, slopes and curvatures of the heightmap
+	 * @return AlphaMap, AlphaMap_1 and AlphaMap_2, RGBA8 at the alpha map size
+	 */
+	public Texture[] generate(TerrainGradientField gradientField) {
+		SplatRule[] rules = new SplatRule[splatLayers.length];
+		for (int i = 0; i < splatLayers.length; i++) {
+			splatLayers[i].applySettings();
+			rules[i] = splatLayers[i].toRule();
+		}
+		
+		int size = SplatEngine.resolveSize(alphaMapResolution, gradientField.getSize());
+		ByteBuffer[] buffers = new ByteBuffer[SplatEngine.ALPHA_MAPS];
+		for (int i = 0; i < buffers.length; i++) {
+			buffers[i] = BufferUtils.createByteBuffer(size * size * 4);
+		}
+		SplatEngine.fill(gradientField, rules, buffers, size);
+		
+		Texture[] textures = new Texture[buffers.length];
+		for (int i = 0; i < buffers.length; i++) {
+			textures[i] = new Texture2D(new Image(Format.RGBA8, size, size, buffers[i], null, ColorSpace.Linear));
+		}
+		return textures;
+	}
+	
+	/**
+	 * Saves the alpha maps as PNGs and sets them on the @JMETerrainSettings, loaded back through the 
+	 * asset manager so that they have asset keys and are saved with the project. Then updates the 
+	 * terrain materials.
+	 * 
+	 * @param alphaMaps AlphaMap, AlphaMap_1 and AlphaMap_2
+	 */
+	public void applyToTerrain(Texture[] alphaMaps) {
+		Texture[] savedAlphaMaps = alphaMaps;
+		try {
+			savedAlphaMaps = saveAlphaMaps(alphaMaps);
+		} catch (IOException | IllegalArgumentException | IllegalAccessException e) {
+			e.printStackTrace();
+			TerranovaUiManager.showErrorMessage("Could not save the alpha maps, they will not be saved with the project: " + e.getMessage());
+		}
+		String jmeTerrainSettingsName = JMETerrainSettings.class.getCanonicalName();
+		JMETerrainSettings terrainSettings = (JMETerrainSettings) TerranovaUiManager.persistentSettings.get(jmeTerrainSettingsName);
+		terrainSettings.terrainAlphaMapTexure1 = savedAlphaMaps[0];
+		terrainSettings.terrainAlphaMapTexure2 = new ToggleTexture(savedAlphaMaps[1], true);
+		terrainSettings.terrainAlphaMapTexure3 = new ToggleTexture(savedAlphaMaps[2], true);
+		TerranovaApp.INSTANCE.terrainManager.updateTerrainMaterials(terrainSettings);
+	}
+	
+	/**
+	 * Saves the alpha maps as PNGs under {user home}/terranova/alphamaps. Every save gets new file 
+	 * names, so the asset manager cache never returns the maps of an earlier save.
+	 * 
+	 * @param alphaMaps
+	 * @return the alpha maps loaded back from their PNGs
+	 */
+	private Texture[] saveAlphaMaps(Texture[] alphaMaps) throws IOException, IllegalArgumentException, IllegalAccessException {
+		File directory = new File(TerranovaBaseAssetManager.USER_HOME_DIRECTORY, ALPHA_MAP_DIRECTORY);
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create " + directory);
+		}
+		long stamp = System.currentTimeMillis();
+		Texture[] savedAlphaMaps = new Texture[alphaMaps.length];
+		for (int i = 0; i < alphaMaps.length; i++) {
+			File file = new File(directory, "AlphaMap" + (i == 0 ? "" : "_" + i) + "_" + stamp + ".png");
+			ImageUtil.saveTextureWithAlpha(alphaMaps[i], file);
+			savedAlphaMaps[i] = ImageUtil.loadTextureFile(file);
+		}
+		return savedAlphaMaps;
+	}
+}
@@ -31,7 +31,14 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import com.dreamwagon.terranova.fastnoise.NoiseLayer;
 import com.dreamwagon.terranova.settings.NoiseLayerSettings;
 import com.dreamwagon.terranova.ui.AbstractSettingsDialog;
 import com.dreamwagon.terranova.ui.Setting;
@@ -39,14 +46,17 @@ import com.dreamwagon.terranova.ui.SettingType;
 import com.dreamwagon.terranova.ui.SettingsDialogBuilder;
 import com.dreamwagon.terranova.ui.TerranovaUiManager;
 import com.dreamwagon.terranova.util.ImageUtil;
+import com.dreamwagon.terranova.util.ProgressMonitor;
 import com.jme3.texture.Texture;
 
 import io.tlf.jme.jfx.JavaFxUI;
+import javafx.concurrent.Task;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.Dialog;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
@@ -62,15 +72,47 @@ import javafx.stage.Window;
  */
 public class FastNoiseHeightmapGenerator extends AbstractSettingsDialog implements Generator<Texture>{
 
+	// Runs one generation at a time off the JavaFX thread, the noise tiles themselves go to the common fork/join pool
+	private static final ExecutorService GENERATION_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "heightmap-generator");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	// Progressive previews are queued separately so they never wait behind a full generation
+	private static final ExecutorService PREVIEW_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "heightmap-preview");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	// Coarse to fine resolutions of the progressive preview, the last pass is done at heightmapSize up to PREVIEW_MAX_RESOLUTION
+	private static final int[] PREVIEW_RESOLUTIONS = {128, 512};
+	
+	// Larger heightmaps are only generated at full resolution by Generate, a preview pass at 16385 would need gigabytes
+	private static final int PREVIEW_MAX_RESOLUTION = 1024;
+	
 	private List<NoiseLayerSettings> noiseLayers = new ArrayList<>();
     private Map<String, Dialog<Void>> noiseLayerSettingsDialogMap = new HashMap<String, Dialog<Void>>();
     
 	@Setting(displayName="Heightmap Size", settingType = SettingType.PREDEFINED_INTEGER_LIST, 
 			predefinedListValues = {"65", "129", "257", "513", "1025", "2049", "4097", "8193", "16385"})
 	public Integer heightmapSize = 513;
+	
+	@Setting(displayName="Progressive Preview", settingType = SettingType.BOOLEAN)
+	public Boolean progressivePreview = true;
 		
 	private ImageView heightmapPreview = new ImageView();
 	private Texture heightmapTexture = null;
+	private float[] heightValues = null;
+	
+	private ProgressBar generationProgressBar = new ProgressBar(0);
+	private Button genHeightmapButton;
+	private Button cancelGenerationButton;
+	private HeightmapTask generationTask = null;
+	
+	// Incremented for every preview request or generation, a preview pass or generation only shows its result if it is still current
+	private final AtomicInteger previewGeneration = new AtomicInteger();
 	
 	VBox layerListVBox;
 	
@@ -96,6 +138,7 @@ public class FastNoiseHeightmapGenerator extends AbstractSettingsDialog implemen
 	        public void handle(ActionEvent event) {
 	        	noiseLayers.add( new NoiseLayerSettings());
 	        	buildLayerView();
+	        	requestPreview();
 	        }
 	    });
 		Button resetNoiseLayerButton = new Button("Reset Noise Layers");
@@ -105,6 +148,7 @@ public class FastNoiseHeightmapGenerator extends AbstractSettingsDialog implemen
 	        	noiseLayers.clear();
 	        	noiseLayers.add( new NoiseLayerSettings());
 	        	buildLayerView();
+	        	requestPreview();
 	        }
 	    });
 		upperButtonHBox.getChildren().addAll(addNoiseLayerButton, resetNoiseLayerButton);
@@ -114,25 +158,35 @@ public class FastNoiseHeightmapGenerator extends AbstractSettingsDialog implemen
 	@Override
 	public void afterBuildSettings(Dialog<Void> parentDialog, Node node) {
 		VBox vBox = (VBox)node;
+		addSettingsChangeListener(() -> requestPreview());
 		layerListVBox = new VBox();
 		vBox.getChildren().add(layerListVBox);
 		buildLayerView();
 		
 		HBox buttonHbox = new HBox();
 		buttonHbox.setSpacing(10);
-		Button genHeightmapButton = new Button("Generate Height Map");
+		genHeightmapButton = new Button("Generate Height Map");
 		genHeightmapButton.setOnAction(new EventHandler<ActionEvent>() {
 	        @Override
 	        public void handle(ActionEvent event) {
 	        	if (noiseLayers.size() > 0) {
 		        	applySettings();
-		        	heightmapTexture= generate();
-		        	ImageUtil.refreshImageView(heightmapPreview, heightmapTexture, 128, 128);
+		        	startGeneration();
 	        	}
 	        	else {
 	        		//take warning
 	        	}
 	        }
+	    });
+		cancelGenerationButton = new Button("Cancel");
+		cancelGenerationButton.setDisable(true);
+		cancelGenerationButton.setOnAction(new EventHandler<ActionEvent>() {
+	        @Override
+	        public void handle(ActionEvent event) {
+	        	if (generationTask != null) {
+	        		generationTask.cancel();
+	        	}
+	        }
 	    });
 		Button saveHeightmapButton = new Button("Save");
 		saveHeightmapButton.setOnAction(new EventHandler<ActionEvent>() {
@@ -155,7 +209,8 @@ public class FastNoiseHeightmapGenerator extends AbstractSettingsDialog implemen
 			    }
 	        }
 	    });
-		buttonHbox.getChildren().addAll(genHeightmapButton, saveHeightmapButton);
+		buttonHbox.getChildren().addAll(genHeightmapButton, cancelGenerationButton, saveHeightmapButton);
+		vBox.getChildren().addAll(generationProgressBar);
 		vBox.getChildren().addAll(buttonHbox);
 	}
 
@@ -174,6 +229,7 @@ public class FastNoiseHeightmapGenerator extends AbstractSettingsDialog implemen
 		        	if (null == fastNoiseSettingsDialog){
 		        		SettingsDialogBuilder<NoiseLayerSettings> dialogBuilder = new SettingsDialogBuilder<NoiseLayerSettings>();
 		        		fastNoiseSettingsDialog = dialogBuilder.buildSettingDialog(nls, NoiseLayerSettings.class, 480, 660);
+		        		nls.addSettingsChangeListener(() -> requestPreview());
 		        		noiseLayerSettingsDialogMap.put(nls.getName(), fastNoiseSettingsDialog);
 		        	}
 		        	else{
@@ -196,22 +252,229 @@ public class FastNoiseHeightmapGenerator extends AbstractSettingsDialog implemen
 	}
 	@Override
 	public Texture generate() {
-		//Apply Dialog settings
-		for (NoiseLayerSettings nls : noiseLayers) {
-			nls.applySettings();
+		heightValues = generateHeights();
+		return ImageUtil.createGreyscaleTexture(heightValues, heightmapSize);
+	}
+	
+	/**
+	 * Starts generating the heightmap on the generation executor, cancelling any generation still running.
+	 * Settings are read here on the JavaFX thread, the preview is refreshed back on the JavaFX thread
+	 * once the task succeeds, unless a newer preview or generation was requested in the meantime.
+	 */
+	private void startGeneration() {
+		if (generationTask != null) {
+			generationTask.cancel();
 		}
-		Texture value = noiseLayers.get(0).generate().generateTexture(heightmapSize);
-		float layerWeight = noiseLayers.get(0).layerWeight;
-		for (int i=1; i< noiseLayers.size(); i++) {
-			if (i>1) {
-				layerWeight = 1;
+		
+		//Drop any preview still refining, its result would replace this one
+		int generation = previewGeneration.incrementAndGet();
+		
+		float[] weights = new float[noiseLayers.size()];
+		List<NoiseLayer> layers = buildNoiseLayers(weights);
+		HeightmapTask task = new HeightmapTask(layers, weights, heightmapSize);
+		
+		task.setOnSucceeded(event -> {
+			if (previewGeneration.get() != generation) {
+				return;
 			}
-			Texture next = noiseLayers.get(i).generate().generateTexture(heightmapSize);
-			float nextLayerWeight = noiseLayers.get(i).layerWeight;
-			value = ImageUtil.combineTextures( value, layerWeight, next, nextLayerWeight);
+			heightValues = task.heights;
+			heightmapTexture = task.getValue();
+			ImageUtil.refreshImageView(heightmapPreview, heightmapTexture, 128, 128);
+		});
+		task.setOnFailed(event -> {
+			Throwable e = task.getException();
+			e.printStackTrace();
+			TerranovaUiManager.showErrorMessage("Unable to generate heightmap: " + e.getMessage());
+		});
+		
+		generationProgressBar.progressProperty().bind(task.progressProperty());
+		genHeightmapButton.disableProperty().bind(task.runningProperty());
+		cancelGenerationButton.disableProperty().bind(task.runningProperty().not());
+		
+		generationTask = task;
+		GENERATION_EXECUTOR.submit(task);
+	}
+	
+	/**
+	 * Renders the preview coarse to fine when progressive preview is on: the same area is first sampled on a 
+	 * 128 * 128 grid, which takes milliseconds, then refined in the background up to heightmapSize, or 
+	 * PREVIEW_MAX_RESOLUTION for larger heightmaps, which are left to Generate. 
+	 * A newer request drops the refinements of older ones and cancels a running generation, so tuning a 
+	 * setting always shows the latest values. A pass at the full heightmapSize becomes the current heightmap, 
+	 * as if it had been generated.
+	 */
+	public void requestPreview() {
+		if (!progressivePreview || noiseLayers.isEmpty()) {
+			return;
 		}
+		applySettings();
 		
-		return value;
+		//A generation of the previous settings is outdated now
+		if (generationTask != null) {
+			generationTask.cancel();
+		}
+		
+		float[] weights = new float[noiseLayers.size()];
+		List<NoiseLayer> layers = buildNoiseLayers(weights);
+		int extent = heightmapSize;
+		int generation = previewGeneration.incrementAndGet();
+		
+		ProgressMonitor monitor = units -> {
+			if (previewGeneration.get() != generation) {
+				throw new CancellationException();
+			}
+		};
+		
+		PREVIEW_EXECUTOR.execute(() -> {
+			try {
+				for (int resolution : previewResolutions(extent)) {
+					float[] heights = generateHeights(layers, weights, resolution, extent, monitor);
+					Texture texture = ImageUtil.createGreyscaleTexture(heights, resolution);
+					
+					JavaFxUI.getInstance().runInJavaFxThread(() -> {
+						if (previewGeneration.get() == generation) {
+							ImageUtil.refreshImageView(heightmapPreview, texture, 128, 128);
+							if (resolution == extent) {
+								heightValues = heights;
+								heightmapTexture = texture;
+							}
+						}
+					});
+				}
+			} catch (CancellationException e) {
+				//Superseded by a newer request
+			}
+		});
+	}
+	
+	private static List<Integer> previewResolutions(int extent) {
+		int finalResolution = Math.min(extent, PREVIEW_MAX_RESOLUTION);
+		List<Integer> resolutions = new ArrayList<>();
+		for (int resolution : PREVIEW_RESOLUTIONS) {
+			if (resolution < finalResolution) {
+				resolutions.add(resolution);
+			}
+		}
+		resolutions.add(finalResolution);
+		return resolutions;
+	}
+	
+	/**
+	 * Evaluates every noise layer, weighted by its layer weight, into a single float buffer and
+	 * normalizes the sum to [0, 1] once at the end. Only two full size buffers are allocated
+	 * whatever the number of layers: the sum and a scratch buffer for the layer being evaluated.
+	 * 
+	 * @return heights in [0, 1], index = y * heightmapSize + x
+	 */
+	public float[] generateHeights() {
+		float[] weights = new float[noiseLayers.size()];
+		List<NoiseLayer> layers = buildNoiseLayers(weights);
+		return generateHeights(layers, weights, heightmapSize, ProgressMonitor.NONE);
+	}
+	
+	/**
+	 * Applies the dialog settings of every noise layer and builds the layers.
+	 * 
+	 * @param weights filled with the weight of each layer
+	 * @return the noise layers, in the same order as the weights
+	 */
+	private List<NoiseLayer> buildNoiseLayers(float[] weights) {
+		List<NoiseLayer> layers = new ArrayList<>();
+		for (int i = 0; i < noiseLayers.size(); i++) {
+			NoiseLayerSettings nls = noiseLayers.get(i);
+			nls.applySettings();
+			layers.add(nls.generate());
+			weights[i] = nls.layerWeight;
+		}
+		return layers;
+	}
+	
+	/**
+	 * 
+	 * @param layers noise layers to sum
+	 * @param weights weight of each layer
+	 * @param size width and height of the heightmap
+	 * @param monitor receives one unit of work per noise row, may cancel by throwing a CancellationException
+	 * @return heights in [0, 1], index = y * size + x
+	 */
+	private static float[] generateHeights(List<NoiseLayer> layers, float[] weights, int size, ProgressMonitor monitor) {
+		return generateHeights(layers, weights, size, size, monitor);
+	}
+	
+	/**
+	 * Same as {@link #generateHeights(List, float[], int, ProgressMonitor)}, sampling a size * size grid over the 
+	 * area of an extent * extent heightmap.
+	 */
+	private static float[] generateHeights(List<NoiseLayer> layers, float[] weights, int size, int extent, ProgressMonitor monitor) {
+		float[] heights = new float[size * size];
+		float[] scratch = new float[size * size];
+		
+		for (int i = 0; i < layers.size(); i++) {
+			layers.get(i).accumulateNoise(size, extent, weights[i], scratch, heights, ForkJoinPool.commonPool(), monitor);
+		}
+		
+		normalize(heights);
+		return heights;
+	}
+	
+	/**
+	 * Rescales values to [0, 1] in place.
+	 * 
+	 * @param values
+	 */
+	private static void normalize(float[] values) {
+		float min = Float.MAX_VALUE;
+		float max = -Float.MAX_VALUE;
+		for (float value : values) {
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+		if (max - min == 0) {
+			return;
+		}
+		float scale = 1 / (max - min);
+		for (int i = 0; i < values.length; i++) {
+			values[i] = (values[i] - min) * scale;
+		}
+	}
+	
+	/**
+	 * @return the heights of the last generated heightmap, in [0, 1], or null if none was generated yet
+	 */
+	public float[] getHeightValues() {
+		return heightValues;
+	}
+	
+	/**
+	 * Generates the heights and their preview texture off the JavaFX thread. Progress is counted in noise rows
+	 * over all layers; cancelling stops the generation at the next completed tile.
+	 */
+	private static class HeightmapTask extends Task<Texture> {
+		
+		private final List<NoiseLayer> layers;
+		private final float[] weights;
+		private final int size;
+		private final AtomicLong rowsDone = new AtomicLong();
+		
+		private float[] heights;
+		
+		HeightmapTask(List<NoiseLayer> layers, float[] weights, int size) {
+			this.layers = layers;
+			this.weights = weights;
+			this.size = size;
+		}
+		
+		@Override
+		protected Texture call() {
+			long totalRows = (long) layers.size() * size;
+			heights = generateHeights(layers, weights, size, units -> {
+				if (isCancelled()) {
+					throw new CancellationException();
+				}
+				updateProgress(rowsDone.addAndGet(units), totalRows);
+			});
+			return ImageUtil.createGreyscaleTexture(heights, size);
+		}
 	}
 
 }
@@ -84,6 +84,7 @@ public class HillHeightMapTerrainGenerator extends AbstractSettingsDialog implem
         		TerrainQuad terrainQuad = generate();
         		TerranovaApp.INSTANCE.terrainManager.replaceTerrain(terrainQuad);
         		TerranovaApp.INSTANCE.terrainManager.updateTerrainMaterials(terrainSettings);
+        		TerranovaApp.INSTANCE.terrainManager.updateTerrainLod(terrainSettings);
 	        	}
 	     	});
 		
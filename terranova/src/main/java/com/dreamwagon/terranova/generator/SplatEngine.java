@@ -0,0 +1,168 @@
+/**
+ * Copyright 2020 DREAMWAGON LLC
+ *
+ *	Redistribution and use in source and binary forms, with or without modification, are permitted 
+ *  provided that the following conditions are met:
+ *
+ *		1. Redistributions of source code must retain the above copyright notice, this list of 
+ *		   conditions and the following disclaimer.
+ *
+ *   	2. Redistributions in binary form must reproduce the above copyright notice, this list of 
+ *   	   conditions and the following disclaimer in the documentation and/or other materials 
+ *         provided with the distribution.
+ *
+ *	   	3. Neither the name of the copyright holder nor the names of its contributors may be used to 
+ *		   endorse or promote products derived from this software without specific prior written permission.
+ *
+ *		THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+ *		IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ *		FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ *		FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT 
+ *		LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ *		HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT 
+ *		(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ *		OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.dreamwagon.terranova.generator;
+
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
+
+import com.dreamwagon.terranova.util.GridSampler;
+import com.dreamwagon.terranova.util.TerrainGradientField;
+
+/**
+ * Evaluates up to 12 splat layer rules per texel and writes the weights to the three RGBA alpha 
+ * maps of the terrain lighting material in a single pass over the heightmap. Layer i is written 
+ * to component i % 4 (RGBA) of alpha map i / 4, so the layers line up with DiffuseMap to 
+ * DiffuseMap_11 and the maps with AlphaMap, AlphaMap_1 and AlphaMap_2.
+ * 
+ * @author J. Demarco
+ *
+ */
+public class SplatEngine {
+
+	public static final int MAX_LAYERS = 12;
+	
+	public static final int LAYERS_PER_MAP = 4;
+	
+	public static final int ALPHA_MAPS = MAX_LAYERS / LAYERS_PER_MAP;
+	
+	/**
+	 * Splat resolution setting value for maps at the resolution of the heightmap
+	 */
+	public static final String HEIGHTMAP_RESOLUTION = "Heightmap";
+	
+	/**
+	 * Alpha map rows per parallel task; the slope and curvature rows a task computes are reused 
+	 * by the next alpha map row when it lies between the same heightmap rows
+	 */
+	private static final int BAND_ROWS = 32;
+	
+	/**
+	 * 
+	 * @param resolution HEIGHTMAP_RESOLUTION or a size in texels
+	 * @param heightmapSize
+	 * @return width and height of the splat map
+	 */
+	public static int resolveSize(String resolution, int heightmapSize) {
+		return HEIGHTMAP_RESOLUTION.equals(resolution) ? heightmapSize : Integer.parseInt(resolution);
+	}
+	
+	/**
+	 * Same as {@link #fill(TerrainGradientField, SplatRule[], ByteBuffer[], int)} at the resolution of the heightmap
+	 */
+	public static void fill(TerrainGradientField gradientField, SplatRule[] rules, ByteBuffer[] alphaMaps) {
+		fill(gradientField, rules, alphaMaps, gradientField.getSize());
+	}
+	
+	/**
+	 * Writes the alpha maps of a heightmap as RGBA8 bytes. Heightmap row k becomes image row 
+	 * size - 1 - k, as in the @SplatMapGenerator. Bands of rows are computed in parallel; the height, 
+	 * slope and curvature of a row of texels are sampled bilinearly from the gradient field, so the 
+	 * maps can be smaller or larger than the heightmap, and all rules are evaluated on them. Slopes 
+	 * and curvatures are computed only for the two heightmap rows around each alpha map row, so a 
+	 * lazy field never builds its full arrays. The weights 
+	 * are normalized per texel so they add up to 255 (give or take rounding); a texel no rule 
+	 * covers goes fully to layer 0.
+	 * 
+	 * @param gradientField heights, slopes and curvatures of the heightmap
+	 * @param rules up to MAX_LAYERS rules, null for unused layers
+	 * @param alphaMaps ALPHA_MAPS buffers of at least size * size * 4 bytes
+	 * @param size width and height of the alpha maps
+	 */
+	public static void fill(TerrainGradientField gradientField, SplatRule[] rules, ByteBuffer[] alphaMaps, int size) {
+		if (alphaMaps.length < ALPHA_MAPS) {
+			throw new IllegalArgumentException(ALPHA_MAPS + " alpha maps are needed, got " + alphaMaps.length);
+		}
+		GridSampler sampler = new GridSampler(gradientField.getSize(), size);
+		int layers = Math.min(rules.length, MAX_LAYERS);
+		int sourceSize = gradientField.getSize();
+		int bands = (size + BAND_ROWS - 1) / BAND_ROWS;
+		
+		IntStream.range(0, bands).parallel().forEach(band -> {
+			float[] weights = new float[MAX_LAYERS];
+			float[] heights = new float[size];
+			float[] slopes = new float[size];
+			float[] curvatures = new float[size];
+			float[][] sourceSlopes = { new float[sourceSize], new float[sourceSize] };
+			float[][] sourceCurvatures = { new float[sourceSize], new float[sourceSize] };
+			int[] sourceRows = { -1, -1 };
+			
+			for (int row = band * BAND_ROWS; row < Math.min(size, (band + 1) * BAND_ROWS); row++) {
+				int y0 = sampler.getSourceRow(row);
+				int y1 = Math.min(y0 + 1, sourceSize - 1);
+				if (sourceRows[1] == y0 && sourceRows[0] != y0) {
+					swap(sourceSlopes);
+					swap(sourceCurvatures);
+					sourceRows[0] = y0;
+					sourceRows[1] = -1;
+				}
+				if (sourceRows[0] != y0) {
+					gradientField.computeRow(y0, sourceSlopes[0], sourceCurvatures[0]);
+					sourceRows[0] = y0;
+				}
+				if (sourceRows[1] != y1) {
+					gradientField.computeRow(y1, sourceSlopes[1], sourceCurvatures[1]);
+					sourceRows[1] = y1;
+				}
+				sampler.sampleRow(gradientField.getHeights(), row, heights);
+				sampler.sampleRow(sourceSlopes[0], sourceSlopes[1], row, slopes);
+				sampler.sampleRow(sourceCurvatures[0], sourceCurvatures[1], row, curvatures);
+				fillRow(rules, layers, alphaMaps, size, row, heights, slopes, curvatures, weights);
+			}
+		});
+	}
+	
+	private static void fillRow(SplatRule[] rules, int layers, ByteBuffer[] alphaMaps, int size, int row, 
+			float[] heights, float[] slopes, float[] curvatures, float[] weights) {
+		int out = (size - 1 - row) * size * 4;
+		for (int x = 0; x < size; x++, out += 4) {
+			float height = heights[x];
+			float slope = slopes[x];
+			float curvature = curvatures[x];
+			
+			float sum = 0;
+			for (int layer = 0; layer < layers; layer++) {
+				float weight = rules[layer] == null ? 0 : rules[layer].weight(height, slope, curvature);
+				weights[layer] = weight;
+				sum += weight;
+			}
+			if (sum <= 0) {
+				weights[0] = 1;
+				sum = 1;
+			}
+			
+			float scale = 255 / sum;
+			for (int layer = 0; layer < MAX_LAYERS; layer++) {
+				alphaMaps[layer / LAYERS_PER_MAP].put(out + layer % LAYERS_PER_MAP, (byte) Math.round(weights[layer] * scale));
+			}
+		}
+	}
+	
+	private static void swap(float[][] rows) {
+		float[] first = rows[0];
+		rows[0] = rows[1];
+		rows[1] = first;
+	}
+}
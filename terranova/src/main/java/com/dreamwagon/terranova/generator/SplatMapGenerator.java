@@ -1,6 +1,8 @@
 package com.dreamwagon.terranova.generator;
 
 import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
 
 import com.dreamwagon.terranova.TerranovaApp;
 import com.dreamwagon.terranova.fastnoise.FastNoise;
@@ -10,18 +12,17 @@ import com.dreamwagon.terranova.ui.AbstractSettingsDialog;
 import com.dreamwagon.terranova.ui.Setting;
 import com.dreamwagon.terranova.ui.SettingType;
 import com.dreamwagon.terranova.ui.TerranovaUiManager;
+import com.dreamwagon.terranova.util.GridSampler;
 import com.dreamwagon.terranova.util.ImageUtil;
-import com.dreamwagon.terranova.util.MathUtil;
-import com.jme3.math.ColorRGBA;
+import com.dreamwagon.terranova.util.Rangef;
+import com.dreamwagon.terranova.util.TerrainGradientField;
 import com.jme3.math.FastMath;
-import com.jme3.math.Vector3f;
 import com.jme3.terrain.geomipmap.TerrainQuad;
 import com.jme3.texture.Image;
 import com.jme3.texture.Image.Format;
 import com.jme3.texture.Texture;
 import com.jme3.texture.Texture2D;
 import com.jme3.texture.image.ColorSpace;
-import com.jme3.texture.image.ImageRaster;
 import com.jme3.util.BufferUtils;
 
 import io.tlf.jme.jfx.JavaFxUI;
@@ -37,13 +38,17 @@ import javafx.stage.FileChooser;
 import javafx.stage.Window;
 
 /**
- * Generates an alpha (Splat) map based on terrain heights or slopes.
+ * Generates an alpha (Splat) map based on terrain heights, slopes and curvature.
  * 
  * @author J. Demarco
  *
  */
 public class SplatMapGenerator extends AbstractSettingsDialog implements Generator<Texture>{
 
+	@Setting(displayName="Splat Map Size", settingType = SettingType.PREDEFINED_ENUMERATION, 
+			predefinedListValues = {SplatEngine.HEIGHTMAP_RESOLUTION, "256", "512", "1024", "2048", "4096"})
+	public String splatResolution = SplatEngine.HEIGHTMAP_RESOLUTION;
+	
 	@Setting(displayName="Red Threshold", settingType = SettingType.RANGED_FLOAT, floatRangeMin=.0f, floatRangeMax=512)
 	public Float redThreshold = 100f;
 	
@@ -80,6 +85,33 @@ public class SplatMapGenerator extends AbstractSettingsDialog implements Generat
 	@Setting(displayName="B Noise Depth", settingType = SettingType.RANGED_FLOAT, floatRangeMin=0f, floatRangeMax=3)
 	public Float bNoiseDepth = .25f;
 	
+	@Setting(displayName="Use Slope/Curvature Rules", settingType = SettingType.BOOLEAN)
+	public Boolean useSlopeCurvatureRules = Boolean.FALSE;
+	
+	@Setting(displayName="Red Slope Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = 0, floatRangeMax = 90)
+	public Rangef redSlopeRange = new Rangef(0, 90);
+	
+	@Setting(displayName="Green Slope Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = 0, floatRangeMax = 90)
+	public Rangef greenSlopeRange = new Rangef(0, 90);
+	
+	@Setting(displayName="Blue Slope Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = 0, floatRangeMax = 90)
+	public Rangef blueSlopeRange = new Rangef(0, 90);
+	
+	@Setting(displayName="Slope Blend Distance", settingType = SettingType.FLOAT)
+	public Float slopeBlendDistance = 5f;
+	
+	@Setting(displayName="Red Curvature Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = -50, floatRangeMax = 50)
+	public Rangef redCurvatureRange = new Rangef(-50, 50);
+	
+	@Setting(displayName="Green Curvature Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = -50, floatRangeMax = 50)
+	public Rangef greenCurvatureRange = new Rangef(-50, 50);
+	
+	@Setting(displayName="Blue Curvature Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = -50, floatRangeMax = 50)
+	public Rangef blueCurvatureRange = new Rangef(-50, 50);
+	
+	@Setting(displayName="Curvature Blend Distance", settingType = SettingType.FLOAT)
+	public Float curvatureBlendDistance = 1f;
+	
 	private ImageView splatPreview = new ImageView();
 	private Texture splatTexture = null;
 	
@@ -151,16 +183,64 @@ public class SplatMapGenerator extends AbstractSettingsDialog implements Generat
 		vBox.getChildren().addAll(buttonHbox);
 	}
 	
+	/**
+	 * Builds the splat map of the current terrain. With slope/curvature rules the heights and the 
+	 * gradient field cached by the @TerrainManager are used, so the heightmap is only read again 
+	 * once the terrain changes.
+	 */
 	@Override
 	public Texture generate() {
+		if (useSlopeCurvatureRules) {
+			TerrainGradientField gradientField = TerranovaApp.INSTANCE.terrainManager.getGradientField();
+			return generate(gradientField.getHeights(), gradientField.getSize(), gradientField);
+		}
 		TerrainQuad terrainQuad = TerranovaApp.INSTANCE.terrainManager.getTerrainQuad();
     	float[] heightmaps  =  terrainQuad.getHeightMap();
-    	int size = (int)Math.sqrt(heightmaps.length);
     	
-		Image splatImage = new Image(Format.BGR8, size, size, BufferUtils.createByteBuffer(size * size * 4), null, ColorSpace.Linear);
-		ImageRaster splatImageRaster = ImageRaster.create(splatImage);
-		int counter = 0;
+    	return generate(heightmaps, (int)Math.sqrt(heightmaps.length), null);
+	}
+	
+	/**
+	 * Builds the splat map of a heightmap. When slope/curvature rules are used the gradient 
+	 * field is computed from the heights, with a scale of 1.
+	 * 
+	 * @param heightmaps heights, index = row * size + x
+	 * @param size width and height of the heightmap
+	 * @return new Texture
+	 */
+	public Texture generate(float[] heightmaps, int size) {
+		TerrainGradientField gradientField = useSlopeCurvatureRules 
+				? TerrainGradientField.compute(heightmaps, size, 1, 1) : null;
+		return generate(heightmaps, size, gradientField);
+	}
+	
+	/**
+	 * Builds the splat map of a heightmap, at the splat map size. Heightmap row k becomes image 
+	 * row size - 1 - k (scaled to the splat map size). Rows are computed in parallel and written as 
+	 * BGR8 bytes straight into the image buffer; the heights (and slopes and curvatures) of a row 
+	 * are sampled bilinearly from the heightmap, so a small map of a large terrain only touches the 
+	 * heights it needs and no buffer at heightmap resolution is allocated. The band limits and 
+	 * blend factors are worked out once, and noise is sampled a row at a time from immutable 
+	 * snapshots of the noise layers, at the same terrain positions whatever the splat map size.
+	 * 
+	 * With slope/curvature rules each channel's height weight is multiplied by how well the 
+	 * texel's slope and curvature fit the channel's ranges: 1 inside, fading to 0 over the blend 
+	 * distance outside. A texel that fits no channel is left black.
+	 * 
+	 * @param heightmaps heights, index = row * heightmapSize + x
+	 * @param heightmapSize width and height of the heightmap
+	 * @param gradientField slope and curvature of the heightmap, only needed with slope/curvature rules
+	 * @return new Texture
+	 */
+	public Texture generate(float[] heightmaps, int heightmapSize, TerrainGradientField gradientField) {
+		int size = SplatEngine.resolveSize(splatResolution, heightmapSize);
+		GridSampler sampler = new GridSampler(heightmapSize, size);
+		ByteBuffer buffer = BufferUtils.createByteBuffer(size * size * 3);
+		Image splatImage = new Image(Format.BGR8, size, size, buffer, null, ColorSpace.Linear);
+		
 		
+		float redThreshold = this.redThreshold;
+		float greenThreshold = this.greenThreshold;
 		float rgRange = redGreenBlendDistance/2;
 		float gbRange = greenBlueBlendDistance/2;
 		
@@ -170,68 +250,118 @@ public class SplatMapGenerator extends AbstractSettingsDialog implements Generat
 		float greenLimit = greenThreshold + gbRange;
 		float greenBlueLimit = greenThreshold - rgRange;
 		
-		for (int y = size -1; y >= 0; y--) {
-            for (int x = 0; x < size; x++) {
-            	
-            	ColorRGBA colorInterp = new ColorRGBA(); 	
-            	float height = heightmaps[counter];
-            	
-            	if (height >= redLimit)
-            	{
-            		colorInterp = ColorRGBA.Red.clone();
-            	}
-            	//Simple interpolation
-            	else if (height < redLimit && height >= redThreshold)
-            	{
-            		float green = 1-MathUtil.normalize(height, redThreshold, redLimit);
-            		colorInterp = new ColorRGBA( 1, green, 0, 1);
-            	}
-            	else if (height < redThreshold && height >= redGreenLimit )
-            	{
-            		float red = MathUtil.normalize(height, redGreenLimit, redThreshold);
-            		colorInterp = new ColorRGBA( red, 1, 0, 1);
-            	}
-            	else if (height < redGreenLimit && height >= greenLimit)
-            	{
-            		colorInterp = ColorRGBA.Green.clone();
-            	}
-            	else if (height < greenLimit && height >= greenThreshold)
-            	{
-            		float blue = 1-MathUtil.normalize(height, greenThreshold, greenLimit);
-            		colorInterp = new ColorRGBA( 0, 1, blue, 1);
-            	}
-            	else if (height < greenThreshold && height >= greenBlueLimit )
-            	{
-            		float green = MathUtil.normalize(height, greenBlueLimit, greenThreshold);
-            		colorInterp = new ColorRGBA( 0, green, 1, 1);
-            	}
-            	else 
-            	{
-            		colorInterp = ColorRGBA.Blue.clone();
-            	}
-            	
-            	if (useNoise) {
-            		Vector3f f = new Vector3f(x * rNoiseScale, y * rNoiseScale, 0.5f);
-            		float noiseR = FastMath.clamp(noiseLayerR.getPrimaryNoise().getNoise(f.x, f.y, f.z) * rNoiseDepth, -1, 1);
-            		float noiseG = FastMath.clamp(noiseLayerG.getPrimaryNoise().getNoise(f.x, f.y, f.z) * gNoiseDepth, -1, 1);
-            		float noiseB = FastMath.clamp(noiseLayerB.getPrimaryNoise().getNoise(f.x, f.y, f.z) * bNoiseDepth, -1, 1);
-            		
-            		noiseR = FastMath.abs(noiseR);
-            		noiseG = FastMath.abs(noiseG);
-            		noiseB = FastMath.abs(noiseB);
-            		colorInterp.r += noiseR;
-            		colorInterp.g += noiseG;
-            		colorInterp.b += noiseB;
-            	}
-            	//Finally set the pixel
-            	splatImageRaster.setPixel(x, y, colorInterp);
-            	
-            	counter++;
-            }
-        }
+		// 1 / (max - min) of each blend band, 0 for empty bands as in MathUtil.normalize
+		float redBlendScale = inverseRange(redThreshold, redLimit);
+		float redGreenBlendScale = inverseRange(redGreenLimit, redThreshold);
+		float greenBlendScale = inverseRange(greenThreshold, greenLimit);
+		float greenBlueBlendScale = inverseRange(greenBlueLimit, greenThreshold);
+		
+		boolean noise = useNoise;
+		float noiseScale = rNoiseScale;
+		// noise is sampled in heightmap texels
+		float noiseStep = noiseScale * sampler.getRatio();
+		float rDepth = rNoiseDepth;
+		float gDepth = gNoiseDepth;
+		float bDepth = bNoiseDepth;
+		FastNoise noiseR = noise ? new FastNoise(noiseLayerR.getPrimaryNoise().toConfig()) : null;
+		FastNoise noiseG = noise ? new FastNoise(noiseLayerG.getPrimaryNoise().toConfig()) : null;
+		FastNoise noiseB = noise ? new FastNoise(noiseLayerB.getPrimaryNoise().toConfig()) : null;
+		
+		boolean rules = useSlopeCurvatureRules;
+		// min and max of the red, green and blue ranges
+		float[] slopeLimits = {redSlopeRange.getMin(), redSlopeRange.getMax(), greenSlopeRange.getMin(), 
+				greenSlopeRange.getMax(), blueSlopeRange.getMin(), blueSlopeRange.getMax()};
+		float[] curvatureLimits = {redCurvatureRange.getMin(), redCurvatureRange.getMax(), greenCurvatureRange.getMin(), 
+				greenCurvatureRange.getMax(), blueCurvatureRange.getMin(), blueCurvatureRange.getMax()};
+		float slopeBlend = slopeBlendDistance;
+		float curvatureBlend = curvatureBlendDistance;
+		
+		IntStream.range(0, size).parallel().forEach(row -> {
+			int y = size - 1 - row;
+			float[] rowNoiseR = null;
+			float[] rowNoiseG = null;
+			float[] rowNoiseB = null;
+			if (noise) {
+				float noiseY = y * sampler.getRatio() * noiseScale;
+				rowNoiseR = new float[size];
+				rowNoiseG = new float[size];
+				rowNoiseB = new float[size];
+				noiseR.fillGrid3D(rowNoiseR, 0, noiseY, 0.5f, noiseStep, 0, 0, size, 1, 1);
+				noiseG.fillGrid3D(rowNoiseG, 0, noiseY, 0.5f, noiseStep, 0, 0, size, 1, 1);
+				noiseB.fillGrid3D(rowNoiseB, 0, noiseY, 0.5f, noiseStep, 0, 0, size, 1, 1);
+			}
+			float[] rowHeights = new float[size];
+			sampler.sampleRow(heightmaps, row, rowHeights);
+			float[] rowSlopes = null;
+			float[] rowCurvatures = null;
+			if (rules) {
+				rowSlopes = new float[size];
+				rowCurvatures = new float[size];
+				sampler.sampleRow(gradientField.getSlopes(), row, rowSlopes);
+				sampler.sampleRow(gradientField.getCurvatures(), row, rowCurvatures);
+			}
+			
+			int out = y * size * 3;
+			for (int x = 0; x < size; x++, out += 3) {
+				float height = rowHeights[x];
+				float r, g, b;
+				
+				if (height >= redLimit) {
+					r = 1; g = 0; b = 0;
+				}
+				//Simple interpolation
+				else if (height < redLimit && height >= redThreshold) {
+					r = 1; g = 1 - (height - redThreshold) * redBlendScale; b = 0;
+				}
+				else if (height < redThreshold && height >= redGreenLimit) {
+					r = (height - redGreenLimit) * redGreenBlendScale; g = 1; b = 0;
+				}
+				else if (height < redGreenLimit && height >= greenLimit) {
+					r = 0; g = 1; b = 0;
+				}
+				else if (height < greenLimit && height >= greenThreshold) {
+					r = 0; g = 1; b = 1 - (height - greenThreshold) * greenBlendScale;
+				}
+				else if (height < greenThreshold && height >= greenBlueLimit) {
+					r = 0; g = (height - greenBlueLimit) * greenBlueBlendScale; b = 1;
+				}
+				else {
+					r = 0; g = 0; b = 1;
+				}
+				
+				if (rules) {
+					float slope = rowSlopes[x];
+					float curvature = rowCurvatures[x];
+					r *= SplatRule.rangeWeight(slope, slopeLimits[0], slopeLimits[1], slopeBlend) 
+							* SplatRule.rangeWeight(curvature, curvatureLimits[0], curvatureLimits[1], curvatureBlend);
+					g *= SplatRule.rangeWeight(slope, slopeLimits[2], slopeLimits[3], slopeBlend) 
+							* SplatRule.rangeWeight(curvature, curvatureLimits[2], curvatureLimits[3], curvatureBlend);
+					b *= SplatRule.rangeWeight(slope, slopeLimits[4], slopeLimits[5], slopeBlend) 
+							* SplatRule.rangeWeight(curvature, curvatureLimits[4], curvatureLimits[5], curvatureBlend);
+				}
+				
+				if (noise) {
+					r += FastMath.abs(FastMath.clamp(rowNoiseR[x] * rDepth, -1, 1));
+					g += FastMath.abs(FastMath.clamp(rowNoiseG[x] * gDepth, -1, 1));
+					b += FastMath.abs(FastMath.clamp(rowNoiseB[x] * bDepth, -1, 1));
+				}
+				
+				buffer.put(out, toByte(b));
+				buffer.put(out + 1, toByte(g));
+				buffer.put(out + 2, toByte(r));
+			}
+		});
 
 		return new Texture2D(splatImage);
 	}
+	
+	private static float inverseRange(float min, float max) {
+		return max - min == 0 ? 0 : 1 / (max - min);
+	}
+	
+	private static byte toByte(float value) {
+		return (byte) Math.round(FastMath.saturate(value) * 255);
+	}
 
 	@Override
 	public String getName() {
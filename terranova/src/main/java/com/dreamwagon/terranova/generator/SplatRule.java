@@ -0,0 +1,100 @@
+/**
+ * Copyright 2020 DREAMWAGON LLC
+ *
+ *	Redistribution and use in source and binary forms, with or without modification, are permitted 
+ *  provided that the following conditions are met:
+ *
+ *		1. Redistributions of source code must retain the above copyright notice, this list of 
+ *		   conditions and the following disclaimer.
+ *
+ *   	2. Redistributions in binary form must reproduce the above copyright notice, this list of 
+ *   	   conditions and the following disclaimer in the documentation and/or other materials 
+ *         provided with the distribution.
+ *
+ *	   	3. Neither the name of the copyright holder nor the names of its contributors may be used to 
+ *		   endorse or promote products derived from this software without specific prior written permission.
+ *
+ *		THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+ *		IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ *		FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ *		FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT 
+ *		LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ *		HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT 
+ *		(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ *		OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.dreamwagon.terranova.generator;
+
+import com.dreamwagon.terranova.util.Rangef;
+
+/**
+ * Immutable rule of one splat layer: the ranges of height, slope and curvature the layer covers, 
+ * each with a blend distance over which the layer fades out beyond the range, and a weight.
+ * Rules are snapshots of the layer settings, so a generation pass can evaluate them from 
+ * several threads while the settings are being edited.
+ * 
+ * @author J. Demarco
+ *
+ */
+public class SplatRule {
+
+	private final float weight;
+	private final float minHeight;
+	private final float maxHeight;
+	private final float heightBlend;
+	private final float minSlope;
+	private final float maxSlope;
+	private final float slopeBlend;
+	private final float minCurvature;
+	private final float maxCurvature;
+	private final float curvatureBlend;
+	
+	/**
+	 * 
+	 * @param weight weight of the layer inside all of its ranges
+	 * @param height
+	 * @param heightBlend
+	 * @param slope in degrees
+	 * @param slopeBlend in degrees
+	 * @param curvature see @TerrainGradientField
+	 * @param curvatureBlend
+	 */
+	public SplatRule(float weight, Rangef height, float heightBlend, Rangef slope, float slopeBlend, 
+			Rangef curvature, float curvatureBlend) {
+		this.weight = weight;
+		this.minHeight = height.getMin();
+		this.maxHeight = height.getMax();
+		this.heightBlend = heightBlend;
+		this.minSlope = slope.getMin();
+		this.maxSlope = slope.getMax();
+		this.slopeBlend = slopeBlend;
+		this.minCurvature = curvature.getMin();
+		this.maxCurvature = curvature.getMax();
+		this.curvatureBlend = curvatureBlend;
+	}
+	
+	/**
+	 * 
+	 * @param height
+	 * @param slope
+	 * @param curvature
+	 * @return unnormalized weight of the layer at a texel, 0 if the texel is outside the rule
+	 */
+	public float weight(float height, float slope, float curvature) {
+		return weight 
+				* rangeWeight(height, minHeight, maxHeight, heightBlend)
+				* rangeWeight(slope, minSlope, maxSlope, slopeBlend)
+				* rangeWeight(curvature, minCurvature, maxCurvature, curvatureBlend);
+	}
+	
+	/**
+	 * @return 1 inside [min, max], falling linearly to 0 at blend outside it
+	 */
+	public static float rangeWeight(float value, float min, float max, float blend) {
+		if (value >= min && value <= max) {
+			return 1;
+		}
+		float distance = value < min ? min - value : value - max;
+		return blend <= 0 ? 0 : Math.max(0, 1 - distance / blend);
+	}
+}
@@ -25,9 +25,11 @@
  */
 package com.dreamwagon.terranova.io;
 
+import java.io.File;
 import java.util.Map.Entry;
 
 import com.dreamwagon.terranova.TerranovaApp;
+import com.dreamwagon.terranova.TerranovaBaseAssetManager;
 import com.dreamwagon.terranova.model.TerrainTexture;
 import com.dreamwagon.terranova.model.ToggleTexture;
 import com.dreamwagon.terranova.settings.JMETerrainSettings;
@@ -86,6 +88,7 @@ public class TerranovaProject {
     public static class ProjectTerrainSettings {
     	
     	public String terrainHeightmapTexurePath;
+    	public String terrainHeightmapRawPath;
     	public String terrainAlphaMapTexure1Path;
     	public ProjectTerrainTexture terrainAlphaMapTexure2;
     	public ProjectTerrainTexture terrainAlphaMapTexure3;
@@ -98,6 +101,8 @@ public class TerranovaProject {
     	public Boolean smooth = Boolean.FALSE;
     	public Float smoothAmount = 1f;
     	public Integer smoothRadius = 1;
+    	public Boolean lodEnabled = Boolean.TRUE;
+    	public Float lodMultiplier = 2.7f;
     }
     
     public static class ProjectTerrainTexture {
@@ -138,7 +143,13 @@ public class TerranovaProject {
 		ProjectTerrainSettings terrainSettingsToSave = new ProjectTerrainSettings();
 		
 		terrainSettingsToSave.terrainHeightmapTexurePath = terrainSettings.terrainHeightmapTexure.getKey().getName();
-		terrainSettingsToSave.terrainAlphaMapTexure1Path = terrainSettings.terrainAlphaMapTexure1.getKey().getName();
+		if (null != terrainSettings.terrainHeightmapRawFile) {
+			terrainSettingsToSave.terrainHeightmapRawPath = terrainSettings.terrainHeightmapRawFile.getAbsolutePath();
+		}
+		//Alpha maps that could not be saved as PNGs have no asset key
+		if (null != terrainSettings.terrainAlphaMapTexure1.getKey()) {
+			terrainSettingsToSave.terrainAlphaMapTexure1Path = terrainSettings.terrainAlphaMapTexure1.getKey().getName();
+		}
 		terrainSettingsToSave.terrainAlphaMapTexure2 = copyToggleTexture(terrainSettings.terrainAlphaMapTexure2);
 		terrainSettingsToSave.terrainAlphaMapTexure3 = copyToggleTexture(terrainSettings.terrainAlphaMapTexure3);
     	
@@ -149,6 +160,8 @@ public class TerranovaProject {
 		terrainSettingsToSave.smoothAmount = terrainSettings.smoothAmount;
 		terrainSettingsToSave.smoothRadius = terrainSettings.smoothRadius;
 		terrainSettingsToSave.terrainMaterial = terrainSettings.terrainMaterial;
+		terrainSettingsToSave.lodEnabled = terrainSettings.lodEnabled;
+		terrainSettingsToSave.lodMultiplier = terrainSettings.lodMultiplier;
 		return terrainSettingsToSave;
 	}
 	
@@ -156,9 +169,12 @@ public class TerranovaProject {
 	{
 		AssetManager assetManager = TerranovaApp.INSTANCE.getAssetManager();
 		terrainSettings.terrainHeightmapTexure = assetManager.loadTexture(pTerrainSettings.terrainHeightmapTexurePath);
-		terrainSettings.terrainAlphaMapTexure1 = assetManager.loadTexture(pTerrainSettings.terrainAlphaMapTexure1Path);
-    	//public ProjectTerrainTexture terrainAlphaMapTexure2;
-    	//public ProjectTerrainTexture terrainAlphaMapTexure3;
+		terrainSettings.terrainHeightmapRawFile = null == pTerrainSettings.terrainHeightmapRawPath 
+				? null : new File(pTerrainSettings.terrainHeightmapRawPath);
+		terrainSettings.terrainAlphaMapTexure1 = null == pTerrainSettings.terrainAlphaMapTexure1Path 
+				? TerranovaBaseAssetManager.DEFAULT_TERRAIN_ALPHAMAP : assetManager.loadTexture(pTerrainSettings.terrainAlphaMapTexure1Path);
+		terrainSettings.terrainAlphaMapTexure2 = buildToggleTexture(pTerrainSettings.terrainAlphaMapTexure2);
+		terrainSettings.terrainAlphaMapTexure3 = buildToggleTexture(pTerrainSettings.terrainAlphaMapTexure3);
     	
 		terrainSettings.heightScale = pTerrainSettings.heightScale;
 		terrainSettings.patchSize = pTerrainSettings.patchSize;
@@ -167,6 +183,8 @@ public class TerranovaProject {
 		terrainSettings.smoothAmount = pTerrainSettings.smoothAmount;
 		terrainSettings.smoothRadius = pTerrainSettings.smoothRadius;
 		terrainSettings.terrainMaterial = pTerrainSettings.terrainMaterial;
+		terrainSettings.lodEnabled = pTerrainSettings.lodEnabled;
+		terrainSettings.lodMultiplier = pTerrainSettings.lodMultiplier;
 	}
 	
 	public static void buildTerrainTextureSettings(TerrainTextureSettings terrainTextureSettings, ProjectTerrainTextureSettings pTerrainTxSettings)
@@ -207,6 +225,19 @@ public class TerranovaProject {
 		return terrainTexture;
 	}
 	
+	/**
+	 * Loads a saved @ToggleTexture, or an inactive black texture if none was saved
+	 */
+	public static ToggleTexture buildToggleTexture( ProjectTerrainTexture projectTerrainTexture)
+	{
+		if (projectTerrainTexture == null || projectTerrainTexture.assetKey == null)
+		{
+			return new ToggleTexture(TerranovaBaseAssetManager.DEFAULT_BLACK_TEXTURE);
+		}
+		AssetManager assetManager = TerranovaApp.INSTANCE.getAssetManager();
+		return new ToggleTexture(assetManager.loadTexture(projectTerrainTexture.assetKey), projectTerrainTexture.active);
+	}
+	
 	public static ProjectTerrainTextureSettings copyTerrainTextureSettings()
 	{
 		String terrainSettingsName = JMETerrainSettings.class.getCanonicalName();
@@ -241,7 +272,7 @@ public class TerranovaProject {
 	public static ProjectTerrainTexture copyToggleTexture(ToggleTexture toggleTexture)
 	{
 		ProjectTerrainTexture ptx = new ProjectTerrainTexture();
-		if (toggleTexture.texture != null)
+		if (toggleTexture.texture != null && toggleTexture.texture.getKey() != null)
 		{
 			ptx.assetKey = toggleTexture.texture.getKey().getName();
 			ptx.active = toggleTexture.active;
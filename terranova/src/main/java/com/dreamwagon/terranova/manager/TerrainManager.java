@@ -25,14 +25,22 @@
  */
 package com.dreamwagon.terranova.manager;
 
+import java.io.IOException;
+
 import com.dreamwagon.terranova.TerranovaApp;
 import com.dreamwagon.terranova.TerranovaBaseAssetManager;
 import com.dreamwagon.terranova.model.TerrainTexture;
 import com.dreamwagon.terranova.settings.JMETerrainSettings;
+import com.dreamwagon.terranova.ui.TerranovaUiManager;
+import com.dreamwagon.terranova.util.RawHeightmapImporter;
+import com.dreamwagon.terranova.util.TerrainGradientField;
 import com.jme3.material.Material;
+import com.jme3.math.Vector3f;
 import com.jme3.renderer.queue.RenderQueue.ShadowMode;
 import com.jme3.scene.Node;
+import com.jme3.terrain.geomipmap.TerrainLodControl;
 import com.jme3.terrain.geomipmap.TerrainQuad;
+import com.jme3.terrain.geomipmap.lodcalc.DistanceLodCalculator;
 import com.jme3.terrain.heightmap.ImageBasedHeightMap;
 import com.jme3.texture.Texture;
 
@@ -50,6 +58,10 @@ public class TerrainManager{
 	
 	private Node terrainNode;
 	
+	private TerrainGradientField gradientField;
+	
+	private TerrainQuad gradientFieldTerrain;
+	
 	public TerrainManager()
 	{
 		terrainNode = new Node(TERRANOVA_TERRAIN_NODE_NAME);
@@ -58,39 +70,71 @@ public class TerrainManager{
 	public void replaceTerrain(TerrainQuad terrain)
 	{
 		clearChildren();
+		invalidateGradientField();
 		terrain.setName(TERRANOVA_TERRAIN_QUAD_NAME);
         terrainNode.attachChild(terrain);
 	}
 	
 	public void clearChildren()
 	{
+		TerrainQuad terrain = getTerrainQuad();
+		if (null != terrain) {
+			TerrainLodControl lodControl = terrain.getControl(TerrainLodControl.class);
+			if (null != lodControl) {
+				//stops the LOD thread of the old terrain
+				lodControl.detachAndCleanUpControl();
+			}
+		}
 		terrainNode.getChildren().clear();
 	}
 	
 	/**
 	 * Completely build terrain from scratch including rebuilding the @TerrainQuad
 	 * Terrain will be cleared and reloaded to the rootNode
+	 * 
+	 * If a RAW heightmap file is set it is memory mapped and streamed into the terrain heights,
+	 * and its size is used as (and stored in the settings as) the terrain size. Otherwise the heightmap 
+	 * texture is used.
 	 * @param settings
 	 */
 	public void buildTerrain(JMETerrainSettings settings){
+		float[] heightmap;
+		int totalSize;
+		if (null != settings.terrainHeightmapRawFile) {
+			try {
+				totalSize = RawHeightmapImporter.getSize(settings.terrainHeightmapRawFile);
+				heightmap = RawHeightmapImporter.load(settings.terrainHeightmapRawFile, settings.heightScale, 
+						settings.smooth, settings.smoothAmount, settings.smoothRadius);
+				settings.totalSize = totalSize;
+			} catch (IOException e) {
+				e.printStackTrace();
+				TerranovaUiManager.showErrorMessage("Unable to load heightmap: " + e.getMessage());
+				return;
+			}
+		}
+		else {
+	        Texture heightmapTexture = settings.terrainHeightmapTexure;
+	        if(null==heightmapTexture){
+	        	heightmapTexture = TerranovaBaseAssetManager.DEFAULT_TERRAIN_HEIGHTMAP_TEXTURE;
+	        }
+	        
+	        ImageBasedHeightMap imgbhm = new ImageBasedHeightMap(heightmapTexture.getImage(), settings.heightScale);
+	        imgbhm.load();
+	        if (settings.smooth)
+	        {
+	        	imgbhm.smooth(settings.smoothAmount, settings.smoothRadius);
+	        }
+	        heightmap = imgbhm.getHeightMap();
+	        totalSize = settings.totalSize;
+		}
+		
 		clearChildren();
+		invalidateGradientField();
 		TerranovaApp.INSTANCE.getRootNode().detachChild(terrainNode);
-				
-        Texture heightmapTexture = settings.terrainHeightmapTexure;
-        if(null==heightmapTexture){
-        	heightmapTexture = TerranovaBaseAssetManager.DEFAULT_TERRAIN_HEIGHTMAP_TEXTURE;
-        }
-        
+		
 		//terrain
-        ImageBasedHeightMap imgbhm = new ImageBasedHeightMap(heightmapTexture.getImage(), settings.heightScale);
-        imgbhm.load();
-        if (settings.smooth)
-        {
-        	imgbhm.smooth(settings.smoothAmount, settings.smoothRadius);
-        }
-        
         TerrainQuad terrain = new TerrainQuad(TerranovaBaseAssetManager.DEFAULT_TERRAIN_NAME, 
-    			settings.patchSize, settings.totalSize, imgbhm.getHeightMap());
+    			settings.patchSize, totalSize, heightmap);
         terrain.setName(TERRANOVA_TERRAIN_QUAD_NAME);
         
         //Add to parent node
@@ -98,6 +142,8 @@ public class TerrainManager{
         
         //Set materials to terrain
         updateTerrainMaterials(settings);
+        
+        updateTerrainLod(settings);
        
         TerranovaApp.INSTANCE.rootNodeQueue.add(terrainNode);
 	}
@@ -116,6 +162,34 @@ public class TerrainManager{
         terrain.setShadowMode(shadowMode);
 	}
 	
+	/**
+	 * Adds or updates the geomipmap LOD control of the terrain. Patch LODs are picked by a 
+	 * @DistanceLodCalculator from the camera distance, multiplied by the LOD distance multiplier,
+	 * and are recomputed by the TerrainLodControl on its own background thread when the camera moves.
+	 * With LOD turned off the control stays, and its calculator puts every patch back to full detail.
+	 * 
+	 * @param settings
+	 */
+	public void updateTerrainLod(JMETerrainSettings settings)
+	{
+		TerrainQuad terrain = getTerrainQuad();
+		TerrainLodControl lodControl = terrain.getControl(TerrainLodControl.class);
+		if (null == lodControl) {
+			lodControl = new TerrainLodControl(terrain, TerranovaApp.INSTANCE.getCamera());
+			terrain.addControl(lodControl);
+		}
+		DistanceLodCalculator lodCalculator = new DistanceLodCalculator(settings.patchSize, settings.lodMultiplier);
+		if (settings.lodEnabled) {
+			lodCalculator.turnOnLod();
+		}
+		else {
+			lodCalculator.turnOffLod();
+		}
+		lodControl.setLodCalculator(lodCalculator);
+		//recompute the patch LODs now, not on the next camera move
+		lodControl.forceUpdate();
+	}
+	
 	/**
 	 * Get the material based on the current @JMETerrainSettings
 	 * If terrain is basic or lighting, apply the current textures from
@@ -243,4 +317,33 @@ public class TerrainManager{
 	{
 		return (TerrainQuad) terrainNode.getChild(TERRANOVA_TERRAIN_QUAD_NAME);
 	}
+	
+	/**
+	 * Slope and curvature of the current terrain. The field is created on first use and shared 
+	 * by the splat generator and the spawners until the terrain is rebuilt or replaced, or 
+	 * {@link #invalidateGradientField()} is called after editing heights in place. Its full slope and 
+	 * curvature arrays are only computed once a spawner looks them up.
+	 * 
+	 * @return the @TerrainGradientField of the current terrain, or null if there is no terrain
+	 */
+	public synchronized TerrainGradientField getGradientField()
+	{
+		TerrainQuad terrain = getTerrainQuad();
+		if (null == terrain) {
+			return null;
+		}
+		if (null == gradientField || gradientFieldTerrain != terrain) {
+			float[] heights = terrain.getHeightMap();
+			Vector3f scale = terrain.getLocalScale();
+			gradientField = TerrainGradientField.fromHeights(heights, (int) Math.sqrt(heights.length), scale.x, scale.y);
+			gradientFieldTerrain = terrain;
+		}
+		return gradientField;
+	}
+	
+	public synchronized void invalidateGradientField()
+	{
+		gradientField = null;
+		gradientFieldTerrain = null;
+	}
 }
@@ -27,17 +27,24 @@ package com.dreamwagon.terranova.manager;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import com.dreamwagon.terranova.TerranovaApp;
+import com.dreamwagon.terranova.model.TreeInstanceStore;
 import com.dreamwagon.terranova.settings.NoiseLayerSettings;
 import com.dreamwagon.terranova.spawner.AbstractSpawnerDialog;
+import com.dreamwagon.terranova.spawner.PoissonDiskTreeSpawner;
 import com.dreamwagon.terranova.spawner.Spawner;
 import com.dreamwagon.terranova.spawner.SpeckleTreeSpawner;
 import com.dreamwagon.terranova.ui.AbstractSettingsDialog;
+import com.dreamwagon.terranova.ui.Setting;
+import com.dreamwagon.terranova.ui.SettingType;
 import com.dreamwagon.terranova.ui.Settings;
 import com.dreamwagon.terranova.ui.SettingsDialogBuilder;
 import com.dreamwagon.terranova.ui.TerranovaUiManager;
@@ -74,7 +81,10 @@ public class TreeManager extends AbstractSettingsDialog{
 
     private Map<String, Dialog<Void>> spawnerSettingsDialogMap = new HashMap<String, Dialog<Void>>();
     
-	List<Spatial> trees = new ArrayList<Spatial>();
+	/**
+	 * All spawned trees. Only the store is kept, tree models exist in the scene graph alone
+	 */
+	TreeInstanceStore trees = new TreeInstanceStore();
 	
 	private List<AbstractSpawnerDialog> treeSpawners = new ArrayList<>();
 	
@@ -84,10 +94,14 @@ public class TreeManager extends AbstractSettingsDialog{
 	
 	private com.jme3.scene.Node treeGeomNode = new com.jme3.scene.Node();
 	
+	@Setting(displayName="Instanced Rendering", settingType = SettingType.BOOLEAN)
+	public Boolean instancedRendering = Boolean.TRUE;
+	
 	public TreeManager()
 	{		
 		//Set the spawners available in the tree manager
 		availableTreeSpawners.put(SpeckleTreeSpawner.class.getCanonicalName(), SpeckleTreeSpawner.class);
+		availableTreeSpawners.put(PoissonDiskTreeSpawner.class.getCanonicalName(), PoissonDiskTreeSpawner.class);
 	}
 	
 	@Override
@@ -156,26 +170,36 @@ public class TreeManager extends AbstractSettingsDialog{
 		spawnerSettingsDialogMap.clear();
 	}
 	
-	@SuppressWarnings("unchecked")
+	/**
+	 * Runs all spawners and rebuilds the tree node from every spawned tree. With instanced rendering
+	 * the instance data is built straight from the @TreeInstanceStore, one instanced Geometry per 
+	 * geometry of a @TreePrototype, each drawing all of its trees in one draw call. Otherwise a tree 
+	 * model is built per tree, in parallel. The scene graph is changed on the jME thread.
+	 */
 	public void executeSpawners(){
 		
 		TerrainQuad terrainQuad = TerranovaApp.INSTANCE.terrainManager.getTerrainQuad();
 		for (AbstractSpawnerDialog spawner : treeSpawners){
-			trees.addAll((List<Spatial>) spawner.spawn(terrainQuad));
+			trees.addAll((TreeInstanceStore) spawner.spawn(terrainQuad));
 		}
-		//com.jme3.scene.Node geomNode = new com.jme3.scene.Node();
 		
-	     //TODO batch as an option?
-		for (Spatial tree : trees){
-			treeGeomNode.attachChild(tree);
+		TreePrototypeManager treePrototypeManager = TerranovaApp.INSTANCE.treePrototypeManager;
+		List<Spatial> treesToAttach;
+		if (instancedRendering) {
+			treesToAttach = Collections.singletonList(treePrototypeManager.createInstancedTrees(trees));
 		}
-		//com.jme3.scene.Node optimizedTreeGeom = (com.jme3.scene.Node) GeometryBatchFactory.optimize(geomNode);
-		
-		//for (Spatial s1:optimizedTreeGeom.getChildren()) {
-		//	 s1.setShadowMode(ShadowMode.Cast);
-		//	 }
-		TerranovaApp.INSTANCE.rootNodeQueue.add(treeGeomNode);	
-		
+		else {
+			treesToAttach = IntStream.range(0, trees.size()).parallel()
+					.mapToObj(i -> treePrototypeManager.createTree(trees, i))
+					.collect(Collectors.toList());
+		}
+		JavaFxUI.getInstance().runInJmeThread(() -> {
+			treeGeomNode.detachAllChildren();
+			for (Spatial tree : treesToAttach){
+				treeGeomNode.attachChild(tree);
+			}
+			TerranovaApp.INSTANCE.rootNodeQueue.add(treeGeomNode);
+		});
 	}
 
 	@Override
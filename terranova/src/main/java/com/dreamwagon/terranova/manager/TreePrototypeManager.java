@@ -28,14 +28,23 @@ package com.dreamwagon.terranova.manager;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Random;
+import java.util.stream.IntStream;
 
 import com.dreamwagon.terranova.TerranovaBaseAssetManager;
+import com.dreamwagon.terranova.model.TreeInstanceStore;
 import com.dreamwagon.terranova.model.TreePrototype;
 import com.dreamwagon.terranova.ui.AbstractSettingsDialog;
 import com.dreamwagon.terranova.ui.TerranovaUiManager;
+import com.dreamwagon.terranova.util.InstancingUtil;
 import com.dreamwagon.terranova.util.ModelUtil;
 
+import com.jme3.material.Material;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.renderer.queue.RenderQueue.ShadowMode;
+import com.jme3.scene.Geometry;
 import com.jme3.scene.Spatial;
 
 import io.tlf.jme.jfx.JavaFxUI;
@@ -72,11 +81,121 @@ public class TreePrototypeManager extends AbstractSettingsDialog{
 	 * Returns a random tree @TreePrototype from the list
 	 * @return
 	 */
-	public TreePrototype getRandomTree(ThreadLocalRandom tlRandom) {
+	public TreePrototype getRandomTree(Random random) {
+		
+		return treePrototypeList.get(getRandomTreeIndex(random));
+	}
+	/**
+	 * Returns the index of a random tree @TreePrototype from the list
+	 * @return
+	 */
+	public int getRandomTreeIndex(Random random) {
+		
+		return random.nextInt(treePrototypeList.size());
+	}
+	public TreePrototype getTree(int index) {
 		
-		int index = tlRandom.nextInt(0, treePrototypeList.size());
 		return treePrototypeList.get(index);
 	}
+	/**
+	 * Build the tree model for a spawned instance. Shares the prototype materials, so trees can be instanced together
+	 * @param instances
+	 * @param index index of the instance in the store
+	 * @return
+	 */
+	public Spatial createTree(TreeInstanceStore instances, int index) {
+		
+		Spatial tree = getTree(instances.getPrototypeId(index)).model.clone(false);
+		tree.setShadowMode(ShadowMode.Cast);
+		tree.scale(instances.getScale(index));
+		//TangentBinormalGenerator.generate(tree);
+		tree.rotate(0, instances.getRotationY(index), 0);
+		tree.setLocalTranslation(instances.getX(index), instances.getY(index), instances.getZ(index));
+		return tree;
+	}
+	/**
+	 * Build the instanced render data of all spawned trees straight from the store, without a model per tree: 
+	 * one Geometry per geometry of each @TreePrototype, drawing every tree of that prototype in one draw call. 
+	 * Trees are placed as in @createTree. Prototypes whose materials can't be instanced get a model per tree.
+	 * @param instances
+	 * @return
+	 */
+	public com.jme3.scene.Node createInstancedTrees(TreeInstanceStore instances) {
+		
+		com.jme3.scene.Node instancedTrees = new com.jme3.scene.Node("instanced_trees");
+		int[][] indicesByPrototype = groupByPrototype(instances);
+		for (int prototypeId = 0; prototypeId < indicesByPrototype.length; prototypeId++) {
+			int[] indices = indicesByPrototype[prototypeId];
+			if (indices.length == 0) {
+				continue;
+			}
+			Spatial model = getTree(prototypeId).model;
+			if (!InstancingUtil.supportsInstancing(model)) {
+				for (int index : indices) {
+					instancedTrees.attachChild(createTree(instances, index));
+				}
+				continue;
+			}
+			model.depthFirstTraversal(s -> {
+				if (s instanceof Geometry) {
+					instancedTrees.attachChild(createInstancedGeometry(instances, indices, model, (Geometry) s));
+				}
+			});
+		}
+		return instancedTrees;
+	}
+	
+	private int[][] groupByPrototype(TreeInstanceStore instances) {
+		
+		int[] counts = new int[treePrototypeList.size()];
+		for (int i = 0; i < instances.size(); i++) {
+			counts[instances.getPrototypeId(i)]++;
+		}
+		int[][] indicesByPrototype = new int[counts.length][];
+		for (int prototypeId = 0; prototypeId < counts.length; prototypeId++) {
+			indicesByPrototype[prototypeId] = new int[counts[prototypeId]];
+			counts[prototypeId] = 0;
+		}
+		for (int i = 0; i < instances.size(); i++) {
+			int prototypeId = instances.getPrototypeId(i);
+			indicesByPrototype[prototypeId][counts[prototypeId]++] = i;
+		}
+		return indicesByPrototype;
+	}
+	
+	/**
+	 * One Geometry drawing a geometry of the prototype model for the given trees. The mesh buffers are shared 
+	 * with the prototype, the material is an instancing copy of the prototype material
+	 */
+	private Geometry createInstancedGeometry(TreeInstanceStore instances, int[] indices, Spatial model, Geometry part) {
+		
+		// transform of the part within the model, below the model root
+		Transform partTransform = new Transform();
+		for (Spatial s = part; s != model; s = s.getParent()) {
+			partTransform.combineWithParent(s.getLocalTransform());
+		}
+		Quaternion modelRotation = model.getLocalRotation();
+		Vector3f modelScale = model.getLocalScale();
+		
+		float[] instanceData = new float[indices.length * InstancingUtil.FLOATS_PER_INSTANCE];
+		IntStream.range(0, indices.length).parallel().forEach(i -> {
+			int index = indices[i];
+			Quaternion rotationY = new Quaternion().fromAngles(0, instances.getRotationY(index), 0);
+			Transform tree = new Transform(
+					new Vector3f(instances.getX(index), instances.getY(index), instances.getZ(index)),
+					modelRotation.mult(rotationY),
+					modelScale.mult(instances.getScale(index)));
+			InstancingUtil.writeInstance(partTransform.clone().combineWithParent(tree), instanceData, i * InstancingUtil.FLOATS_PER_INSTANCE);
+		});
+		
+		Geometry geometry = new Geometry(part.getName(), InstancingUtil.createInstancedMesh(part.getMesh(), instanceData));
+		Material material = part.getMaterial().clone();
+		material.setBoolean("UseInstancing", true);
+		geometry.setMaterial(material);
+		geometry.setQueueBucket(part.getLocalQueueBucket());
+		geometry.setShadowMode(ShadowMode.Cast);
+		return geometry;
+	}
 	@Override
 	public String getName() {
 		return TreePrototypeManager.class.getCanonicalName();
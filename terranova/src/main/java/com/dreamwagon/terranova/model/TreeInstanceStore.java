@@ -0,0 +1,176 @@
+/**
+ * Copyright 2020 DREAMWAGON LLC
+ *
+ *	Redistribution and use in source and binary forms, with or without modification, are permitted 
+ *  provided that the following conditions are met:
+ *
+ *		1. Redistributions of source code must retain the above copyright notice, this list of 
+ *		   conditions and the following disclaimer.
+ *
+ *   	2. Redistributions in binary form must reproduce the above copyright notice, this list of 
+ *   	   conditions and the following disclaimer in the documentation and/or other materials 
+ *         provided with the distribution.
+ *
+ *	   	3. Neither the name of the copyright holder nor the names of its contributors may be used to 
+ *		   endorse or promote products derived from this software without specific prior written permission.
+ *
+ *		THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+ *		IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ *		FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ *		FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT 
+ *		LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ *		HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT 
+ *		(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ *		OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.dreamwagon.terranova.model;
+
+import java.util.Arrays;
+
+/**
+ * Compact store of spawned tree instances. Positions, Y rotations, scales and @TreePrototype ids are 
+ * kept in primitive arrays, 24 bytes per instance, instead of a @Spatial per tree. Models are only 
+ * built from the store when the trees are attached to the scene.
+ * 
+ * Not thread safe: spawners fill one store per patch or tile and merge them in a stable order.
+ * 
+ * @author J. Demarco
+ *
+ */
+public class TreeInstanceStore {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	private float[] positions;
+	private float[] rotationsY;
+	private float[] scales;
+	private int[] prototypeIds;
+	private int size;
+	
+	public TreeInstanceStore() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	public TreeInstanceStore(int capacity) {
+		allocate(Math.max(1, capacity));
+	}
+	
+	/**
+	 * 
+	 * @param x world position
+	 * @param y world position
+	 * @param z world position
+	 * @param rotationY rotation around the Y axis in radians
+	 * @param scale uniform scale
+	 * @param prototypeId index of the @TreePrototype in the @TreePrototypeManager
+	 * @return index of the new instance
+	 */
+	public int add(float x, float y, float z, float rotationY, float scale, int prototypeId) {
+		ensureCapacity(size + 1);
+		positions[size * 3] = x;
+		positions[size * 3 + 1] = y;
+		positions[size * 3 + 2] = z;
+		rotationsY[size] = rotationY;
+		scales[size] = scale;
+		prototypeIds[size] = prototypeId;
+		return size++;
+	}
+	
+	/**
+	 * Appends all instances of the other store, in their order
+	 * @param other
+	 */
+	public void addAll(TreeInstanceStore other) {
+		ensureCapacity(size + other.size);
+		System.arraycopy(other.positions, 0, positions, size * 3, other.size * 3);
+		System.arraycopy(other.rotationsY, 0, rotationsY, size, other.size);
+		System.arraycopy(other.scales, 0, scales, size, other.size);
+		System.arraycopy(other.prototypeIds, 0, prototypeIds, size, other.size);
+		size += other.size;
+	}
+	
+	/**
+	 * 
+	 * @param indices indices of the instances to keep
+	 * @return new TreeInstanceStore with the given instances, in the order of the indices
+	 */
+	public TreeInstanceStore select(int[] indices) {
+		TreeInstanceStore selected = new TreeInstanceStore(indices.length);
+		for (int index : indices) {
+			checkIndex(index);
+			selected.add(positions[index * 3], positions[index * 3 + 1], positions[index * 3 + 2], 
+					rotationsY[index], scales[index], prototypeIds[index]);
+		}
+		return selected;
+	}
+	
+	/**
+	 * Removes all instances and releases their memory
+	 */
+	public void clear() {
+		allocate(DEFAULT_CAPACITY);
+		size = 0;
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public boolean isEmpty() {
+		return size == 0;
+	}
+	
+	public float getX(int index) {
+		checkIndex(index);
+		return positions[index * 3];
+	}
+	
+	public float getY(int index) {
+		checkIndex(index);
+		return positions[index * 3 + 1];
+	}
+	
+	public float getZ(int index) {
+		checkIndex(index);
+		return positions[index * 3 + 2];
+	}
+	
+	public float getRotationY(int index) {
+		checkIndex(index);
+		return rotationsY[index];
+	}
+	
+	public float getScale(int index) {
+		checkIndex(index);
+		return scales[index];
+	}
+	
+	public int getPrototypeId(int index) {
+		checkIndex(index);
+		return prototypeIds[index];
+	}
+	
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+		}
+	}
+	
+	private void allocate(int capacity) {
+		positions = new float[capacity * 3];
+		rotationsY = new float[capacity];
+		scales = new float[capacity];
+		prototypeIds = new int[capacity];
+	}
+	
+	private void ensureCapacity(int capacity) {
+		if (capacity <= scales.length) {
+			return;
+		}
+		int newCapacity = Math.max(capacity, scales.length * 2);
+		positions = Arrays.copyOf(positions, newCapacity * 3);
+		rotationsY = Arrays.copyOf(rotationsY, newCapacity);
+		scales = Arrays.copyOf(scales, newCapacity);
+		prototypeIds = Arrays.copyOf(prototypeIds, newCapacity);
+	}
+}
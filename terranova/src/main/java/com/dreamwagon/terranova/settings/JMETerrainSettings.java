@@ -26,6 +26,7 @@
 package com.dreamwagon.terranova.settings;
 
 import java.io.File;
+import java.io.IOException;
 
 import com.dreamwagon.terranova.TerranovaApp;
 import com.dreamwagon.terranova.TerranovaBaseAssetManager;
@@ -36,6 +37,7 @@ import com.dreamwagon.terranova.ui.SettingType;
 import com.dreamwagon.terranova.ui.SettingsDialogBuilder;
 import com.dreamwagon.terranova.ui.TerranovaUiManager;
 import com.dreamwagon.terranova.util.ImageUtil;
+import com.dreamwagon.terranova.util.RawHeightmapImporter;
 
 import com.jme3.texture.Texture;
 
@@ -46,7 +48,6 @@ import javafx.scene.Node;
 import javafx.scene.control.Button;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
-import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
@@ -70,6 +71,11 @@ public class JMETerrainSettings extends AbstractSettingsDialog{
 	
 	public Texture terrainHeightmapTexure;
 	
+	/**
+	 * RAW R16/R32F heightmap, used instead of terrainHeightmapTexure when set
+	 */
+	public File terrainHeightmapRawFile;
+	
 	@Setting(displayName="Terrain Alpha Map 1", settingType = SettingType.TEXTURE)
 	public Texture terrainAlphaMapTexure1;
 	
@@ -109,6 +115,12 @@ public class JMETerrainSettings extends AbstractSettingsDialog{
 	@Setting(displayName="Smooth Radius", settingType = SettingType.INTEGER)
 	public Integer smoothRadius = 1;
 	
+	@Setting(displayName="Level of Detail", settingType = SettingType.BOOLEAN)
+	public Boolean lodEnabled = Boolean.TRUE;
+	
+	@Setting(displayName="LOD Distance Multiplier", settingType = SettingType.RANGED_FLOAT, floatRangeMin=1f, floatRangeMax=10f)
+	public Float lodMultiplier = 2.7f;
+	
 	public JMETerrainSettings(TerrainTextureSettings terrainTextureSettings)
 	{
 		this.terrainTextureSettings = terrainTextureSettings;
@@ -174,11 +186,16 @@ public class JMETerrainSettings extends AbstractSettingsDialog{
 			terrainHeightmapTexure = TerranovaBaseAssetManager.DEFAULT_TERRAIN_HEIGHTMAP_TEXTURE;
 		}
 		
-		Image terrainImage = ImageUtil.convertJmeTextureToJfxImage(terrainHeightmapTexure);
-		heightMapImageView.setImage(terrainImage);
-		heightMapImageView.setFitHeight(64);
-		heightMapImageView.setFitWidth(64);
-		
+		Texture previewTexture = terrainHeightmapTexure;
+		if (null != terrainHeightmapRawFile)
+		{
+			try {
+				previewTexture = ImageUtil.createGreyscaleTexture(RawHeightmapImporter.loadPreview(terrainHeightmapRawFile, 64), 64);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		ImageUtil.refreshImageView(heightMapImageView, previewTexture);
 	}
 	
     EventHandler<ActionEvent> importHeightmapHandler = new EventHandler<ActionEvent>() {
@@ -188,10 +205,15 @@ public class JMETerrainSettings extends AbstractSettingsDialog{
 	        	//Get the stage
         		Node sourceNode = JavaFxUI.getInstance().getChild(TerranovaUiManager.HBG_MENU_BAR_ID);
         		Window stage = sourceNode.getScene().getWindow();
-	        	File file = TerranovaUiManager.TEXTURE_FILE_CHOOSER.showOpenDialog(stage);
+	        	File file = TerranovaUiManager.HEIGHTMAP_FILE_CHOOSER.showOpenDialog(stage);
 	            if (file != null) {
 	            	
-	            	loadHeightmapFileLocal(file);
+	            	if (null != RawHeightmapImporter.getFormat(file)) {
+	            		loadRawHeightmapFile(file);
+	            	}
+	            	else {
+	            		loadHeightmapFileLocal(file);
+	            	}
 	            	refreshTerrainPreviewImageView();
 	            }
         }
@@ -202,6 +224,7 @@ public class JMETerrainSettings extends AbstractSettingsDialog{
         public void handle(ActionEvent event) {
         	applySettings();
         	updateTerrainMaterials();
+        	updateTerrainLod();
         }
     };
     
@@ -220,6 +243,26 @@ public class JMETerrainSettings extends AbstractSettingsDialog{
     	String assetMgrRelativePath = path.replace(TerranovaBaseAssetManager.USER_HOME_DIRECTORY, "");
     		
     	terrainHeightmapTexure = TerranovaApp.INSTANCE.getAssetManager().loadTexture(assetMgrRelativePath);
+    	terrainHeightmapRawFile = null;
+    	
+    	applySettings();
+	    buildTerrain();
+    }
+    
+    /**
+     * Uses a RAW R16/R32F heightmap for the terrain. The terrain size is taken from the file.
+     * 
+     * @param file
+     */
+    public void loadRawHeightmapFile(File file)
+    {
+    	try {
+    		RawHeightmapImporter.getSize(file);
+		} catch (IOException e) {
+			TerranovaUiManager.showErrorMessage("Unable to load heightmap: " + e.getMessage());
+			return;
+		}
+    	terrainHeightmapRawFile = file;
     	
     	applySettings();
 	    buildTerrain();
@@ -233,4 +276,9 @@ public class JMETerrainSettings extends AbstractSettingsDialog{
     {
     	TerranovaApp.INSTANCE.terrainManager.updateTerrainMaterials(this);
     }
+    
+    public void updateTerrainLod()
+    {
+    	TerranovaApp.INSTANCE.terrainManager.updateTerrainLod(this);
+    }
 }
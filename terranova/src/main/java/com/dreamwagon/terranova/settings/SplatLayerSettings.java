@@ -0,0 +1,91 @@
+/**
+ * Copyright 2020 DREAMWAGON LLC
+ *
+ *	Redistribution and use in source and binary forms, with or without modification, are permitted 
+ *  provided that the following conditions are met:
+ *
+ *		1. Redistributions of source code must retain the above copyright notice, this list of 
+ *		   conditions and the following disclaimer.
+ *
+ *   	2. Redistributions in binary form must reproduce the above copyright notice, this list of 
+ *   	   conditions and the following disclaimer in the documentation and/or other materials 
+ *         provided with the distribution.
+ *
+ *	   	3. Neither the name of the copyright holder nor the names of its contributors may be used to 
+ *		   endorse or promote products derived from this software without specific prior written permission.
+ *
+ *		THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+ *		IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ *		FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ *		FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT 
+ *		LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ *		HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT 
+ *		(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ *		OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.dreamwagon.terranova.settings;
+
+import com.dreamwagon.terranova.generator.SplatRule;
+import com.dreamwagon.terranova.ui.AbstractSettingsDialog;
+import com.dreamwagon.terranova.ui.Setting;
+import com.dreamwagon.terranova.ui.SettingType;
+import com.dreamwagon.terranova.util.Rangef;
+
+/**
+ * Splat layer settings, the rule for one diffuse texture of the terrain lighting material
+ * 
+ * @author J. Demarco
+ *
+ */
+public class SplatLayerSettings extends AbstractSettingsDialog{
+
+	private final String name;
+	
+	@Setting(displayName="Active", settingType = SettingType.BOOLEAN)
+	public Boolean active = Boolean.FALSE;
+	
+	@Setting(displayName="Layer Weight", settingType = SettingType.RANGED_FLOAT, floatRangeMin=.0f, floatRangeMax=1f)
+	public Float layerWeight = 1f;
+	
+	@Setting(displayName="Height Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = 0, floatRangeMax = 512)
+	public Rangef heightRange = new Rangef(0, 512);
+	
+	@Setting(displayName="Height Blend Distance", settingType = SettingType.FLOAT)
+	public Float heightBlendDistance = 10f;
+	
+	@Setting(displayName="Slope Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = 0, floatRangeMax = 90)
+	public Rangef slopeRange = new Rangef(0, 90);
+	
+	@Setting(displayName="Slope Blend Distance", settingType = SettingType.FLOAT)
+	public Float slopeBlendDistance = 5f;
+	
+	@Setting(displayName="Curvature Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = -50, floatRangeMax = 50)
+	public Rangef curvatureRange = new Rangef(-50, 50);
+	
+	@Setting(displayName="Curvature Blend Distance", settingType = SettingType.FLOAT)
+	public Float curvatureBlendDistance = 1f;
+	
+	/**
+	 * 
+	 * @param name shown in the layer list, usually the diffuse map of the layer
+	 */
+	public SplatLayerSettings(String name) {
+		this.name = name;
+	}
+	
+	@Override
+	public String getName() {
+		return name;
+	}
+	
+	/**
+	 * @return a snapshot of the current settings, or null if the layer is not active
+	 */
+	public SplatRule toRule() {
+		if (!active) {
+			return null;
+		}
+		return new SplatRule(layerWeight, heightRange, heightBlendDistance, slopeRange, slopeBlendDistance, 
+				curvatureRange, curvatureBlendDistance);
+	}
+}
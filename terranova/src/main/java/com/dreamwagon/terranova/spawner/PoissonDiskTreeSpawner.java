@@ -0,0 +1,117 @@
+/**
+ * Copyright 2020 DREAMWAGON LLC
+ *
+ *	Redistribution and use in source and binary forms, with or without modification, are permitted 
+ *  provided that the following conditions are met:
+ *
+ *		1. Redistributions of source code must retain the above copyright notice, this list of 
+ *		   conditions and the following disclaimer.
+ *
+ *   	2. Redistributions in binary form must reproduce the above copyright notice, this list of 
+ *   	   conditions and the following disclaimer in the documentation and/or other materials 
+ *         provided with the distribution.
+ *
+ *	   	3. Neither the name of the copyright holder nor the names of its contributors may be used to 
+ *		   endorse or promote products derived from this software without specific prior written permission.
+ *
+ *		THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+ *		IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ *		FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ *		FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT 
+ *		LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ *		HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT 
+ *		(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ *		OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.dreamwagon.terranova.spawner;
+
+import java.util.Random;
+
+import com.dreamwagon.terranova.TerranovaApp;
+import com.dreamwagon.terranova.manager.TreePrototypeManager;
+import com.dreamwagon.terranova.model.TreeInstanceStore;
+import com.dreamwagon.terranova.ui.Setting;
+import com.dreamwagon.terranova.ui.SettingType;
+import com.dreamwagon.terranova.util.MathUtil;
+import com.dreamwagon.terranova.util.PoissonDiskSampler;
+import com.dreamwagon.terranova.util.Rangef;
+import com.dreamwagon.terranova.util.ReservoirSampler;
+import com.dreamwagon.terranova.util.TerrainGradientField;
+import com.jme3.math.Vector3f;
+import com.jme3.terrain.geomipmap.TerrainQuad;
+
+/**
+ * Spawns trees over a @TerrainQuad with Poisson disk sampling, so that no two trees are closer than 
+ * the minimum tree distance, whatever the patch size or total size of the terrain.
+ * 
+ * @author J. Demarco
+ *
+ */
+public class PoissonDiskTreeSpawner extends AbstractSpawnerDialog{
+	
+	@Setting(displayName="Seed", settingType = SettingType.INTEGER)
+	public Integer seed =325523;
+	
+	@Setting(displayName="Max Instances", settingType = SettingType.INTEGER)
+	public Integer maxInstances =100000;
+	
+	@Setting(displayName="Min Tree Distance", settingType = SettingType.RANGED_FLOAT, floatRangeMin = 1, floatRangeMax = 200)
+	public Float minTreeDistance = 12f;
+	
+	@Setting(displayName="Candidate Attempts", settingType = SettingType.INTEGER)
+	public Integer candidateAttempts = 30;
+	
+	@Setting(displayName="Tree Scale Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = 0.1f, floatRangeMax = 5)
+	public Rangef treeScaleRange = new Rangef(.9f, 2.44f);
+	
+	@Setting(displayName="Tree Height Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = 0, floatRangeMax = 513)
+	public Rangef treeHeightDistance = new Rangef(0, 513);
+	
+	@Setting(displayName="Tree Slope Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = 0, floatRangeMax = 90)
+	public Rangef treeSlopeRange = new Rangef(0, 90);
+	
+	/**
+	 * Samples the terrain area with a @PoissonDiskSampler, then keeps the points inside the height and 
+	 * slope ranges. Heights and slopes come from the terrain gradient field. Each point draws its scale, 
+	 * rotation and tree from a @Random derived from the seed and the point index, so a seed always gives 
+	 * the same trees. Instances over maxInstances are dropped by reservoir sampling.
+	 */
+	@Override
+	public TreeInstanceStore spawn(TerrainQuad terrainQuad) {
+		applySettings();
+		TerrainGradientField gradientField = TerranovaApp.INSTANCE.terrainManager.getGradientField();
+		Vector3f terrainTranslation = terrainQuad.getWorldTranslation().clone();
+		Vector3f terrainScale = terrainQuad.getWorldScale().clone();
+		float halfSize = (gradientField.getSize() - 1) / 2f;
+		
+		PoissonDiskSampler sampler = new PoissonDiskSampler(
+				(gradientField.getSize() - 1) * terrainScale.x, 
+				(gradientField.getSize() - 1) * terrainScale.z, 
+				minTreeDistance, Math.max(1, candidateAttempts));
+		float[] points = sampler.sample(seed);
+		
+		TreePrototypeManager treePrototypeManager = TerranovaApp.INSTANCE.treePrototypeManager;
+		
+		TreeInstanceStore trees = new TreeInstanceStore(points.length / 2);
+		for (int i = 0; i < points.length / 2; i++) {
+			float x = points[i * 2] / terrainScale.x;
+			float z = points[i * 2 + 1] / terrainScale.z;
+			float y = gradientField.getHeight(x, z) * terrainScale.y + terrainTranslation.y;
+			if (!treeHeightDistance.isInRange(y) || !treeSlopeRange.isInRange(gradientField.getSlope(x, z))) {
+				continue;
+			}
+			Random random = new Random(MathUtil.deriveSeed(seed, i));
+			float scale = (float)MathUtil.nextDouble(treeScaleRange.getMin(), treeScaleRange.getMax(), random);
+			float rotationY = (float)MathUtil.nextDouble(0, Math.PI *2, random);
+			trees.add(terrainTranslation.x + (x - halfSize) * terrainScale.x, 
+					y, 
+					terrainTranslation.z + (z - halfSize) * terrainScale.z, 
+					rotationY, scale, treePrototypeManager.getRandomTreeIndex(random));
+		}
+		
+		if (trees.size() > maxInstances) {
+			trees = trees.select(ReservoirSampler.sampleIndices(trees.size(), Math.max(0, maxInstances), new Random(seed)));
+		}
+		return trees;
+	}
+}
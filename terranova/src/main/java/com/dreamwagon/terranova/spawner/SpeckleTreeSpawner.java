@@ -28,18 +28,22 @@ package com.dreamwagon.terranova.spawner;
 import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import com.dreamwagon.terranova.TerranovaApp;
 import com.dreamwagon.terranova.manager.TreePrototypeManager;
+import com.dreamwagon.terranova.model.TreeInstanceStore;
 import com.dreamwagon.terranova.ui.Setting;
 import com.dreamwagon.terranova.ui.SettingType;
+import com.dreamwagon.terranova.util.MathUtil;
 import com.dreamwagon.terranova.util.Rangef;
+import com.dreamwagon.terranova.util.ReservoirSampler;
+import com.dreamwagon.terranova.util.TerrainGradientField;
 import com.jme3.math.Transform;
 import com.jme3.math.Vector3f;
-import com.jme3.renderer.queue.RenderQueue.ShadowMode;
 import com.jme3.scene.Mesh;
-import com.jme3.scene.Spatial;
 import com.jme3.scene.VertexBuffer;
 import com.jme3.terrain.geomipmap.TerrainPatch;
 import com.jme3.terrain.geomipmap.TerrainQuad;
@@ -53,10 +57,10 @@ import com.jme3.terrain.geomipmap.TerrainQuad;
 public class SpeckleTreeSpawner extends AbstractSpawnerDialog{
 	
 	@Setting(displayName="Seed", settingType = SettingType.INTEGER)
-	public int seed =325523;
+	public Integer seed =325523;
 	
 	@Setting(displayName="Max Instances", settingType = SettingType.INTEGER)
-	public int maxInstances =500;
+	public Integer maxInstances =500;
 	
 	@Setting(displayName="Tree Spacing Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = 50, floatRangeMax = 1000)
 	public Rangef treeSpacingDistance = new Rangef(50, 450);
@@ -64,42 +68,67 @@ public class SpeckleTreeSpawner extends AbstractSpawnerDialog{
 	@Setting(displayName="Tree Height Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = 0, floatRangeMax = 513)
 	public Rangef treeHeightDistance = new Rangef(0, 513);
 	
+	@Setting(displayName="Tree Slope Range", settingType = SettingType.TWO_VAL_RANGED_FLOAT, floatRangeMin = 0, floatRangeMax = 90)
+	public Rangef treeSlopeRange = new Rangef(0, 90);
+	
 	/**
 	 * Spawn trees evenly (or speckeled) over a @TerrainQuad quad using the given @SpeckleTreeSpawnerSettings
+	 * 
+	 * Patches are spawned in parallel, each with its own @Random seeded from the spawner seed and the
+	 * patch name, and merged back in patch order, so the same seed always gives the same trees.
+	 * Instances of the whole terrain are then capped at maxInstances by reservoir sampling, so every
+	 * patch keeps its share of trees.
 	 */
 	@Override
-	public List<Spatial> spawn(TerrainQuad terrainQuad) {
+	public TreeInstanceStore spawn(TerrainQuad terrainQuad) {
 		applySettings();
-		List<Spatial> trees = new ArrayList<Spatial>();
 		List<TerrainPatch> terrainPatchList = new ArrayList<TerrainPatch>();
     	terrainQuad.getAllTerrainPatches(terrainPatchList);
-    	for(TerrainPatch patch : terrainPatchList){
-    		List<Spatial> patchTreeInstances = spawnPatch(patch);
-    		//TODO! should let the tree list be built past max
-    		//instances and then pull trees out of the list, back down = max instances 
-    		//for even distribution
-    		for(Spatial patchTree : patchTreeInstances) {
-    			if (trees.size() < maxInstances) {
-    				trees.add(patchTree);
-    			}
-    		}
-    		
+    	TerrainGradientField gradientField = TerranovaApp.INSTANCE.terrainManager.getGradientField();
+    	
+    	//world transforms are refreshed lazily up the scene graph, so read them before going parallel
+    	Transform[] patchTransforms = new Transform[terrainPatchList.size()];
+    	for (int i = 0; i < patchTransforms.length; i++) {
+    		patchTransforms[i] = terrainPatchList.get(i).getWorldTransform().clone();
+    	}
+    	Vector3f terrainTranslation = terrainQuad.getWorldTranslation().clone();
+    	Vector3f terrainScale = terrainQuad.getWorldScale().clone();
+    	
+    	List<TreeInstanceStore> patchInstanceStores = IntStream.range(0, terrainPatchList.size()).parallel()
+    			.mapToObj(i -> {
+    				TerrainPatch patch = terrainPatchList.get(i);
+    				Random random = new Random(MathUtil.deriveSeed(seed, patch.getName().hashCode()));
+    				return spawnPatch(patch, patchTransforms[i], terrainTranslation, terrainScale, gradientField, random);
+    			})
+    			.collect(Collectors.toList());
+    	
+    	TreeInstanceStore trees = new TreeInstanceStore();
+    	for(TreeInstanceStore patchInstances : patchInstanceStores){
+    		trees.addAll(patchInstances);
+    	}
+    	if (trees.size() > maxInstances) {
+    		trees = trees.select(ReservoirSampler.sampleIndices(trees.size(), Math.max(0, maxInstances), new Random(seed)));
     	}
     	return trees;
 	}
 
 	/**
-	 * Spawn Trees for a given @TerrainPatch
+	 * Spawn tree instances for a given @TerrainPatch. Slopes are looked up in the gradient field of the
+	 * terrain, at the heightmap position nearest to each tree. Only reads the patch mesh, so patches
+	 * can be spawned concurrently.
 	 * 
 	 * @param patch
-	 * @param settings
+	 * @param transform world transform of the patch
+	 * @param terrainTranslation world translation of the terrain the patch belongs to
+	 * @param terrainScale world scale of the terrain the patch belongs to
+	 * @param gradientField slope and curvature of the terrain
+	 * @param random random source of this patch
 	 */
-	public List<Spatial> spawnPatch(TerrainPatch patch) {
+	public TreeInstanceStore spawnPatch(TerrainPatch patch, Transform transform, Vector3f terrainTranslation, 
+			Vector3f terrainScale, TerrainGradientField gradientField, Random random) {
 		
-		 List<Spatial> treeList = new ArrayList<Spatial>();
+		 TreeInstanceStore patchInstances = new TreeInstanceStore();
 		 Mesh mesh = patch.getMesh();
-		 Transform transform = patch.getWorldTransform();
-		 ThreadLocalRandom tlRandom = ThreadLocalRandom.current();
 		 
 		 //TODO get trees from this spawners instance settings, not the main prototype manager.
 		 TreePrototypeManager treePrototypeManager =TerranovaApp.INSTANCE.treePrototypeManager;
@@ -112,9 +141,11 @@ public class SpeckleTreeSpawner extends AbstractSpawnerDialog{
 
 	        FloatBuffer buf = (FloatBuffer)vB.getDataReadOnly();
 	        Vector3f vTemp = new Vector3f();
+	        Vector3f worldSpaceVert = new Vector3f();
+	        float halfSize = (gradientField.getSize() - 1) / 2f;
 	        
 	        int count = 0;
-	        int genIndex = tlRandom.nextInt(treeSpacingDistance.getMinIntValue(), treeSpacingDistance.getMaxIntValue() + 1);
+	        int genIndex = MathUtil.nextInt(treeSpacingDistance.getMinIntValue(), treeSpacingDistance.getMaxIntValue(), random);
 
 	        for (int i = 0; i < vB.getNumElements(); i++) 
 	        {
@@ -122,32 +153,30 @@ public class SpeckleTreeSpawner extends AbstractSpawnerDialog{
 	        	
 	        	if (count> genIndex)
 	        	{
-	        		Vector3f worldSpaceVert = new Vector3f();
 		    	    transform.transformVector(vTemp, worldSpaceVert);
 		    	    //TODO apply tree weights. 
 		    	    //set scale, rotation from random
-	        		Spatial tree = treePrototypeManager.getRandomTree(tlRandom).model.clone();
-	        		tree.setShadowMode(ShadowMode.Cast);
-	        		tree.scale((float)tlRandom.nextDouble(.9f, 2.44f));
-	        		//TangentBinormalGenerator.generate(tree);
-	        		
-	        		float rotationY =(float)tlRandom.nextDouble(Math.PI *2);
+		    	    int prototypeIndex = treePrototypeManager.getRandomTreeIndex(random);
+		    	    float scale = (float)MathUtil.nextDouble(.9f, 2.44f, random);
+	        		float rotationY =(float)MathUtil.nextDouble(0, Math.PI *2, random);
 	        		
-	        		tree.rotate(0, rotationY, 0);
-	        		tree.setLocalTranslation(worldSpaceVert);
+	        		float slope = gradientField.getSlope(
+	        				(worldSpaceVert.x - terrainTranslation.x) / terrainScale.x + halfSize, 
+	        				(worldSpaceVert.z - terrainTranslation.z) / terrainScale.z + halfSize);
 	        		
-	        		if (treeHeightDistance.isInRange(tree.getWorldTransform().getTranslation().y)) {
-	        			treeList.add(tree);
+	        		if (treeHeightDistance.isInRange(worldSpaceVert.y) && treeSlopeRange.isInRange(slope)) {
+	        			patchInstances.add(worldSpaceVert.x, worldSpaceVert.y, worldSpaceVert.z, 
+	        					rotationY, scale, prototypeIndex);
 	        		}
 	        		//hit or miss, we still reset the counter
 	        		count=0;
-	        		genIndex = tlRandom.nextInt(treeSpacingDistance.getMinIntValue(), treeSpacingDistance.getMaxIntValue() + 1);
+	        		genIndex = MathUtil.nextInt(treeSpacingDistance.getMinIntValue(), treeSpacingDistance.getMaxIntValue(), random);
 	        	}
 	        	
 	        	count++;
 		 }
 
 	     
-	     return treeList;
+	     return patchInstances;
 	}
 }
@@ -32,7 +32,9 @@ import org.controlsfx.control.RangeSlider;
 
 import com.dreamwagon.terranova.util.Rangef;
 
+import javafx.beans.value.ChangeListener;
 import javafx.scene.Node;
+import javafx.scene.control.CheckBox;
 import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Slider;
@@ -55,6 +57,36 @@ public abstract class AbstractSettingsDialog implements Settings{
 		return fieldWrapperList;
 	}
 	
+	/**
+	 * Runs the listener every time one of the inputs currently built for this settings instance changes. 
+	 * Field values are not updated until applySettings is called (except check boxes, which set their field directly).
+	 * 
+	 * @param listener called on the JavaFX thread
+	 */
+	public void addSettingsChangeListener(Runnable listener)
+	{
+		ChangeListener<Object> changeListener = (observable, oldValue, newValue) -> listener.run();
+		for (FieldWrapper fieldWrapper : fieldWrapperList)
+		{
+			if (fieldWrapper.node instanceof TextField){
+				((TextField)fieldWrapper.node).textProperty().addListener(changeListener);
+			}
+			else if (fieldWrapper.node instanceof Slider){
+				((Slider)fieldWrapper.node).valueProperty().addListener(changeListener);
+			}
+			else if (fieldWrapper.node instanceof ChoiceBox) {
+				((ChoiceBox<?>)fieldWrapper.node).valueProperty().addListener(changeListener);
+			}
+			else if (fieldWrapper.node instanceof RangeSlider) {
+				((RangeSlider)fieldWrapper.node).lowValueProperty().addListener(changeListener);
+				((RangeSlider)fieldWrapper.node).highValueProperty().addListener(changeListener);
+			}
+			else if (fieldWrapper.node instanceof CheckBox) {
+				((CheckBox)fieldWrapper.node).selectedProperty().addListener(changeListener);
+			}
+		}
+	}
+	
 	/**
 	 * Apply the settings from the inputs to associated field of the calling settings instance.
 	 */
@@ -36,6 +36,7 @@ import com.dreamwagon.terranova.TerranovaApp;
 import com.dreamwagon.terranova.TerranovaBaseAssetManager;
 import com.dreamwagon.terranova.generator.FastNoiseHeightmapGenerator;
 import com.dreamwagon.terranova.generator.HillHeightMapTerrainGenerator;
+import com.dreamwagon.terranova.generator.AlphaMapGenerator;
 import com.dreamwagon.terranova.generator.SplatMapGenerator;
 import com.dreamwagon.terranova.io.SaveRequest;
 import com.dreamwagon.terranova.io.TerranovaProject;
@@ -43,6 +44,8 @@ import com.dreamwagon.terranova.manager.TreeManager;
 import com.dreamwagon.terranova.manager.TreePrototypeManager;
 import com.dreamwagon.terranova.settings.JMETerrainSettings;
 import com.dreamwagon.terranova.settings.TerrainTextureSettings;
+import com.dreamwagon.terranova.util.HeightmapExporter;
+import com.dreamwagon.terranova.util.HeightmapExporter.HeightmapFormat;
 import com.dreamwagon.terranova.util.IOUtil;
 import com.dreamwagon.terranova.util.ImageUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -105,6 +108,8 @@ public class TerranovaUiManager
     
     public static final FileChooser MODEL_FILE_CHOOSER = new FileChooser();
     
+    public static final FileChooser HEIGHTMAP_FILE_CHOOSER = new FileChooser();
+    
     //public static String MAIN_MENU_BAR_ID = "main_menu_bar";
     
     public static String HBG_MENU_BAR_ID = "hbg_menu_bar";
@@ -278,6 +283,28 @@ public class TerranovaUiManager
         	}
         }
     };
+    static EventHandler<ActionEvent> openAlphaMapGeneratorHandler= new EventHandler<ActionEvent>() {
+        @Override
+        public void handle(ActionEvent event) {
+        	String alphaMapGeneratorName = AlphaMapGenerator.class.getCanonicalName();
+        	Dialog<Void> alphaMapGeneratorDialog = persistentDialogMap.get(alphaMapGeneratorName);
+        	if (null == alphaMapGeneratorDialog)
+        	{
+        		SettingsDialogBuilder<AlphaMapGenerator> dialogBuilder = new SettingsDialogBuilder<AlphaMapGenerator>();
+        		alphaMapGeneratorDialog = dialogBuilder.buildSettingDialog(TerranovaApp.INSTANCE.alphaMapGenerator, 
+        				AlphaMapGenerator.class, 480, 650);
+        		persistentDialogMap.put(alphaMapGeneratorName, alphaMapGeneratorDialog);
+        	}
+        	else
+        	{
+        		//We only show one instance of this dialog
+        		if (!alphaMapGeneratorDialog.isShowing())
+        		{
+        			alphaMapGeneratorDialog.show();
+        		}
+        	}
+        }
+    };
     static EventHandler<ActionEvent> openFastNoiseHeightmapGeneratorHandler= new EventHandler<ActionEvent>() {
         @Override
         public void handle(ActionEvent event) {
@@ -406,9 +433,15 @@ public class TerranovaUiManager
         @Override
         public void handle(ActionEvent event) {
 		    FileChooser fileChooser = new FileChooser();
-		    fileChooser.getExtensionFilters().addAll(
+		    fileChooser.getExtensionFilters().add(
 	                new FileChooser.ExtensionFilter("PNG File", "*.png")
 	            );
+		    Map<FileChooser.ExtensionFilter, HeightmapFormat> heightmapFormats = new HashMap<>();
+		    for (HeightmapFormat format : HeightmapFormat.values()) {
+		    	FileChooser.ExtensionFilter filter = new FileChooser.ExtensionFilter(format.getDescription(), "*." + format.getExtension());
+		    	fileChooser.getExtensionFilters().add(filter);
+		    	heightmapFormats.put(filter, format);
+		    }
 		    Node menuNode = JavaFxUI.getInstance().getChild(HBG_MENU_BAR_ID);
     		Window stage = menuNode.getScene().getWindow();
 		    File selectedFile = fileChooser.showSaveDialog(stage);
@@ -418,7 +451,19 @@ public class TerranovaUiManager
 		    }else{
 		         //System.out.println(selectedFile.getAbsolutePath());
 		         TerrainQuad terrainQuad = TerranovaApp.INSTANCE.terrainManager.getTerrainQuad();
-		         ImageUtil.saveHeightmapTextureFromTerrain(terrainQuad, selectedFile.getAbsolutePath());
+		         HeightmapFormat format = heightmapFormats.get(fileChooser.getSelectedExtensionFilter());
+		         if (format == null) {
+		        	 ImageUtil.saveHeightmapTextureFromTerrain(terrainQuad, selectedFile.getAbsolutePath());
+		         }else {
+		        	 float[] heights = terrainQuad.getHeightMap();
+		        	 JMETerrainSettings terrainSettings = (JMETerrainSettings) persistentSettings.get(JMETerrainSettings.class.getCanonicalName());
+		        	 try {
+		        		 HeightmapExporter.export(heights, (int) Math.sqrt(heights.length), terrainSettings.heightScale, format, selectedFile);
+		        	 } catch (IOException e) {
+		        		 e.printStackTrace();
+		        		 showErrorMessage("Unable to export heightmap: " + e.getMessage());
+		        	 }
+		         }
 		    }
         }
     };
@@ -451,6 +496,19 @@ public class TerranovaUiManager
                 new FileChooser.ExtensionFilter("All Files", "*.*")
             );
 			
+			HEIGHTMAP_FILE_CHOOSER.setTitle("Import Heightmap");
+			HEIGHTMAP_FILE_CHOOSER.setInitialDirectory(
+                new File(TerranovaBaseAssetManager.USER_HOME_DIRECTORY)
+            );                 
+			HEIGHTMAP_FILE_CHOOSER.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("Texture Files", "*.jpg", "*.JPG", "*.jpeg", "*.JPEG",
+                								"*.png", "*.PNG", "*.gif", "*.GIF", "*.tga", "*.TGA", 
+                								"*.dds", "*.DDS", "*.hdr", "*.HDR", "*.pfm", "*.PFM", 
+                								"*.bmp", "*.BMP"),
+                new FileChooser.ExtensionFilter("RAW Heightmap Files", "*.r16", "*.R16", "*.r32", "*.R32"),
+                new FileChooser.ExtensionFilter("All Files", "*.*")
+            );
+			
 			MODEL_FILE_CHOOSER.setTitle("Import Model");
 			MODEL_FILE_CHOOSER.setInitialDirectory(
                 new File(TerranovaBaseAssetManager.USER_HOME_DIRECTORY)
@@ -593,6 +651,9 @@ public class TerranovaUiManager
 		//menuSlatmapGenerator.setOnAction(openSplatmapGeneratorHandler);
 		menuTextureGenerators.getChildren().add(menuSlatmapGenerator);
 		
+		TreeItem<TreeMenuData> menuAlphaMapGenerator = new TreeItem<TreeMenuData>(new TreeMenuData("Alpha Map Generator (12 Layers)", openAlphaMapGeneratorHandler));
+		menuTextureGenerators.getChildren().add(menuAlphaMapGenerator);
+		
 		TreeItem<TreeMenuData> menuFastNoiseHeightmapGenerator = new TreeItem<TreeMenuData>(new TreeMenuData("Fast Noise Heightmap Generator", openFastNoiseHeightmapGeneratorHandler));
 		//MenuItem menuFastNoiseHeightmapGenerator = new MenuItem("Fast Noise Heightmap Generator");
 		//menuFastNoiseHeightmapGenerator.setOnAction(openFastNoiseHeightmapGeneratorHandler);
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2020 DREAMWAGON LLC
+ *
+ *	Redistribution and use in source and binary forms, with or without modification, are permitted 
+ *  provided that the following conditions are met:
+ *
+ *		1. Redistributions of source code must retain the above copyright notice, this list of 
+ *		   conditions and the following disclaimer.
+ *
+ *   	2. Redistributions in binary form must reproduce the above copyright notice, this list of 
+ *   	   conditions and the following disclaimer in the documentation and/or other materials 
+ *         provided with the distribution.
+ *
+ *	   	3. Neither the name of the copyright holder nor the names of its contributors may be used to 
+ *		   endorse or promote products derived from this software without specific prior written permission.
+ *
+ *		THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+ *		IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ *		FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ *		FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT 
+ *		LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ *		HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT 
+ *		(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ *		OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.dreamwagon.terranova.util;
+
+/**
+ * Bilinear resampling of a square grid of values, such as a heightmap, to another resolution. 
+ * Corners are aligned: target 0 and targetSize - 1 fall on source 0 and sourceSize - 1. The 
+ * source cell and the fraction inside it are worked out once per target column/row, so sampling 
+ * a row is two lookups and three lerps per value. At equal sizes every fraction is 0 and the 
+ * samples are the source values exactly.
+ * 
+ * Instances are immutable and can be shared by threads sampling different rows.
+ * 
+ * @author J. Demarco
+ *
+ */
+public class GridSampler {
+
+	private final int sourceSize;
+	private final int targetSize;
+	private final float ratio;
+	private final int[] cells;
+	private final float[] fractions;
+	
+	/**
+	 * 
+	 * @param sourceSize width and height of the sampled grid
+	 * @param targetSize width and height of the resampled grid
+	 */
+	public GridSampler(int sourceSize, int targetSize) {
+		if (sourceSize < 1 || targetSize < 1) {
+			throw new IllegalArgumentException("Grid sizes must be positive: " + sourceSize + ", " + targetSize);
+		}
+		this.sourceSize = sourceSize;
+		this.targetSize = targetSize;
+		double step = targetSize > 1 ? (double) (sourceSize - 1) / (targetSize - 1) : 0;
+		this.ratio = (float) step;
+		this.cells = new int[targetSize];
+		this.fractions = new float[targetSize];
+		for (int t = 0; t < targetSize; t++) {
+			double source = t * step;
+			int cell = Math.min((int) source, sourceSize - 1);
+			cells[t] = cell;
+			fractions[t] = (float) (source - cell);
+		}
+	}
+	
+	public int getSourceSize() {
+		return sourceSize;
+	}
+	
+	public int getTargetSize() {
+		return targetSize;
+	}
+	
+	/**
+	 * @return source cells per target cell
+	 */
+	public float getRatio() {
+		return ratio;
+	}
+	
+	/**
+	 * Samples one row of the resampled grid
+	 * 
+	 * @param values source grid, index = y * sourceSize + x
+	 * @param targetRow row of the resampled grid
+	 * @param out targetSize samples
+	 */
+	public void sampleRow(float[] values, int targetRow, float[] out) {
+		int y0 = getSourceRow(targetRow);
+		int y1 = Math.min(y0 + 1, sourceSize - 1);
+		sampleRow(values, y0 * sourceSize, values, y1 * sourceSize, fractions[targetRow], out);
+	}
+	
+	/**
+	 * Samples one row of the resampled grid from the two source rows it lies between, for 
+	 * callers that compute source rows on demand rather than hold the whole grid
+	 * 
+	 * @param row0 sourceSize values of source row getSourceRow(targetRow)
+	 * @param row1 sourceSize values of the next source row (the same row on the last one)
+	 * @param targetRow row of the resampled grid
+	 * @param out targetSize samples
+	 */
+	public void sampleRow(float[] row0, float[] row1, int targetRow, float[] out) {
+		sampleRow(row0, 0, row1, 0, fractions[targetRow], out);
+	}
+	
+	/**
+	 * @param targetRow row of the resampled grid
+	 * @return the source row at or above it
+	 */
+	public int getSourceRow(int targetRow) {
+		return cells[targetRow];
+	}
+	
+	private void sampleRow(float[] values0, int row0, float[] values1, int row1, float fy, float[] out) {
+		for (int t = 0; t < targetSize; t++) {
+			int x0 = cells[t];
+			int x1 = Math.min(x0 + 1, sourceSize - 1);
+			float fx = fractions[t];
+			float top = lerp(values0[row0 + x0], values0[row0 + x1], fx);
+			float bottom = lerp(values1[row1 + x0], values1[row1 + x1], fx);
+			out[t] = lerp(top, bottom, fy);
+		}
+	}
+	
+	private static float lerp(float a, float b, float fraction) {
+		return a + (b - a) * fraction;
+	}
+}
@@ -0,0 +1,333 @@
+/**
+ * Copyright 2020 DREAMWAGON LLC
+ *
+ *	Redistribution and use in source and binary forms, with or without modification, are permitted 
+ *  provided that the following conditions are met:
+ *
+ *		1. Redistributions of source code must retain the above copyright notice, this list of 
+ *		   conditions and the following disclaimer.
+ *
+ *   	2. Redistributions in binary form must reproduce the above copyright notice, this list of 
+ *   	   conditions and the following disclaimer in the documentation and/or other materials 
+ *         provided with the distribution.
+ *
+ *	   	3. Neither the name of the copyright holder nor the names of its contributors may be used to 
+ *		   endorse or promote products derived from this software without specific prior written permission.
+ *
+ *		THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+ *		IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ *		FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ *		FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT 
+ *		LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ *		HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT 
+ *		(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ *		OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.dreamwagon.terranova.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes heightmaps as 16 bit greyscale PNG, RAW R16 or RAW R32F. Rows are converted into a single 
+ * reused buffer and streamed through a FileChannel, so nothing is allocated per pixel.
+ * 
+ * The 16 bit formats map heights 0 - 255 * heightScale (the range of heightmaps loaded from images 
+ * or RAW R16 files at that height scale, see {@link RawHeightmapImporter}) to 0 - 65535, clamping 
+ * anything outside, so an exported R16 imports back at the same height scale. R32F writes the 
+ * heights divided by heightScale, unclamped, so it imports back the same way. RAW files are little 
+ * endian, without header, row after row.
+ * 
+ * @author J. Demarco
+ *
+ */
+public class HeightmapExporter {
+
+	public enum HeightmapFormat {
+		PNG16("16-bit PNG File", "png"),
+		RAW16("RAW 16-bit File", "r16"),
+		RAW32F("RAW 32-bit Float File", "r32");
+		
+		private final String description;
+		private final String extension;
+		
+		private HeightmapFormat(String description, String extension) {
+			this.description = description;
+			this.extension = extension;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+
+		public String getExtension() {
+			return extension;
+		}
+	}
+	
+	private static final byte[] PNG_SIGNATURE = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+	private static final int PNG_CHUNK_SIZE = 1 << 16;
+	// rows deflated as one independent band
+	private static final int PNG_BAND_ROWS = 256;
+	
+	/**
+	 * 
+	 * @param heights heights, index = y * size + x
+	 * @param size width and height of the heightmap
+	 * @param heightScale height scale the terrain was built with, see the class documentation
+	 * @param format
+	 * @param file
+	 * @throws IOException
+	 */
+	public static void export(float[] heights, int size, float heightScale, HeightmapFormat format, File file) throws IOException
+	{
+		if (heights.length < size * size) {
+			throw new IllegalArgumentException("Expected " + size * size + " heights, got " + heights.length);
+		}
+		if (heightScale <= 0) {
+			throw new IllegalArgumentException("Height scale must be positive: " + heightScale);
+		}
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, 
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			switch (format) {
+			case PNG16:
+				writePng16(heights, size, heightScale, channel);
+				break;
+			case RAW16:
+				writeRaw16(heights, size, heightScale, channel);
+				break;
+			case RAW32F:
+				writeRaw32F(heights, size, heightScale, channel);
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Quantizes a height to 16 bits, see the class documentation for the range
+	 */
+	public static int toUnsigned16(float height, float heightScale)
+	{
+		return Math.round(Math.max(0, Math.min(65535, height * (65535f / (255f * heightScale)))));
+	}
+	
+	private static void writeRaw16(float[] heights, int size, float heightScale, FileChannel channel) throws IOException
+	{
+		ByteBuffer row = ByteBuffer.allocateDirect(size * 2).order(ByteOrder.LITTLE_ENDIAN);
+		short[] values = new short[size];
+		for (int y = 0; y < size; y++) {
+			for (int x = 0, i = y * size; x < size; x++, i++) {
+				values[x] = (short) toUnsigned16(heights[i], heightScale);
+			}
+			row.clear();
+			row.asShortBuffer().put(values);
+			writeFully(channel, row);
+		}
+	}
+	
+	private static void writeRaw32F(float[] heights, int size, float heightScale, FileChannel channel) throws IOException
+	{
+		ByteBuffer row = ByteBuffer.allocateDirect(size * 4).order(ByteOrder.LITTLE_ENDIAN);
+		float[] values = new float[size];
+		for (int y = 0; y < size; y++) {
+			for (int x = 0, i = y * size; x < size; x++, i++) {
+				values[x] = heights[i] / heightScale;
+			}
+			row.clear();
+			row.asFloatBuffer().put(values);
+			row.limit(size * 4);
+			writeFully(channel, row);
+		}
+	}
+	
+	/**
+	 * Greyscale, 16 bits per sample, no interlace. Every scanline uses the Sub filter, which keeps 
+	 * smooth terrain compressible at the fastest deflate level.
+	 * 
+	 * Deflate is by far the slowest part, so bands of rows are compressed in parallel, pigz style: 
+	 * each band is a raw deflate stream ended with a sync flush (the last one finished), the bands 
+	 * are concatenated in order behind one zlib header and their Adler-32 checksums are combined 
+	 * for the trailer. Bands are compressed a few at a time to keep memory bounded.
+	 */
+	private static void writePng16(float[] heights, int size, float heightScale, FileChannel channel) throws IOException
+	{
+		writeFully(channel, ByteBuffer.wrap(PNG_SIGNATURE));
+		
+		ByteBuffer header = ByteBuffer.allocate(13);
+		header.putInt(size).putInt(size);
+		header.put((byte) 16); // bit depth
+		header.put((byte) 0); // color type greyscale
+		header.put((byte) 0); // compression
+		header.put((byte) 0); // filter method
+		header.put((byte) 0); // no interlace
+		writeChunk(channel, "IHDR", header.array(), header.position());
+		
+		IdatWriter idat = new IdatWriter(channel);
+		// zlib header: deflate, 32K window, fastest level
+		idat.write(new byte[] { 0x78, 0x01 }, 2);
+		
+		int bands = (size + PNG_BAND_ROWS - 1) / PNG_BAND_ROWS;
+		int bandsPerPass = Math.max(1, ForkJoinPool.getCommonPoolParallelism()) * 2;
+		long adler = 1;
+		for (int first = 0; first < bands; first += bandsPerPass) {
+			DeflatedBand[] deflated = IntStream.range(first, Math.min(bands, first + bandsPerPass)).parallel()
+					.mapToObj(band -> deflateBand(heights, size, heightScale, band * PNG_BAND_ROWS, 
+							Math.min(size, (band + 1) * PNG_BAND_ROWS)))
+					.toArray(DeflatedBand[]::new);
+			for (DeflatedBand band : deflated) {
+				idat.write(band.data, band.length);
+				adler = combineAdler32(adler, band.adler, band.rawLength);
+			}
+		}
+		
+		idat.write(ByteBuffer.allocate(4).putInt((int) adler).array(), 4);
+		idat.flush();
+		writeChunk(channel, "IEND", new byte[0], 0);
+	}
+	
+	private static DeflatedBand deflateBand(float[] heights, int size, float heightScale, int rowStart, int rowEnd)
+	{
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+		Adler32 adler = new Adler32();
+		byte[] scanline = new byte[1 + size * 2];
+		byte[] out = new byte[scanline.length * (rowEnd - rowStart) / 2 + 1024];
+		int length = 0;
+		try {
+			for (int y = rowStart; y < rowEnd; y++) {
+				scanline[0] = 1; // Sub filter
+				int previous = 0;
+				for (int x = 0, i = y * size, o = 1; x < size; x++, i++, o += 2) {
+					int value = toUnsigned16(heights[i], heightScale);
+					// Sub works per byte, two bytes to the left of the current one
+					scanline[o] = (byte) ((value >>> 8) - (previous >>> 8));
+					scanline[o + 1] = (byte) (value - previous);
+					previous = value;
+				}
+				adler.update(scanline);
+				deflater.setInput(scanline);
+				while (!deflater.needsInput()) {
+					if (length == out.length) {
+						out = Arrays.copyOf(out, out.length * 2);
+					}
+					length += deflater.deflate(out, length, out.length - length, Deflater.NO_FLUSH);
+				}
+			}
+			
+			boolean last = rowEnd == size;
+			if (last) {
+				deflater.finish();
+			}
+			// a sync flush is complete once it no longer fills the output buffer
+			int written;
+			do {
+				if (length == out.length) {
+					out = Arrays.copyOf(out, out.length * 2);
+				}
+				written = deflater.deflate(out, length, out.length - length, last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH);
+				length += written;
+			} while (last ? !deflater.finished() : length == out.length);
+		} finally {
+			deflater.end();
+		}
+		return new DeflatedBand(out, length, adler.getValue(), (long) scanline.length * (rowEnd - rowStart));
+	}
+	
+	/**
+	 * Adler-32 of two concatenated byte sequences, from the checksums of each (zlib adler32_combine)
+	 */
+	static long combineAdler32(long adler1, long adler2, long length2)
+	{
+		final long base = 65521;
+		long remainder = length2 % base;
+		long sum1 = adler1 & 0xFFFF;
+		long sum2 = (remainder * sum1) % base;
+		sum1 += (adler2 & 0xFFFF) + base - 1;
+		sum2 += ((adler1 >>> 16) & 0xFFFF) + ((adler2 >>> 16) & 0xFFFF) + base - remainder;
+		if (sum1 >= base) sum1 -= base;
+		if (sum1 >= base) sum1 -= base;
+		if (sum2 >= base << 1) sum2 -= base << 1;
+		if (sum2 >= base) sum2 -= base;
+		return sum1 | (sum2 << 16);
+	}
+	
+	private static class DeflatedBand {
+		final byte[] data;
+		final int length;
+		final long adler;
+		final long rawLength;
+		
+		DeflatedBand(byte[] data, int length, long adler, long rawLength) {
+			this.data = data;
+			this.length = length;
+			this.adler = adler;
+			this.rawLength = rawLength;
+		}
+	}
+	
+	/**
+	 * Splits the zlib stream into IDAT chunks of PNG_CHUNK_SIZE bytes
+	 */
+	private static class IdatWriter {
+		private final FileChannel channel;
+		private final byte[] buffer = new byte[PNG_CHUNK_SIZE];
+		private int pending;
+		
+		IdatWriter(FileChannel channel) {
+			this.channel = channel;
+		}
+		
+		void write(byte[] data, int length) throws IOException {
+			int offset = 0;
+			while (offset < length) {
+				int count = Math.min(length - offset, buffer.length - pending);
+				System.arraycopy(data, offset, buffer, pending, count);
+				pending += count;
+				offset += count;
+				if (pending == buffer.length) {
+					flush();
+				}
+			}
+		}
+		
+		void flush() throws IOException {
+			if (pending > 0) {
+				writeChunk(channel, "IDAT", buffer, pending);
+				pending = 0;
+			}
+		}
+	}
+	
+	private static void writeChunk(FileChannel channel, String type, byte[] data, int length) throws IOException
+	{
+		byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+		CRC32 crc = new CRC32();
+		crc.update(typeBytes);
+		crc.update(data, 0, length);
+		
+		ByteBuffer chunkHeader = ByteBuffer.allocate(8);
+		chunkHeader.putInt(length).put(typeBytes).flip();
+		writeFully(channel, chunkHeader);
+		writeFully(channel, ByteBuffer.wrap(data, 0, length));
+		ByteBuffer chunkCrc = ByteBuffer.allocate(4);
+		chunkCrc.putInt((int) crc.getValue()).flip();
+		writeFully(channel, chunkCrc);
+	}
+	
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException
+	{
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+}
@@ -28,12 +28,15 @@ package com.dreamwagon.terranova.util;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.stream.IntStream;
 
 import javax.imageio.ImageIO;
 
 import com.dreamwagon.terranova.TerranovaApp;
 import com.dreamwagon.terranova.TerranovaBaseAssetManager;
 import com.jme3.math.ColorRGBA;
+import com.jme3.math.FastMath;
 import com.jme3.terrain.geomipmap.TerrainQuad;
 import com.jme3.texture.Texture;
 import com.jme3.texture.Texture2D;
@@ -45,6 +48,7 @@ import com.jme3.util.BufferUtils;
 
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelFormat;
 import javafx.scene.image.PixelWriter;
 import javafx.scene.image.WritableImage;
 import javafx.scene.paint.Color;
@@ -69,13 +73,98 @@ public class ImageUtil {
 		return copyPixels(jmeImage);
 	}
 	
+	/**
+	 * Copies a jME image into a new JavaFX image. RGB8, BGR8, RGBA8, Luminance8 and Luminance16F 
+	 * are read straight from the image buffer and written a row at a time, other formats go 
+	 * through an ImageRaster pixel by pixel.
+	 * 
+	 * @param jmeImage
+	 * @return new WritableImage
+	 */
 	public static WritableImage copyPixels(com.jme3.texture.Image jmeImage){
-		ImageRaster r = ImageRaster.create(jmeImage);
-		
 		int width = jmeImage.getWidth();
 		int height = jmeImage.getHeight();
 		WritableImage writableImage = new WritableImage(width, height);
 		PixelWriter pixelWriter = writableImage.getPixelWriter();
+		
+		if (!copyPixelsBulk(jmeImage, pixelWriter)) {
+			copyPixelsPerPixel(jmeImage, pixelWriter);
+		}
+        return writableImage;
+	}
+	
+	private static boolean copyPixelsBulk(com.jme3.texture.Image jmeImage, PixelWriter pixelWriter){
+		Format format = jmeImage.getFormat();
+		ByteBuffer data = jmeImage.getData(0);
+		int width = jmeImage.getWidth();
+		int height = jmeImage.getHeight();
+		if (data == null || format.isCompressed()) {
+			return false;
+		}
+		int bytesPerPixel = format.getBitsPerPixel() / 8;
+		if (data.capacity() < width * height * bytesPerPixel) {
+			return false;
+		}
+		// duplicate() resets the byte order, which matters for the 16 bit formats
+		ByteBuffer source = data.duplicate().order(data.order());
+		source.clear();
+		
+		switch (format) {
+		case RGB8:
+			// same layout as the JavaFX byte RGB format, no conversion needed
+			source.limit(width * height * 3);
+			pixelWriter.setPixels(0, 0, width, height, PixelFormat.getByteRgbInstance(), source, width * 3);
+			return true;
+		case BGR8:
+		case RGBA8:
+		case Luminance8:
+		case Luminance16F:
+			break;
+		default:
+			return false;
+		}
+		
+		byte[] rowIn = new byte[width * bytesPerPixel];
+		byte[] rowOut = new byte[width * 4];
+		PixelFormat<ByteBuffer> bgra = PixelFormat.getByteBgraInstance();
+		for (int y = 0; y < height; y++) {
+			source.position(y * rowIn.length);
+			source.get(rowIn);
+			
+			for (int x = 0, i = 0, o = 0; x < width; x++, i += bytesPerPixel, o += 4) {
+				switch (format) {
+				case BGR8:
+					rowOut[o] = rowIn[i];
+					rowOut[o + 1] = rowIn[i + 1];
+					rowOut[o + 2] = rowIn[i + 2];
+					rowOut[o + 3] = (byte) 0xFF;
+					break;
+				case RGBA8:
+					rowOut[o] = rowIn[i + 2];
+					rowOut[o + 1] = rowIn[i + 1];
+					rowOut[o + 2] = rowIn[i];
+					rowOut[o + 3] = rowIn[i + 3];
+					break;
+				case Luminance8:
+					rowOut[o] = rowOut[o + 1] = rowOut[o + 2] = rowIn[i];
+					rowOut[o + 3] = (byte) 0xFF;
+					break;
+				default:
+					float luminance = FastMath.convertHalfToFloat(source.getShort(y * rowIn.length + i));
+					rowOut[o] = rowOut[o + 1] = rowOut[o + 2] = (byte) Math.round(FastMath.saturate(luminance) * 255);
+					rowOut[o + 3] = (byte) 0xFF;
+					break;
+				}
+			}
+			pixelWriter.setPixels(0, y, width, 1, bgra, rowOut, 0, rowOut.length);
+		}
+		return true;
+	}
+	
+	private static void copyPixelsPerPixel(com.jme3.texture.Image jmeImage, PixelWriter pixelWriter){
+		ImageRaster r = ImageRaster.create(jmeImage);
+		int width = jmeImage.getWidth();
+		int height = jmeImage.getHeight();
         
         for (int y = 0; y < height; y++){
             for (int x = 0; x < width; x++){
@@ -84,7 +173,128 @@ public class ImageUtil {
                 pixelWriter.setColor(x, y, color);
             }
         }
-        return writableImage;
+	}
+	
+	/**
+	 * Box filters a jME image down to at most width x height pixels and copies the result into a 
+	 * new JavaFX image. Each thumbnail pixel is the average of the block of source pixels it covers, 
+	 * and rows are computed in parallel, so only thumbnail sized buffers are allocated whatever the 
+	 * size of the source. Images that already fit are copied with {@link #copyPixels}.
+	 * 
+	 * @param jmeImage
+	 * @param width maximum width of the thumbnail
+	 * @param height maximum height of the thumbnail
+	 * @return new WritableImage
+	 */
+	public static WritableImage createThumbnail(com.jme3.texture.Image jmeImage, int width, int height){
+		int sourceWidth = jmeImage.getWidth();
+		int sourceHeight = jmeImage.getHeight();
+		int thumbWidth = Math.max(1, Math.min(width, sourceWidth));
+		int thumbHeight = Math.max(1, Math.min(height, sourceHeight));
+		if (thumbWidth == sourceWidth && thumbHeight == sourceHeight) {
+			return copyPixels(jmeImage);
+		}
+		
+		ByteBuffer data = jmeImage.getData(0);
+		Format format = jmeImage.getFormat();
+		boolean direct = data != null && isDirectlyReadable(format) 
+				&& data.capacity() >= sourceWidth * sourceHeight * (format.getBitsPerPixel() / 8);
+		ByteBuffer source = direct ? data.duplicate().order(data.order()) : null;
+		
+		byte[] bgra = new byte[thumbWidth * thumbHeight * 4];
+		IntStream.range(0, thumbHeight).parallel().forEach(ty -> {
+			// ImageRaster keeps per instance scratch state, so every row gets its own
+			ImageRaster raster = direct ? null : ImageRaster.create(jmeImage);
+			float[] rgba = new float[4];
+			int y0 = (int) ((long) ty * sourceHeight / thumbHeight);
+			int y1 = (int) ((long) (ty + 1) * sourceHeight / thumbHeight);
+			
+			for (int tx = 0; tx < thumbWidth; tx++) {
+				int x0 = (int) ((long) tx * sourceWidth / thumbWidth);
+				int x1 = (int) ((long) (tx + 1) * sourceWidth / thumbWidth);
+				float r = 0, g = 0, b = 0, a = 0;
+				for (int y = y0; y < y1; y++) {
+					for (int x = x0; x < x1; x++) {
+						if (direct) {
+							readPixel(source, format, y * sourceWidth + x, rgba);
+						} else {
+							ColorRGBA color = raster.getPixel(x, y);
+							rgba[0] = color.r;
+							rgba[1] = color.g;
+							rgba[2] = color.b;
+							rgba[3] = color.a;
+						}
+						r += rgba[0];
+						g += rgba[1];
+						b += rgba[2];
+						a += rgba[3];
+					}
+				}
+				float scale = 255f / ((x1 - x0) * (y1 - y0));
+				int o = (ty * thumbWidth + tx) * 4;
+				bgra[o] = toByte(b * scale);
+				bgra[o + 1] = toByte(g * scale);
+				bgra[o + 2] = toByte(r * scale);
+				bgra[o + 3] = toByte(a * scale);
+			}
+		});
+		
+		WritableImage writableImage = new WritableImage(thumbWidth, thumbHeight);
+		writableImage.getPixelWriter().setPixels(0, 0, thumbWidth, thumbHeight, PixelFormat.getByteBgraInstance(), 
+				bgra, 0, thumbWidth * 4);
+		return writableImage;
+	}
+	
+	private static boolean isDirectlyReadable(Format format){
+		switch (format) {
+		case RGB8:
+		case BGR8:
+		case RGBA8:
+		case Luminance8:
+		case Luminance16F:
+			return true;
+		default:
+			return false;
+		}
+	}
+	
+	/**
+	 * Reads pixel index of a buffer in one of the {@link #isDirectlyReadable} formats as 
+	 * r, g, b, a values in [0, 1]. Only absolute gets are used, so threads can share the buffer.
+	 */
+	private static void readPixel(ByteBuffer source, Format format, int index, float[] rgba){
+		switch (format) {
+		case RGB8:
+			rgba[0] = (source.get(index * 3) & 0xFF) / 255f;
+			rgba[1] = (source.get(index * 3 + 1) & 0xFF) / 255f;
+			rgba[2] = (source.get(index * 3 + 2) & 0xFF) / 255f;
+			rgba[3] = 1;
+			break;
+		case BGR8:
+			rgba[0] = (source.get(index * 3 + 2) & 0xFF) / 255f;
+			rgba[1] = (source.get(index * 3 + 1) & 0xFF) / 255f;
+			rgba[2] = (source.get(index * 3) & 0xFF) / 255f;
+			rgba[3] = 1;
+			break;
+		case RGBA8:
+			rgba[0] = (source.get(index * 4) & 0xFF) / 255f;
+			rgba[1] = (source.get(index * 4 + 1) & 0xFF) / 255f;
+			rgba[2] = (source.get(index * 4 + 2) & 0xFF) / 255f;
+			rgba[3] = (source.get(index * 4 + 3) & 0xFF) / 255f;
+			break;
+		case Luminance8:
+			rgba[0] = rgba[1] = rgba[2] = (source.get(index) & 0xFF) / 255f;
+			rgba[3] = 1;
+			break;
+		default:
+			rgba[0] = rgba[1] = rgba[2] = FastMath.saturate(FastMath.convertHalfToFloat(source.getShort(index * 2)));
+			rgba[3] = 1;
+			break;
+		}
+	}
+	
+	private static byte toByte(float value){
+		return (byte) Math.round(FastMath.clamp(value, 0, 255));
 	}
 	
     public static Texture loadTexureFromImageFile(File file)
@@ -131,6 +341,35 @@ public class ImageUtil {
 	    }
     }
     
+    /**
+     * Saves a texture as a PNG with its alpha channel, top row first, so that loading it back 
+     * through the asset manager (which flips Y) gives the same image.
+     * 
+     * @param texture
+     * @param file (PNG)
+     * @throws IOException
+     */
+    public static void saveTextureWithAlpha(Texture texture, File file) throws IOException
+    {
+    	com.jme3.texture.Image jmeimage = texture.getImage();
+    	ImageRaster raster = ImageRaster.create(jmeimage);
+    	int width = jmeimage.getWidth();
+    	int height = jmeimage.getHeight();
+    	BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    	ColorRGBA color = new ColorRGBA();
+    	for (int y = 0; y < height ; y++) {
+    		for (int x = 0; x < width ; x++) {
+    			raster.getPixel(x, y, color);
+    			int argb = (toByte(color.a * 255) & 0xFF) << 24 | (toByte(color.r * 255) & 0xFF) << 16 
+    					| (toByte(color.g * 255) & 0xFF) << 8 | (toByte(color.b * 255) & 0xFF);
+    			image.setRGB(x, height - 1 - y, argb);
+    		}
+    	}
+    	if (!ImageIO.write(image, "png", file)) {
+    		throw new IOException("No PNG writer available for " + file);
+    	}
+    }
+    
     /**
      * 
      * @param terrain
@@ -167,13 +406,33 @@ public class ImageUtil {
     
     public static void refreshImageView(ImageView imageView, Texture texture, int height, int width)
     {
-		Image image = ImageUtil.convertJmeTextureToJfxImage(texture);
+		Image image = ImageUtil.createThumbnail(texture.getImage(), width, height);
 		imageView.setImage(image);
 		imageView.setFitHeight(height);
 		imageView.setFitWidth(width);
     }
     
     /**
+     * Quantizes a grid of values in [0, 1] to a greyscale RGB8 texture. Values outside
+     * [0, 1] are clamped.
+     * 
+     * @param values grid of values, index = y * size + x
+     * @param size width and height of the grid
+     * @return new Texture
+     */
+    public static Texture createGreyscaleTexture(float[] values, int size) {
+    	ByteBuffer buffer = BufferUtils.createByteBuffer(size * size * 3);
+    	for (int i = 0; i < size * size; i++) {
+    		byte value = (byte) Math.round(Math.max(0, Math.min(1, values[i])) * 255);
+    		buffer.put(value).put(value).put(value);
+    	}
+    	buffer.flip();
+    	return new Texture2D(new com.jme3.texture.Image(Format.RGB8, size, size, buffer, null, ColorSpace.Linear));
+    }
+    
+    /**
+     * Weighted sum of two textures into a new BGR8 texture, see {@link #blend}. Textures 
+     * in formats blend can't read are combined through ImageRaster.
      * 
      * @param texture1
      * @param texture1ColorScalar
@@ -187,7 +446,13 @@ public class ImageUtil {
     	int size = image1.getWidth();
     	
     	com.jme3.texture.Image combinedImage = new com.jme3.texture.Image(Format.BGR8, size, size, 
-    			BufferUtils.createByteBuffer(size * size * 4), null, ColorSpace.Linear);
+    			BufferUtils.createByteBuffer(size * size * 3), null, ColorSpace.Linear);
+    	
+    	if (canBlend(image1) && canBlend(image2)) {
+    		blend(combinedImage, image1, texture1ColorScalar, image2, texture2ColorScalar, BlendOp.ADD, null);
+    		return new Texture2D(combinedImage);
+    	}
+    	
     	ImageRaster combineImageRaster = ImageRaster.create(combinedImage);
     	ImageRaster image1Raster = ImageRaster.create(image1);
     	ImageRaster image2Raster = ImageRaster.create(image2);
@@ -203,4 +468,147 @@ public class ImageUtil {
 		}
     	return new Texture2D(combinedImage);
     }
+    
+    /**
+     * Per channel operations of {@link ImageUtil#blend}, on a = image a * weight a 
+     * and b = image b * weight b
+     */
+    public enum BlendOp {
+    	/** a + b */
+    	ADD,
+    	/** a * b, channels taken as 0 - 1 */
+    	MULTIPLY,
+    	MAX,
+    	MIN,
+    	/** b, so with a mask: a + (b - a) * mask */
+    	LERP
+    }
+    
+    /**
+     * Adds b * weight to target in place, see {@link #blend}
+     */
+    public static void accumulate(com.jme3.texture.Image target, com.jme3.texture.Image b, float weight, BlendOp op, 
+    		com.jme3.texture.Image mask) {
+    	blend(target, target, 1, b, weight, op, mask);
+    }
+    
+    /**
+     * Blends images a and b channel by channel into dest, working directly on the image buffers: 
+     * dest = a + (op(a, b) - a) * mask, where a and b are already multiplied by their weights, 
+     * mask is the first channel of the mask image in 0 - 1 (1 without mask) and the result is 
+     * clamped to the byte range. dest may be a, to accumulate in place. 
+     * 
+     * All images must have the same size and one of the 8 bit per channel formats RGB8, BGR8, 
+     * RGBA8, BGRA8, ARGB8, ABGR8, Luminance8 or Luminance8Alpha8, not necessarily the same. 
+     * A missing alpha channel reads as 1, luminance reads as all three colors. Rows are blended in 
+     * parallel and nothing is allocated per pixel.
+     * 
+     * @param dest
+     * @param a
+     * @param weightA
+     * @param b
+     * @param weightB
+     * @param op
+     * @param mask or null
+     */
+    public static void blend(com.jme3.texture.Image dest, com.jme3.texture.Image a, float weightA, 
+    		com.jme3.texture.Image b, float weightB, BlendOp op, com.jme3.texture.Image mask) {
+    	int width = dest.getWidth();
+    	int height = dest.getHeight();
+    	for (com.jme3.texture.Image image : new com.jme3.texture.Image[] { dest, a, b, mask }) {
+    		if (image == null) {
+    			continue;
+    		}
+    		if (!canBlend(image)) {
+    			throw new UnsupportedOperationException("Can't blend images in format " + image.getFormat());
+    		}
+    		if (image.getWidth() != width || image.getHeight() != height) {
+    			throw new IllegalArgumentException("Images must all be " + width + "x" + height);
+    		}
+    	}
+    	
+    	int[] destLayout = getChannelLayout(dest.getFormat());
+    	int[] aLayout = getChannelLayout(a.getFormat());
+    	int[] bLayout = getChannelLayout(b.getFormat());
+    	int[] maskLayout = mask == null ? null : getChannelLayout(mask.getFormat());
+    	ByteBuffer destData = dest.getData(0);
+    	ByteBuffer aData = a.getData(0);
+    	ByteBuffer bData = b.getData(0);
+    	ByteBuffer maskData = mask == null ? null : mask.getData(0);
+    	// luminance stores one color, which is blended from red
+    	int[] destChannels = destLayout[1] == destLayout[3] 
+    			? (destLayout[4] < 0 ? new int[] { 0 } : new int[] { 0, 3 }) 
+    			: (destLayout[4] < 0 ? new int[] { 0, 1, 2 } : new int[] { 0, 1, 2, 3 });
+    	
+    	IntStream.range(0, height).parallel().forEach(y -> {
+    		for (int x = 0, index = y * width; x < width; x++, index++) {
+    			float m = maskData == null ? 1 : (maskData.get(index * maskLayout[0] + maskLayout[1]) & 0xFF) / 255f;
+    			for (int channel : destChannels) {
+    				float va = readChannel(aData, aLayout, index, channel) * weightA;
+    				float vb = readChannel(bData, bLayout, index, channel) * weightB;
+    				float value;
+    				switch (op) {
+    				case ADD:
+    					value = va + vb;
+    					break;
+    				case MULTIPLY:
+    					value = va * vb / 255f;
+    					break;
+    				case MAX:
+    					value = Math.max(va, vb);
+    					break;
+    				case MIN:
+    					value = Math.min(va, vb);
+    					break;
+    				default:
+    					value = vb;
+    					break;
+    				}
+    				value = va + (value - va) * m;
+    				destData.put(index * destLayout[0] + destLayout[1 + channel], toByte(value));
+    			}
+    		}
+    	});
+    	dest.setUpdateNeeded();
+    }
+    
+    /**
+     * @param image
+     * @return true if {@link #blend} can work on the image
+     */
+    public static boolean canBlend(com.jme3.texture.Image image) {
+    	return getChannelLayout(image.getFormat()) != null && image.getData(0) != null;
+    }
+    
+    /**
+     * @return {bytes per pixel, red, green, blue, alpha offset} of an 8 bit per channel format, 
+     * alpha -1 if there is none, or null for other formats
+     */
+    private static int[] getChannelLayout(Format format) {
+    	switch (format) {
+    	case RGB8:
+    		return new int[] { 3, 0, 1, 2, -1 };
+    	case BGR8:
+    		return new int[] { 3, 2, 1, 0, -1 };
+    	case RGBA8:
+    		return new int[] { 4, 0, 1, 2, 3 };
+    	case BGRA8:
+    		return new int[] { 4, 2, 1, 0, 3 };
+    	case ARGB8:
+    		return new int[] { 4, 1, 2, 3, 0 };
+    	case ABGR8:
+    		return new int[] { 4, 3, 2, 1, 0 };
+    	case Luminance8:
+    		return new int[] { 1, 0, 0, 0, -1 };
+    	case Luminance8Alpha8:
+    		return new int[] { 2, 0, 0, 0, 1 };
+    	default:
+    		return null;
+    	}
+    }
+    
+    private static float readChannel(ByteBuffer data, int[] layout, int index, int channel) {
+    	int offset = layout[1 + channel];
+    	return offset < 0 ? 255 : data.get(index * layout[0] + offset) & 0xFF;
+    }
 }
@@ -0,0 +1,181 @@
+/**
+ * Copyright 2020 DREAMWAGON LLC
+ *
+ *	Redistribution and use in source and binary forms, with or without modification, are permitted 
+ *  provided that the following conditions are met:
+ *
+ *		1. Redistributions of source code must retain the above copyright notice, this list of 
+ *		   conditions and the following disclaimer.
+ *
+ *   	2. Redistributions in binary form must reproduce the above copyright notice, this list of 
+ *   	   conditions and the following disclaimer in the documentation and/or other materials 
+ *         provided with the distribution.
+ *
+ *	   	3. Neither the name of the copyright holder nor the names of its contributors may be used to 
+ *		   endorse or promote products derived from this software without specific prior written permission.
+ *
+ *		THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+ *		IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ *		FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ *		FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT 
+ *		LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ *		HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT 
+ *		(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ *		OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.dreamwagon.terranova.util;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bounding.BoundingVolume;
+import com.jme3.material.Material;
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Matrix4f;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.util.BufferUtils;
+import com.jme3.util.TempVars;
+
+/**
+ * Builds hardware instancing data in the layout the jME instancing shaders (Instancing.glsllib) read, the 
+ * same as @InstancedGeometry writes: one mat4 per instance holding the columns of the world matrix, with 
+ * the inverse world rotation (for normals) in the w components.
+ * 
+ * @author J. Demarco
+ *
+ */
+public class InstancingUtil {
+
+	public static final int FLOATS_PER_INSTANCE = 16;
+	
+	/**
+	 * Whether every material of the model can be switched to hardware instancing (Lighting, Unshaded, PBRLighting)
+	 * 
+	 * @param spatial
+	 * @return
+	 */
+	public static boolean supportsInstancing(Spatial spatial) {
+		boolean[] supported = {true};
+		spatial.depthFirstTraversal(s -> {
+			if (s instanceof Geometry) {
+				Material material = ((Geometry) s).getMaterial();
+				if (material == null || material.getMaterialDef().getMaterialParam("UseInstancing") == null) {
+					supported[0] = false;
+				}
+			}
+		});
+		return supported[0];
+	}
+	
+	/**
+	 * Writes the instance data of one instance. Safe to call from several threads for different offsets
+	 * 
+	 * @param world world transform of the instance
+	 * @param store instance data
+	 * @param offset offset of the instance in the store
+	 */
+	public static void writeInstance(Transform world, float[] store, int offset) {
+		TempVars vars = TempVars.get();
+		try {
+			Matrix4f worldMatrix = vars.tempMat4;
+			Matrix3f rotation = vars.tempMat3;
+			Quaternion inverseRotation = vars.quat1;
+			worldMatrix.setTransform(world.getTranslation(), world.getScale(), world.getRotation().toRotationMatrix(rotation));
+			worldMatrix.toRotationMatrix(rotation);
+			rotation.invertLocal();
+			inverseRotation.fromRotationMatrix(rotation);
+			
+			store[offset] = worldMatrix.m00;
+			store[offset + 1] = worldMatrix.m10;
+			store[offset + 2] = worldMatrix.m20;
+			store[offset + 3] = inverseRotation.getX();
+			store[offset + 4] = worldMatrix.m01;
+			store[offset + 5] = worldMatrix.m11;
+			store[offset + 6] = worldMatrix.m21;
+			store[offset + 7] = inverseRotation.getY();
+			store[offset + 8] = worldMatrix.m02;
+			store[offset + 9] = worldMatrix.m12;
+			store[offset + 10] = worldMatrix.m22;
+			store[offset + 11] = inverseRotation.getZ();
+			store[offset + 12] = worldMatrix.m03;
+			store[offset + 13] = worldMatrix.m13;
+			store[offset + 14] = worldMatrix.m23;
+			store[offset + 15] = inverseRotation.getW();
+		} finally {
+			vars.release();
+		}
+	}
+	
+	/**
+	 * Creates a copy of the mesh that draws one instance per @FLOATS_PER_INSTANCE floats of instance data, 
+	 * in a single draw call. Vertex buffers are shared with the given mesh. The bound of the copy covers 
+	 * all instances in world space, so its geometry must keep an identity transform.
+	 * 
+	 * @param mesh
+	 * @param instanceData
+	 * @return
+	 */
+	public static Mesh createInstancedMesh(Mesh mesh, float[] instanceData) {
+		// Mesh.clone copies the vertex data, the buffers themselves are shared instead
+		Mesh instancedMesh = new Mesh();
+		instancedMesh.setMode(mesh.getMode());
+		for (VertexBuffer buffer : mesh.getBufferList()) {
+			instancedMesh.setBuffer(buffer);
+		}
+		if (mesh.getNumLodLevels() > 0) {
+			VertexBuffer[] lodLevels = new VertexBuffer[mesh.getNumLodLevels()];
+			for (int i = 0; i < lodLevels.length; i++) {
+				lodLevels[i] = mesh.getLodLevel(i);
+			}
+			instancedMesh.setLodLevels(lodLevels);
+		}
+		VertexBuffer instanceBuffer = new VertexBuffer(VertexBuffer.Type.InstanceData);
+		instanceBuffer.setInstanced(true);
+		instanceBuffer.setupData(VertexBuffer.Usage.Static, FLOATS_PER_INSTANCE, VertexBuffer.Format.Float, BufferUtils.createFloatBuffer(instanceData));
+		instancedMesh.setBuffer(instanceBuffer);
+		instancedMesh.setBound(computeBound(mesh, instanceData));
+		return instancedMesh;
+	}
+	
+	/**
+	 * Computes the world bound of all instances of a mesh, from the mesh bound transformed by each instance matrix
+	 * 
+	 * @param mesh
+	 * @param instanceData
+	 * @return
+	 */
+	public static BoundingBox computeBound(Mesh mesh, float[] instanceData) {
+		BoundingVolume bound = mesh.getBound();
+		BoundingBox meshBound;
+		if (bound instanceof BoundingBox) {
+			meshBound = (BoundingBox) bound;
+		}
+		else {
+			meshBound = new BoundingBox();
+			meshBound.computeFromPoints(mesh.getFloatBuffer(VertexBuffer.Type.Position));
+		}
+		if (instanceData.length == 0) {
+			return (BoundingBox) meshBound.clone(null);
+		}
+		Vector3f center = meshBound.getCenter();
+		Vector3f extent = meshBound.getExtent(null);
+		Vector3f min = new Vector3f(Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY);
+		Vector3f max = new Vector3f(Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY);
+		for (int offset = 0; offset < instanceData.length; offset += FLOATS_PER_INSTANCE) {
+			for (int row = 0; row < 3; row++) {
+				float m0 = instanceData[offset + row];
+				float m1 = instanceData[offset + 4 + row];
+				float m2 = instanceData[offset + 8 + row];
+				float c = m0 * center.x + m1 * center.y + m2 * center.z + instanceData[offset + 12 + row];
+				float e = Math.abs(m0) * extent.x + Math.abs(m1) * extent.y + Math.abs(m2) * extent.z;
+				min.set(row, Math.min(min.get(row), c - e));
+				max.set(row, Math.max(max.get(row), c + e));
+			}
+		}
+		return new BoundingBox(min, max);
+	}
+}
@@ -40,6 +40,21 @@ public class MathUtil {
 	public static double nextDouble(double min, double max, Random rInstance) {
 		return min + (max - min) * rInstance.nextDouble();
 	}	
+	
+	/**
+	 * Derives a well mixed seed from a base seed and an id (SplitMix64 finalizer), so that
+	 * each id gets its own independent, reproducible random sequence.
+	 * 
+	 * @param seed base seed
+	 * @param id id of the sequence, such as a terrain patch
+	 * @return long seed for a @Random
+	 */
+	public static long deriveSeed(long seed, long id) {
+		long z = seed * 0x9E3779B97F4A7C15L + id;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
 	/**
 	 * Takes value with its min and max bounds and returns a normalized value between 0 and 1
 	 * 
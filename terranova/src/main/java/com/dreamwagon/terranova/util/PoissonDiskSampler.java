@@ -0,0 +1,219 @@
+/**
+ * Copyright 2020 DREAMWAGON LLC
+ *
+ *	Redistribution and use in source and binary forms, with or without modification, are permitted 
+ *  provided that the following conditions are met:
+ *
+ *		1. Redistributions of source code must retain the above copyright notice, this list of 
+ *		   conditions and the following disclaimer.
+ *
+ *   	2. Redistributions in binary form must reproduce the above copyright notice, this list of 
+ *   	   conditions and the following disclaimer in the documentation and/or other materials 
+ *         provided with the distribution.
+ *
+ *	   	3. Neither the name of the copyright holder nor the names of its contributors may be used to 
+ *		   endorse or promote products derived from this software without specific prior written permission.
+ *
+ *		THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+ *		IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ *		FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ *		FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT 
+ *		LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ *		HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT 
+ *		(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ *		OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.dreamwagon.terranova.util;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * Poisson disk sampling of a rectangle (Bridson): points are at least minDistance apart and fill 
+ * the rectangle evenly. Accepted points are kept in a uniform grid of cells of minDistance / sqrt(2), 
+ * which hold at most one point each, so a candidate is checked against its 5x5 neighbouring cells only.
+ * 
+ * The grid is split in tiles that are sampled in parallel, in four passes of a checkerboard: tiles 
+ * of the same pass are a tile apart and never touch the same cells, while each tile checks its 
+ * candidates against the points its neighbours accepted in the earlier passes, so no points conflict 
+ * across tile borders. Every tile draws from its own @Random derived from the seed, so a seed always 
+ * gives the same points whatever the number of cores.
+ * 
+ * @author J. Demarco
+ *
+ */
+public class PoissonDiskSampler {
+
+	public static final int DEFAULT_TILE_CELLS = 64;
+	
+	private final float width;
+	private final float height;
+	private final float minDistance;
+	private final int maxAttempts;
+	private final float cellSize;
+	private final int columns;
+	private final int rows;
+	private final int tileCells;
+	private final int tileColumns;
+	private final int tileRows;
+	
+	public PoissonDiskSampler(float width, float height, float minDistance, int maxAttempts) {
+		this(width, height, minDistance, maxAttempts, DEFAULT_TILE_CELLS);
+	}
+	
+	/**
+	 * 
+	 * @param width width of the sampled rectangle
+	 * @param height height of the sampled rectangle
+	 * @param minDistance minimum distance between two points
+	 * @param maxAttempts candidates tried around a point before it is retired, 30 is the usual value
+	 * @param tileCells width and height of a tile in grid cells, at least 3
+	 */
+	public PoissonDiskSampler(float width, float height, float minDistance, int maxAttempts, int tileCells) {
+		if (width <= 0 || height <= 0 || minDistance <= 0) {
+			throw new IllegalArgumentException("Width, height and minDistance must be positive");
+		}
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("maxAttempts must be at least 1: " + maxAttempts);
+		}
+		if (tileCells < 3) {
+			throw new IllegalArgumentException("tileCells must be at least 3: " + tileCells);
+		}
+		this.width = width;
+		this.height = height;
+		this.minDistance = minDistance;
+		this.maxAttempts = maxAttempts;
+		this.cellSize = minDistance / (float) Math.sqrt(2);
+		this.columns = (int) Math.ceil(width / cellSize);
+		this.rows = (int) Math.ceil(height / cellSize);
+		this.tileCells = tileCells;
+		this.tileColumns = (columns + tileCells - 1) / tileCells;
+		this.tileRows = (rows + tileCells - 1) / tileCells;
+	}
+	
+	/**
+	 * 
+	 * @param seed
+	 * @return points as x,y pairs, in tile order
+	 */
+	public float[] sample(long seed) {
+		float[] gridX = new float[columns * rows];
+		float[] gridY = new float[columns * rows];
+		Arrays.fill(gridX, Float.NaN);
+		
+		float[][] tilePoints = new float[tileColumns * tileRows][];
+		for (int pass = 0; pass < 4; pass++) {
+			int passColumn = pass & 1;
+			int passRow = pass >> 1;
+			IntStream.range(0, tilePoints.length).parallel()
+				.filter(tile -> (tile % tileColumns & 1) == passColumn && (tile / tileColumns & 1) == passRow)
+				.forEach(tile -> tilePoints[tile] = sampleTile(tile, gridX, gridY, new Random(MathUtil.deriveSeed(seed, tile))));
+		}
+		
+		int count = 0;
+		for (float[] points : tilePoints) {
+			count += points.length;
+		}
+		float[] points = new float[count];
+		int offset = 0;
+		for (float[] tile : tilePoints) {
+			System.arraycopy(tile, 0, points, offset, tile.length);
+			offset += tile.length;
+		}
+		return points;
+	}
+	
+	private float[] sampleTile(int tile, float[] gridX, float[] gridY, Random random) {
+		int firstColumn = tile % tileColumns * tileCells;
+		int firstRow = tile / tileColumns * tileCells;
+		int lastColumn = Math.min(columns, firstColumn + tileCells) - 1;
+		int lastRow = Math.min(rows, firstRow + tileCells) - 1;
+		float minX = firstColumn * cellSize;
+		float minY = firstRow * cellSize;
+		float tileWidth = Math.min(width, (lastColumn + 1) * cellSize) - minX;
+		float tileHeight = Math.min(height, (lastRow + 1) * cellSize) - minY;
+		
+		float[] points = new float[64];
+		int count = 0;
+		int[] active = new int[32];
+		int activeCount = 0;
+		
+		//seed the tile until random seeds keep failing, so regions cut off by the neighbours get filled too
+		int failedSeeds = 0;
+		while (failedSeeds < maxAttempts) {
+			float seedX = minX + random.nextFloat() * tileWidth;
+			float seedY = minY + random.nextFloat() * tileHeight;
+			if (!accept(seedX, seedY, firstColumn, firstRow, lastColumn, lastRow, gridX, gridY)) {
+				failedSeeds++;
+				continue;
+			}
+			failedSeeds = 0;
+			if (count * 2 == points.length) {
+				points = Arrays.copyOf(points, points.length * 2);
+			}
+			points[count * 2] = seedX;
+			points[count * 2 + 1] = seedY;
+			active[activeCount++] = count++;
+			
+			while (activeCount > 0) {
+				int activeIndex = random.nextInt(activeCount);
+				int point = active[activeIndex];
+				boolean found = false;
+				for (int attempt = 0; attempt < maxAttempts && !found; attempt++) {
+					double angle = random.nextDouble() * Math.PI * 2;
+					double distance = minDistance * (1 + random.nextDouble());
+					float x = (float) (points[point * 2] + Math.cos(angle) * distance);
+					float y = (float) (points[point * 2 + 1] + Math.sin(angle) * distance);
+					if (accept(x, y, firstColumn, firstRow, lastColumn, lastRow, gridX, gridY)) {
+						if (count * 2 == points.length) {
+							points = Arrays.copyOf(points, points.length * 2);
+						}
+						if (activeCount == active.length) {
+							active = Arrays.copyOf(active, active.length * 2);
+						}
+						points[count * 2] = x;
+						points[count * 2 + 1] = y;
+						active[activeCount++] = count++;
+						found = true;
+					}
+				}
+				if (!found) {
+					active[activeIndex] = active[--activeCount];
+				}
+			}
+		}
+		return Arrays.copyOf(points, count * 2);
+	}
+	
+	/**
+	 * Stores the point in the grid if it is inside the tile and far enough from all points
+	 */
+	private boolean accept(float x, float y, int firstColumn, int firstRow, int lastColumn, int lastRow, float[] gridX, float[] gridY) {
+		if (x < 0 || y < 0 || x >= width || y >= height) {
+			return false;
+		}
+		int column = Math.min(columns - 1, (int) (x / cellSize));
+		int row = Math.min(rows - 1, (int) (y / cellSize));
+		if (column < firstColumn || column > lastColumn || row < firstRow || row > lastRow) {
+			return false;
+		}
+		float minDistanceSquared = minDistance * minDistance;
+		for (int r = Math.max(0, row - 2); r <= Math.min(rows - 1, row + 2); r++) {
+			for (int c = Math.max(0, column - 2); c <= Math.min(columns - 1, column + 2); c++) {
+				float otherX = gridX[r * columns + c];
+				if (Float.isNaN(otherX)) {
+					continue;
+				}
+				float dx = otherX - x;
+				float dy = gridY[r * columns + c] - y;
+				if (dx * dx + dy * dy < minDistanceSquared) {
+					return false;
+				}
+			}
+		}
+		gridX[row * columns + column] = x;
+		gridY[row * columns + column] = y;
+		return true;
+	}
+}
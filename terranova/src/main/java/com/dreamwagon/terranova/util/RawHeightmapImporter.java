@@ -0,0 +1,260 @@
+/**
+ * Copyright 2020 DREAMWAGON LLC
+ *
+ *	Redistribution and use in source and binary forms, with or without modification, are permitted 
+ *  provided that the following conditions are met:
+ *
+ *		1. Redistributions of source code must retain the above copyright notice, this list of 
+ *		   conditions and the following disclaimer.
+ *
+ *   	2. Redistributions in binary form must reproduce the above copyright notice, this list of 
+ *   	   conditions and the following disclaimer in the documentation and/or other materials 
+ *         provided with the distribution.
+ *
+ *	   	3. Neither the name of the copyright holder nor the names of its contributors may be used to 
+ *		   endorse or promote products derived from this software without specific prior written permission.
+ *
+ *		THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+ *		IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ *		FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ *		FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT 
+ *		LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ *		HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT 
+ *		(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ *		OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.dreamwagon.terranova.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import com.dreamwagon.terranova.util.HeightmapExporter.HeightmapFormat;
+
+/**
+ * Loads RAW R16 and R32F heightmaps, as written by {@link HeightmapExporter}, by memory mapping the 
+ * file. Rows are decoded, scaled and smoothed straight into the height array handed to the 
+ * TerrainQuad, so no image or intermediate copy of the whole map is created on the heap.
+ * 
+ * Heights follow ImageBasedHeightMap: R16 values 0 - 65535 become 0 - 255 * heightScale, R32F 
+ * values are multiplied by heightScale. Both formats store unscaled heights, as the exporter divides 
+ * them by the height scale, so a map imports back at the height scale it was exported with.
+ * 
+ * @author J. Demarco
+ *
+ */
+public class RawHeightmapImporter {
+
+	/**
+	 * 
+	 * @param file
+	 * @return the RAW format of the file from its extension (r16 or r32), or null if it is not a RAW heightmap
+	 */
+	public static HeightmapFormat getFormat(File file)
+	{
+		String name = file.getName().toLowerCase();
+		for (HeightmapFormat format : HeightmapFormat.values()) {
+			if (format != HeightmapFormat.PNG16 && name.endsWith("." + format.getExtension())) {
+				return format;
+			}
+		}
+		return null;
+	}
+	
+	/**
+	 * 
+	 * @param file RAW heightmap, see {@link #getFormat(File)}
+	 * @return width and height of the square heightmap in the file
+	 * @throws IOException if the file is not square or its size is not 2^n + 1, as a TerrainQuad needs
+	 */
+	public static int getSize(File file) throws IOException
+	{
+		HeightmapFormat format = requireFormat(file);
+		long samples = file.length() / bytesPerSample(format);
+		int size = (int) Math.round(Math.sqrt(samples));
+		if ((long) size * size * bytesPerSample(format) != file.length()) {
+			throw new IOException(file + " is not a square " + format.getDescription());
+		}
+		if (size < 3 || Integer.bitCount(size - 1) != 1) {
+			throw new IOException(file + " is " + size + "x" + size + ", the terrain size must be 2^n + 1 (such as 513 or 1025)");
+		}
+		return size;
+	}
+	
+	/**
+	 * Loads the heights of a RAW heightmap. Smoothing blends every height with the mean of the 
+	 * (2 * smoothRadius + 1)^2 neighbourhood around it, by smoothAmount, like AbstractHeightMap.smooth. 
+	 * The mean is computed from the unsmoothed heights with running sums, so its cost doesn't depend 
+	 * on the radius and only a few rows are kept besides the result.
+	 * 
+	 * @param file RAW heightmap, see {@link #getFormat(File)}
+	 * @param heightScale
+	 * @param smooth
+	 * @param smoothAmount in [0, 1]
+	 * @param smoothRadius
+	 * @return heights, index = y * size + x
+	 * @throws IOException
+	 */
+	public static float[] load(File file, float heightScale, boolean smooth, float smoothAmount, int smoothRadius) throws IOException
+	{
+		HeightmapFormat format = requireFormat(file);
+		int size = getSize(file);
+		
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+			RowReader rows = new RowReader(mapped, format, size, heightScale);
+			
+			float[] heights = new float[size * size];
+			if (!smooth || smoothAmount <= 0) {
+				float[] row = new float[size];
+				for (int y = 0; y < size; y++) {
+					rows.read(y, row);
+					System.arraycopy(row, 0, heights, y * size, size);
+				}
+			} else {
+				smoothRows(rows, size, Math.min(1, smoothAmount), Math.max(1, smoothRadius), heights);
+			}
+			return heights;
+		}
+	}
+	
+	/**
+	 * Samples a previewSize x previewSize grid of a RAW heightmap, nearest neighbour, without 
+	 * reading the rest of the file
+	 * 
+	 * @param file RAW heightmap, see {@link #getFormat(File)}
+	 * @param previewSize
+	 * @return unscaled heights mapped to 0 - 1 like R16 (R32F divided by 255, so 0 - 1 for maps in the usual 
+	 * range), independent of the height scale, index = y * previewSize + x
+	 * @throws IOException
+	 */
+	public static float[] loadPreview(File file, int previewSize) throws IOException
+	{
+		HeightmapFormat format = requireFormat(file);
+		int size = getSize(file);
+		
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+			mapped.order(ByteOrder.LITTLE_ENDIAN);
+			
+			float[] preview = new float[previewSize * previewSize];
+			for (int y = 0; y < previewSize; y++) {
+				int row = (int) ((long) y * size / previewSize);
+				for (int x = 0; x < previewSize; x++) {
+					int index = row * size + (int) ((long) x * size / previewSize);
+					preview[y * previewSize + x] = format == HeightmapFormat.RAW16 
+							? (mapped.getShort(index * 2) & 0xFFFF) / 65535f 
+							: mapped.getFloat(index * 4) / 255f;
+				}
+			}
+			return preview;
+		}
+	}
+	
+	private static void smoothRows(RowReader rows, int size, float amount, int radius, float[] heights)
+	{
+		// sums over the rows of the current window, per column
+		double[] columnSums = new double[size];
+		float[] row = new float[size];
+		for (int y = 0; y <= Math.min(radius, size - 1); y++) {
+			addRow(rows, y, row, columnSums, 1);
+		}
+		
+		for (int y = 0; y < size; y++) {
+			if (y > 0 && y + radius < size) {
+				addRow(rows, y + radius, row, columnSums, 1);
+			}
+			if (y - radius - 1 >= 0) {
+				addRow(rows, y - radius - 1, row, columnSums, -1);
+			}
+			int windowRows = Math.min(size - 1, y + radius) - Math.max(0, y - radius) + 1;
+			
+			rows.read(y, row);
+			double sum = 0;
+			for (int x = 0; x <= Math.min(radius, size - 1); x++) {
+				sum += columnSums[x];
+			}
+			for (int x = 0; x < size; x++) {
+				if (x > 0 && x + radius < size) {
+					sum += columnSums[x + radius];
+				}
+				if (x - radius - 1 >= 0) {
+					sum -= columnSums[x - radius - 1];
+				}
+				int windowColumns = Math.min(size - 1, x + radius) - Math.max(0, x - radius) + 1;
+				float mean = (float) (sum / (windowRows * windowColumns));
+				heights[y * size + x] = mean * amount + row[x] * (1 - amount);
+			}
+		}
+	}
+	
+	private static void addRow(RowReader rows, int y, float[] row, double[] columnSums, int sign)
+	{
+		rows.read(y, row);
+		for (int x = 0; x < row.length; x++) {
+			columnSums[x] += sign * row[x];
+		}
+	}
+	
+	private static HeightmapFormat requireFormat(File file)
+	{
+		HeightmapFormat format = getFormat(file);
+		if (format == null) {
+			throw new IllegalArgumentException(file + " is not a RAW R16 or R32F heightmap");
+		}
+		return format;
+	}
+	
+	private static int bytesPerSample(HeightmapFormat format)
+	{
+		return format == HeightmapFormat.RAW16 ? 2 : 4;
+	}
+	
+	/**
+	 * Decodes and scales single rows of the mapped file
+	 */
+	private static class RowReader {
+		private final ShortBuffer shorts;
+		private final FloatBuffer floats;
+		private final short[] shortRow;
+		private final int size;
+		private final float scale;
+		
+		RowReader(MappedByteBuffer mapped, HeightmapFormat format, int size, float heightScale) {
+			this.size = size;
+			if (format == HeightmapFormat.RAW16) {
+				shorts = mapped.asShortBuffer();
+				floats = null;
+				shortRow = new short[size];
+				scale = 255f / 65535f * heightScale;
+			} else {
+				shorts = null;
+				floats = mapped.asFloatBuffer();
+				shortRow = null;
+				scale = heightScale;
+			}
+		}
+		
+		void read(int y, float[] row) {
+			if (shorts != null) {
+				shorts.position(y * size);
+				shorts.get(shortRow);
+				for (int x = 0; x < size; x++) {
+					row[x] = (shortRow[x] & 0xFFFF) * scale;
+				}
+			} else {
+				floats.position(y * size);
+				floats.get(row);
+				for (int x = 0; x < size; x++) {
+					row[x] *= scale;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright 2020 DREAMWAGON LLC
+ *
+ *	Redistribution and use in source and binary forms, with or without modification, are permitted 
+ *  provided that the following conditions are met:
+ *
+ *		1. Redistributions of source code must retain the above copyright notice, this list of 
+ *		   conditions and the following disclaimer.
+ *
+ *   	2. Redistributions in binary form must reproduce the above copyright notice, this list of 
+ *   	   conditions and the following disclaimer in the documentation and/or other materials 
+ *         provided with the distribution.
+ *
+ *	   	3. Neither the name of the copyright holder nor the names of its contributors may be used to 
+ *		   endorse or promote products derived from this software without specific prior written permission.
+ *
+ *		THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+ *		IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ *		FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ *		FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT 
+ *		LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ *		HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT 
+ *		(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ *		OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.dreamwagon.terranova.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Picks a uniform random subset of the indices of a list (reservoir sampling, algorithm R), so that 
+ * every item has the same chance to survive regardless of its position in the list.
+ * 
+ * @author J. Demarco
+ *
+ */
+public class ReservoirSampler {
+
+	/**
+	 * Returns the indices of at most maxItems items out of size items, in ascending order.
+	 * 
+	 * @param size number of items
+	 * @param maxItems
+	 * @param random
+	 * @return int[] the sampled indices, or all indices if size is not larger than maxItems
+	 */
+	public static int[] sampleIndices(int size, int maxItems, Random random) {
+		if (maxItems < 0) {
+			throw new IllegalArgumentException("maxItems must not be negative: " + maxItems);
+		}
+		int[] reservoir = new int[Math.min(size, maxItems)];
+		for (int i = 0; i < reservoir.length; i++) {
+			reservoir[i] = i;
+		}
+		for (int i = reservoir.length; i < size; i++) {
+			int j = random.nextInt(i + 1);
+			if (j < maxItems) {
+				reservoir[j] = i;
+			}
+		}
+		//keep the original order, so results stay stable for a given seed
+		Arrays.sort(reservoir);
+		return reservoir;
+	}
+}
@@ -0,0 +1,210 @@
+/**
+ * Copyright 2020 DREAMWAGON LLC
+ *
+ *	Redistribution and use in source and binary forms, with or without modification, are permitted 
+ *  provided that the following conditions are met:
+ *
+ *		1. Redistributions of source code must retain the above copyright notice, this list of 
+ *		   conditions and the following disclaimer.
+ *
+ *   	2. Redistributions in binary form must reproduce the above copyright notice, this list of 
+ *   	   conditions and the following disclaimer in the documentation and/or other materials 
+ *         provided with the distribution.
+ *
+ *	   	3. Neither the name of the copyright holder nor the names of its contributors may be used to 
+ *		   endorse or promote products derived from this software without specific prior written permission.
+ *
+ *		THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR 
+ *		IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS 
+ *		FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE 
+ *		FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT 
+ *		LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS INTERRUPTION) 
+ *		HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT 
+ *		(INCLUDING NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED 
+ *		OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.dreamwagon.terranova.util;
+
+import java.util.stream.IntStream;
+
+/**
+ * Slope and curvature of a square heightmap, computed once from the height buffer so that splat 
+ * generators and spawners can look them up per texel instead of each re-reading the neighbours.
+ * Rows are computed in parallel. The field keeps a reference to the heights it was built from.
+ * 
+ * A field made by {@link #fromHeights(float[], int, float, float)} computes the full slope and 
+ * curvature arrays on first use only. Consumers that resample the field, like the @SplatEngine, 
+ * can instead compute the rows they need with {@link #computeRow(int, float[], float[])} and never 
+ * hold two more heightmap sized arrays (2 GB at 16385).
+ * 
+ * Gradients are central differences (one sided on the border). Slope is the angle of the gradient 
+ * in degrees, 0 flat to 90 vertical. Curvature is the 4 neighbour laplacian of the height: positive 
+ * in hollows and valleys, negative on ridges and peaks.
+ * 
+ * @author J. Demarco
+ *
+ */
+public class TerrainGradientField {
+
+	private final float[] heights;
+	private final int size;
+	private final float gradientScale;
+	private final float curvatureScale;
+	private volatile float[] slopes;
+	private volatile float[] curvatures;
+	
+	private TerrainGradientField(float[] heights, int size, float horizontalScale, float verticalScale) {
+		if (heights.length != size * size) {
+			throw new IllegalArgumentException("Heightmap has " + heights.length + " heights, expected " + size + "^2");
+		}
+		this.heights = heights;
+		this.size = size;
+		this.gradientScale = verticalScale / horizontalScale;
+		this.curvatureScale = verticalScale / (horizontalScale * horizontalScale);
+	}
+	
+	/**
+	 * 
+	 * @param heights heights, index = y * size + x
+	 * @param size width and height of the heightmap
+	 * @param horizontalScale world distance between two neighbouring heights
+	 * @param verticalScale world height of one height unit
+	 * @return new TerrainGradientField with its slopes and curvatures computed
+	 */
+	public static TerrainGradientField compute(float[] heights, int size, float horizontalScale, float verticalScale) {
+		TerrainGradientField field = new TerrainGradientField(heights, size, horizontalScale, verticalScale);
+		field.computeAll();
+		return field;
+	}
+	
+	/**
+	 * Same as {@link #compute(float[], int, float, float)}, but the slopes and curvatures are 
+	 * computed when they are first asked for
+	 * 
+	 * @return new TerrainGradientField
+	 */
+	public static TerrainGradientField fromHeights(float[] heights, int size, float horizontalScale, float verticalScale) {
+		return new TerrainGradientField(heights, size, horizontalScale, verticalScale);
+	}
+	
+	/**
+	 * Computes the slopes and curvatures of one heightmap row, from the heights alone
+	 * 
+	 * @param y heightmap row
+	 * @param rowSlopes size slopes in degrees
+	 * @param rowCurvatures size curvatures
+	 */
+	public void computeRow(int y, float[] rowSlopes, float[] rowCurvatures) {
+		int up = Math.max(0, y - 1) * size;
+		int down = Math.min(size - 1, y + 1) * size;
+		int rows = (down - up) / size;
+		int row = y * size;
+		for (int x = 0; x < size; x++) {
+			int left = Math.max(0, x - 1);
+			int right = Math.min(size - 1, x + 1);
+			float height = heights[row + x];
+			float hl = heights[row + left];
+			float hr = heights[row + right];
+			float hu = heights[up + x];
+			float hd = heights[down + x];
+			
+			float gradientX = right == left ? 0 : (hr - hl) / (right - left) * gradientScale;
+			float gradientY = rows == 0 ? 0 : (hd - hu) / rows * gradientScale;
+			rowSlopes[x] = (float) Math.toDegrees(Math.atan(Math.sqrt(gradientX * gradientX + gradientY * gradientY)));
+			rowCurvatures[x] = (hl + hr + hu + hd - 4 * height) * curvatureScale;
+		}
+	}
+	
+	private synchronized void computeAll() {
+		if (curvatures != null) {
+			return;
+		}
+		float[] allSlopes = new float[size * size];
+		float[] allCurvatures = new float[size * size];
+		IntStream.range(0, size).parallel().forEach(y -> {
+			float[] rowSlopes = new float[size];
+			float[] rowCurvatures = new float[size];
+			computeRow(y, rowSlopes, rowCurvatures);
+			System.arraycopy(rowSlopes, 0, allSlopes, y * size, size);
+			System.arraycopy(rowCurvatures, 0, allCurvatures, y * size, size);
+		});
+		slopes = allSlopes;
+		curvatures = allCurvatures;
+	}
+	
+	public float[] getHeights() {
+		return heights;
+	}
+	
+	public int getSize() {
+		return size;
+	}
+	
+	/**
+	 * @return slopes in degrees, index = y * size + x
+	 */
+	public float[] getSlopes() {
+		if (curvatures == null) {
+			computeAll();
+		}
+		return slopes;
+	}
+	
+	/**
+	 * @return curvatures, index = y * size + x
+	 */
+	public float[] getCurvatures() {
+		if (curvatures == null) {
+			computeAll();
+		}
+		return curvatures;
+	}
+	
+	/**
+	 * 
+	 * @param x heightmap column, clamped to the map
+	 * @param y heightmap row, clamped to the map
+	 * @return height interpolated between the four surrounding heights
+	 */
+	public float getHeight(float x, float y) {
+		if (size == 1) {
+			return heights[0];
+		}
+		float clampedX = Math.max(0, Math.min(size - 1, x));
+		float clampedY = Math.max(0, Math.min(size - 1, y));
+		int column = Math.min(size - 2, (int) clampedX);
+		int row = Math.min(size - 2, (int) clampedY);
+		float fractionX = clampedX - column;
+		float fractionY = clampedY - row;
+		int index = row * size + column;
+		float top = heights[index] + (heights[index + 1] - heights[index]) * fractionX;
+		float bottom = heights[index + size] + (heights[index + size + 1] - heights[index + size]) * fractionX;
+		return top + (bottom - top) * fractionY;
+	}
+	
+	/**
+	 * 
+	 * @param x heightmap column, clamped to the map
+	 * @param y heightmap row, clamped to the map
+	 * @return slope in degrees of the nearest height
+	 */
+	public float getSlope(float x, float y) {
+		return getSlopes()[nearestIndex(x, y)];
+	}
+	
+	/**
+	 * 
+	 * @param x heightmap column, clamped to the map
+	 * @param y heightmap row, clamped to the map
+	 * @return curvature of the nearest height
+	 */
+	public float getCurvature(float x, float y) {
+		return getCurvatures()[nearestIndex(x, y)];
+	}
+	
+	private int nearestIndex(float x, float y) {
+		int column = Math.max(0, Math.min(size - 1, Math.round(x)));
+		int row = Math.max(0, Math.min(size - 1, Math.round(y)));
+		return row * size + column;
+	}
+}
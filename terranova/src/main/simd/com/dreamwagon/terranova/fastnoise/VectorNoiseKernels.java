@@ -0,0 +1,637 @@
+package com.dreamwagon.terranova.fastnoise;
+
+import static com.dreamwagon.terranova.fastnoise.FastNoise.CUBIC_2D_BOUNDING;
+import static com.dreamwagon.terranova.fastnoise.FastNoise.CUBIC_3D_BOUNDING;
+import static com.dreamwagon.terranova.fastnoise.FastNoise.F2;
+import static com.dreamwagon.terranova.fastnoise.FastNoise.F3;
+import static com.dreamwagon.terranova.fastnoise.FastNoise.G2;
+import static com.dreamwagon.terranova.fastnoise.FastNoise.G3;
+import static com.dreamwagon.terranova.fastnoise.FastNoise.G33;
+import static com.dreamwagon.terranova.fastnoise.FastNoise.X_PRIME;
+import static com.dreamwagon.terranova.fastnoise.FastNoise.Y_PRIME;
+import static com.dreamwagon.terranova.fastnoise.FastNoise.Z_PRIME;
+
+import java.util.Arrays;
+
+import com.dreamwagon.terranova.fastnoise.FastNoise.FractalType;
+import com.dreamwagon.terranova.fastnoise.FastNoise.Interp;
+import com.dreamwagon.terranova.fastnoise.FastNoise.NoiseType;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Java Vector API versions of the FastNoise Value, Perlin, Simplex and Cubic kernels, 2D and 3D, with the FBM,
+ * Billow and RigidMulti fractals. One vector holds consecutive samples of a row.
+ *
+ * Every kernel performs the same float operations in the same order as its scalar counterpart in FastNoise,
+ * without fused multiply-add, and the gradient tables are selected with lane masks instead of lookups. Apart
+ * from the sign of zero, results are identical to the scalar code.
+ *
+ * Compiled from src/main/simd by the simd Maven profile and loaded reflectively by FastNoise.
+ */
+final class VectorNoiseKernels implements VectorKernels {
+
+    private static final VectorSpecies<Float> F = FloatVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> I = IntVector.SPECIES_PREFERRED;
+
+    private static final float G2_2 = 2 * G2;
+
+    VectorNoiseKernels() {
+        if (F.length() != I.length()) {
+            throw new UnsupportedOperationException("float and int vectors of different lengths");
+        }
+    }
+
+    @Override
+    public boolean fillRow2D(FastNoise noise, float[] out, int offset, float[] xs, float y, int width) {
+        return fillRow(noise, out, offset, xs, y, 0, false, width);
+    }
+
+    @Override
+    public boolean fillRow3D(FastNoise noise, float[] out, int offset, float[] xs, float y, float z, int width) {
+        return fillRow(noise, out, offset, xs, y, z, true, width);
+    }
+
+    private static boolean fillRow(FastNoise noise, float[] out, int offset, float[] xs, float y, float z, boolean is3D, int width) {
+        NoiseType noiseType = noise.getNoiseType();
+        Interp interp = noise.getInterp();
+        int seed = noise.getSeed();
+
+        switch (noiseType) {
+            case Value:
+            case Perlin:
+            case Simplex:
+            case Cubic:
+                row(noiseType, interp, seed, xs, y, z, is3D, out, offset, width);
+                return true;
+            case ValueFractal:
+            case PerlinFractal:
+            case SimplexFractal:
+            case CubicFractal:
+                break;
+            default:
+                return false;
+        }
+
+        // The fractal is computed an octave at a time over the whole row, so each row loop only holds one kernel
+        // and C2 can keep every vector in registers. Per sample, the operations are those of Single*Fractal*.
+        FractalType fractalType = noise.getFractalType();
+        int octaves = noise.getFractalOctaves();
+        float lacunarity = noise.getFractalLacunarity();
+        float gain = noise.getFractalGain();
+
+        float[] x = Arrays.copyOf(xs, width);
+        float[] octave = new float[width];
+        float amp = 1;
+
+        row(noiseType, interp, seed, x, y, z, is3D, octave, 0, width);
+
+        for (int i = 0; i < width; i++) {
+            float n = octave[i];
+            switch (fractalType) {
+                case Billow:
+                    out[offset + i] = Math.abs(n) * 2 - 1;
+                    break;
+                case RigidMulti:
+                    out[offset + i] = 1 - Math.abs(n);
+                    break;
+                default:
+                    out[offset + i] = n;
+                    break;
+            }
+        }
+
+        for (int o = 1; o < octaves; o++) {
+            for (int i = 0; i < width; i++) {
+                x[i] *= lacunarity;
+            }
+            y *= lacunarity;
+            z *= lacunarity;
+
+            amp *= gain;
+            row(noiseType, interp, ++seed, x, y, z, is3D, octave, 0, width);
+
+            for (int i = 0; i < width; i++) {
+                float n = octave[i];
+                switch (fractalType) {
+                    case Billow:
+                        out[offset + i] += (Math.abs(n) * 2 - 1) * amp;
+                        break;
+                    case RigidMulti:
+                        out[offset + i] -= (1 - Math.abs(n)) * amp;
+                        break;
+                    default:
+                        out[offset + i] += n * amp;
+                        break;
+                }
+            }
+        }
+
+        if (fractalType != FractalType.RigidMulti) {
+            float fractalBounding = noise.getFractalBounding();
+            for (int i = 0; i < width; i++) {
+                out[offset + i] *= fractalBounding;
+            }
+        }
+
+        return true;
+    }
+
+    private static void row(NoiseType noiseType, Interp interp, int seed, float[] xs, float y, float z, boolean is3D,
+                            float[] out, int offset, int width) {
+        switch (noiseType) {
+            case Value:
+            case ValueFractal:
+                if (is3D) valueRow(interp, seed, xs, y, z, out, offset, width);
+                else valueRow(interp, seed, xs, y, out, offset, width);
+                break;
+            case Perlin:
+            case PerlinFractal:
+                if (is3D) perlinRow(interp, seed, xs, y, z, out, offset, width);
+                else perlinRow(interp, seed, xs, y, out, offset, width);
+                break;
+            case Simplex:
+            case SimplexFractal:
+                if (is3D) simplexRow(seed, xs, y, z, out, offset, width);
+                else simplexRow(seed, xs, y, out, offset, width);
+                break;
+            default:
+                if (is3D) cubicRow(seed, xs, y, z, out, offset, width);
+                else cubicRow(seed, xs, y, out, offset, width);
+                break;
+        }
+    }
+
+    // Row loops, one per kernel. The last partial vector is loaded and stored with a lane mask.
+
+    private static void valueRow(Interp interp, int seed, float[] xs, float y, float[] out, int offset, int width) {
+        FloatVector yv = FloatVector.broadcast(F, y);
+        int i = 0;
+        for (; i < F.loopBound(width); i += F.length()) {
+            value(interp, seed, FloatVector.fromArray(F, xs, i), yv).intoArray(out, offset + i);
+        }
+        if (i < width) {
+            VectorMask<Float> tail = F.indexInRange(i, width);
+            value(interp, seed, FloatVector.fromArray(F, xs, i, tail), yv).intoArray(out, offset + i, tail);
+        }
+    }
+
+    private static void valueRow(Interp interp, int seed, float[] xs, float y, float z, float[] out, int offset, int width) {
+        FloatVector yv = FloatVector.broadcast(F, y);
+        FloatVector zv = FloatVector.broadcast(F, z);
+        int i = 0;
+        for (; i < F.loopBound(width); i += F.length()) {
+            value(interp, seed, FloatVector.fromArray(F, xs, i), yv, zv).intoArray(out, offset + i);
+        }
+        if (i < width) {
+            VectorMask<Float> tail = F.indexInRange(i, width);
+            value(interp, seed, FloatVector.fromArray(F, xs, i, tail), yv, zv).intoArray(out, offset + i, tail);
+        }
+    }
+
+    private static void perlinRow(Interp interp, int seed, float[] xs, float y, float[] out, int offset, int width) {
+        FloatVector yv = FloatVector.broadcast(F, y);
+        int i = 0;
+        for (; i < F.loopBound(width); i += F.length()) {
+            perlin(interp, seed, FloatVector.fromArray(F, xs, i), yv).intoArray(out, offset + i);
+        }
+        if (i < width) {
+            VectorMask<Float> tail = F.indexInRange(i, width);
+            perlin(interp, seed, FloatVector.fromArray(F, xs, i, tail), yv).intoArray(out, offset + i, tail);
+        }
+    }
+
+    private static void perlinRow(Interp interp, int seed, float[] xs, float y, float z, float[] out, int offset, int width) {
+        FloatVector yv = FloatVector.broadcast(F, y);
+        FloatVector zv = FloatVector.broadcast(F, z);
+        int i = 0;
+        for (; i < F.loopBound(width); i += F.length()) {
+            perlin(interp, seed, FloatVector.fromArray(F, xs, i), yv, zv).intoArray(out, offset + i);
+        }
+        if (i < width) {
+            VectorMask<Float> tail = F.indexInRange(i, width);
+            perlin(interp, seed, FloatVector.fromArray(F, xs, i, tail), yv, zv).intoArray(out, offset + i, tail);
+        }
+    }
+
+    private static void simplexRow(int seed, float[] xs, float y, float[] out, int offset, int width) {
+        FloatVector yv = FloatVector.broadcast(F, y);
+        int i = 0;
+        for (; i < F.loopBound(width); i += F.length()) {
+            simplex(seed, FloatVector.fromArray(F, xs, i), yv).intoArray(out, offset + i);
+        }
+        if (i < width) {
+            VectorMask<Float> tail = F.indexInRange(i, width);
+            simplex(seed, FloatVector.fromArray(F, xs, i, tail), yv).intoArray(out, offset + i, tail);
+        }
+    }
+
+    private static void simplexRow(int seed, float[] xs, float y, float z, float[] out, int offset, int width) {
+        FloatVector yv = FloatVector.broadcast(F, y);
+        FloatVector zv = FloatVector.broadcast(F, z);
+        int i = 0;
+        for (; i < F.loopBound(width); i += F.length()) {
+            simplex(seed, FloatVector.fromArray(F, xs, i), yv, zv).intoArray(out, offset + i);
+        }
+        if (i < width) {
+            VectorMask<Float> tail = F.indexInRange(i, width);
+            simplex(seed, FloatVector.fromArray(F, xs, i, tail), yv, zv).intoArray(out, offset + i, tail);
+        }
+    }
+
+    private static void cubicRow(int seed, float[] xs, float y, float[] out, int offset, int width) {
+        FloatVector yv = FloatVector.broadcast(F, y);
+        int i = 0;
+        for (; i < F.loopBound(width); i += F.length()) {
+            cubic(seed, FloatVector.fromArray(F, xs, i), yv).intoArray(out, offset + i);
+        }
+        if (i < width) {
+            VectorMask<Float> tail = F.indexInRange(i, width);
+            cubic(seed, FloatVector.fromArray(F, xs, i, tail), yv).intoArray(out, offset + i, tail);
+        }
+    }
+
+    private static void cubicRow(int seed, float[] xs, float y, float z, float[] out, int offset, int width) {
+        FloatVector yv = FloatVector.broadcast(F, y);
+        FloatVector zv = FloatVector.broadcast(F, z);
+        int i = 0;
+        for (; i < F.loopBound(width); i += F.length()) {
+            cubic(seed, FloatVector.fromArray(F, xs, i), yv, zv).intoArray(out, offset + i);
+        }
+        if (i < width) {
+            VectorMask<Float> tail = F.indexInRange(i, width);
+            cubic(seed, FloatVector.fromArray(F, xs, i, tail), yv, zv).intoArray(out, offset + i, tail);
+        }
+    }
+
+    // Helpers
+
+    // FastFloor: (int) f, minus one where f < 0. Tested on the bits, f < 0 for 0x80000001 (-MIN_VALUE) to
+    // 0xff800000 (-infinity), so -0 and NaN are left alone like in the scalar code
+    private static IntVector floor(FloatVector f) {
+        IntVector bits = f.reinterpretAsInts();
+        IntVector t = (IntVector) f.convertShape(VectorOperators.F2I, I, 0);
+        return t.sub(1, bits.compare(VectorOperators.GT, Integer.MIN_VALUE).and(bits.compare(VectorOperators.LE, 0xff800000)));
+    }
+
+    private static FloatVector toFloat(IntVector v) {
+        return (FloatVector) v.convertShape(VectorOperators.I2F, F, 0);
+    }
+
+    private static FloatVector interp(Interp interp, FloatVector t) {
+        switch (interp) {
+            case Hermite:
+                return t.mul(t).mul(FloatVector.broadcast(F, 3).sub(t.mul(2)));
+            case Quintic:
+                return t.mul(t).mul(t).mul(t.mul(t.mul(6).sub(15)).add(10));
+            default:
+                return t;
+        }
+    }
+
+    private static FloatVector lerp(FloatVector a, FloatVector b, FloatVector t) {
+        return a.add(t.mul(b.sub(a)));
+    }
+
+    private static FloatVector cubicLerp(FloatVector a, FloatVector b, FloatVector c, FloatVector d, FloatVector t) {
+        FloatVector p = d.sub(c).sub(a.sub(b));
+        FloatVector tt = t.mul(t);
+        return tt.mul(t).mul(p).add(tt.mul(a.sub(b).sub(p))).add(t.mul(c.sub(a))).add(b);
+    }
+
+    // seed ^ X_PRIME * x ^ Y_PRIME * y (^ Z_PRIME * z), with the prime products passed in
+    private static IntVector hash(int seed, IntVector xp, IntVector yp) {
+        IntVector hash = xp.lanewise(VectorOperators.XOR, yp).lanewise(VectorOperators.XOR, seed);
+        hash = hash.mul(hash).mul(hash).mul(60493);
+        return hash.lanewise(VectorOperators.ASHR, 13).lanewise(VectorOperators.XOR, hash);
+    }
+
+    private static IntVector hash(int seed, IntVector xp, IntVector yp, IntVector zp) {
+        IntVector hash = xp.lanewise(VectorOperators.XOR, yp).lanewise(VectorOperators.XOR, zp).lanewise(VectorOperators.XOR, seed);
+        hash = hash.mul(hash).mul(hash).mul(60493);
+        return hash.lanewise(VectorOperators.ASHR, 13).lanewise(VectorOperators.XOR, hash);
+    }
+
+    private static FloatVector valCoord(int seed, IntVector xp, IntVector yp) {
+        IntVector n = xp.lanewise(VectorOperators.XOR, yp).lanewise(VectorOperators.XOR, seed);
+        return toFloat(n.mul(n).mul(n).mul(60493)).div((float) 2147483648.0);
+    }
+
+    private static FloatVector valCoord(int seed, IntVector xp, IntVector yp, IntVector zp) {
+        IntVector n = xp.lanewise(VectorOperators.XOR, yp).lanewise(VectorOperators.XOR, zp).lanewise(VectorOperators.XOR, seed);
+        return toFloat(n.mul(n).mul(n).mul(60493)).div((float) 2147483648.0);
+    }
+
+    // sign bit set where the given bit of hash is clear; xor with it negates a float exactly like neg()
+    private static IntVector negateUnless(IntVector hash, int bit, int shift) {
+        return hash.lanewise(VectorOperators.NOT).and(bit).lanewise(VectorOperators.LSHL, shift);
+    }
+
+    // GRAD_2D[hash & 7]: four diagonals for hash & 4 == 0, then -y, -x, y, x. Works on the float bits so every
+    // lane select is an int blend
+    private static FloatVector gradCoord(IntVector hash, FloatVector xd, FloatVector yd) {
+        IntVector xi = xd.reinterpretAsInts();
+        IntVector yi = yd.reinterpretAsInts();
+
+        FloatVector diagonal = xi.lanewise(VectorOperators.XOR, negateUnless(hash, 1, 31)).reinterpretAsFloats()
+                .add(yi.lanewise(VectorOperators.XOR, negateUnless(hash, 2, 30)).reinterpretAsFloats());
+        IntVector axis = yi.blend(xi, hash.and(1).compare(VectorOperators.NE, 0))
+                .lanewise(VectorOperators.XOR, negateUnless(hash, 2, 30));
+
+        return diagonal.reinterpretAsInts().blend(axis, hash.and(4).compare(VectorOperators.NE, 0)).reinterpretAsFloats();
+    }
+
+    // GRAD_3D[hash & 15]: (+-u) + (+-v) with u = x or y and v = y, x or z picked by the table index
+    private static FloatVector gradCoord(IntVector hash, FloatVector xd, FloatVector yd, FloatVector zd) {
+        IntVector xi = xd.reinterpretAsInts();
+        IntVector yi = yd.reinterpretAsInts();
+        IntVector h = hash.and(15);
+
+        IntVector u = xi.blend(yi, h.compare(VectorOperators.GE, 8));
+        IntVector v = zd.reinterpretAsInts().blend(yi, h.compare(VectorOperators.LT, 4))
+                .blend(xi, h.and(13).compare(VectorOperators.EQ, 12));
+
+        return u.lanewise(VectorOperators.XOR, hash.and(1).lanewise(VectorOperators.LSHL, 31)).reinterpretAsFloats()
+                .add(v.lanewise(VectorOperators.XOR, hash.and(2).lanewise(VectorOperators.LSHL, 30)).reinterpretAsFloats());
+    }
+
+    // Value Noise
+
+    private static FloatVector value(Interp interp, int seed, FloatVector x, FloatVector y) {
+        IntVector x0 = floor(x);
+        IntVector y0 = floor(y);
+
+        FloatVector xs = interp(interp, x.sub(toFloat(x0)));
+        FloatVector ys = interp(interp, y.sub(toFloat(y0)));
+
+        IntVector xp0 = x0.mul(X_PRIME);
+        IntVector yp0 = y0.mul(Y_PRIME);
+        IntVector xp1 = xp0.add(X_PRIME);
+        IntVector yp1 = yp0.add(Y_PRIME);
+
+        FloatVector xf0 = lerp(valCoord(seed, xp0, yp0), valCoord(seed, xp1, yp0), xs);
+        FloatVector xf1 = lerp(valCoord(seed, xp0, yp1), valCoord(seed, xp1, yp1), xs);
+
+        return lerp(xf0, xf1, ys);
+    }
+
+    private static FloatVector value(Interp interp, int seed, FloatVector x, FloatVector y, FloatVector z) {
+        IntVector x0 = floor(x);
+        IntVector y0 = floor(y);
+        IntVector z0 = floor(z);
+
+        FloatVector xs = interp(interp, x.sub(toFloat(x0)));
+        FloatVector ys = interp(interp, y.sub(toFloat(y0)));
+        FloatVector zs = interp(interp, z.sub(toFloat(z0)));
+
+        IntVector xp0 = x0.mul(X_PRIME);
+        IntVector yp0 = y0.mul(Y_PRIME);
+        IntVector zp0 = z0.mul(Z_PRIME);
+        IntVector xp1 = xp0.add(X_PRIME);
+        IntVector yp1 = yp0.add(Y_PRIME);
+        IntVector zp1 = zp0.add(Z_PRIME);
+
+        FloatVector xf00 = lerp(valCoord(seed, xp0, yp0, zp0), valCoord(seed, xp1, yp0, zp0), xs);
+        FloatVector xf10 = lerp(valCoord(seed, xp0, yp1, zp0), valCoord(seed, xp1, yp1, zp0), xs);
+        FloatVector xf01 = lerp(valCoord(seed, xp0, yp0, zp1), valCoord(seed, xp1, yp0, zp1), xs);
+        FloatVector xf11 = lerp(valCoord(seed, xp0, yp1, zp1), valCoord(seed, xp1, yp1, zp1), xs);
+
+        FloatVector yf0 = lerp(xf00, xf10, ys);
+        FloatVector yf1 = lerp(xf01, xf11, ys);
+
+        return lerp(yf0, yf1, zs);
+    }
+
+    // Gradient Noise
+
+    private static FloatVector perlin(Interp interp, int seed, FloatVector x, FloatVector y) {
+        IntVector x0 = floor(x);
+        IntVector y0 = floor(y);
+
+        FloatVector xd0 = x.sub(toFloat(x0));
+        FloatVector yd0 = y.sub(toFloat(y0));
+        FloatVector xd1 = xd0.sub(1);
+        FloatVector yd1 = yd0.sub(1);
+
+        FloatVector xs = interp(interp, xd0);
+        FloatVector ys = interp(interp, yd0);
+
+        IntVector xp0 = x0.mul(X_PRIME);
+        IntVector yp0 = y0.mul(Y_PRIME);
+        IntVector xp1 = xp0.add(X_PRIME);
+        IntVector yp1 = yp0.add(Y_PRIME);
+
+        FloatVector xf0 = lerp(gradCoord(hash(seed, xp0, yp0), xd0, yd0), gradCoord(hash(seed, xp1, yp0), xd1, yd0), xs);
+        FloatVector xf1 = lerp(gradCoord(hash(seed, xp0, yp1), xd0, yd1), gradCoord(hash(seed, xp1, yp1), xd1, yd1), xs);
+
+        return lerp(xf0, xf1, ys);
+    }
+
+    private static FloatVector perlin(Interp interp, int seed, FloatVector x, FloatVector y, FloatVector z) {
+        IntVector x0 = floor(x);
+        IntVector y0 = floor(y);
+        IntVector z0 = floor(z);
+
+        FloatVector xd0 = x.sub(toFloat(x0));
+        FloatVector yd0 = y.sub(toFloat(y0));
+        FloatVector zd0 = z.sub(toFloat(z0));
+        FloatVector xd1 = xd0.sub(1);
+        FloatVector yd1 = yd0.sub(1);
+        FloatVector zd1 = zd0.sub(1);
+
+        FloatVector xs = interp(interp, xd0);
+        FloatVector ys = interp(interp, yd0);
+        FloatVector zs = interp(interp, zd0);
+
+        IntVector xp0 = x0.mul(X_PRIME);
+        IntVector yp0 = y0.mul(Y_PRIME);
+        IntVector zp0 = z0.mul(Z_PRIME);
+        IntVector xp1 = xp0.add(X_PRIME);
+        IntVector yp1 = yp0.add(Y_PRIME);
+        IntVector zp1 = zp0.add(Z_PRIME);
+
+        FloatVector xf00 = lerp(gradCoord(hash(seed, xp0, yp0, zp0), xd0, yd0, zd0), gradCoord(hash(seed, xp1, yp0, zp0), xd1, yd0, zd0), xs);
+        FloatVector xf10 = lerp(gradCoord(hash(seed, xp0, yp1, zp0), xd0, yd1, zd0), gradCoord(hash(seed, xp1, yp1, zp0), xd1, yd1, zd0), xs);
+        FloatVector xf01 = lerp(gradCoord(hash(seed, xp0, yp0, zp1), xd0, yd0, zd1), gradCoord(hash(seed, xp1, yp0, zp1), xd1, yd0, zd1), xs);
+        FloatVector xf11 = lerp(gradCoord(hash(seed, xp0, yp1, zp1), xd0, yd1, zd1), gradCoord(hash(seed, xp1, yp1, zp1), xd1, yd1, zd1), xs);
+
+        FloatVector yf0 = lerp(xf00, xf10, ys);
+        FloatVector yf1 = lerp(xf01, xf11, ys);
+
+        return lerp(yf0, yf1, zs);
+    }
+
+    // Simplex Noise
+
+    private static FloatVector simplex(int seed, FloatVector x, FloatVector y) {
+        FloatVector t = x.add(y).mul(F2);
+        IntVector i = floor(x.add(t));
+        IntVector j = floor(y.add(t));
+
+        t = toFloat(i.add(j)).mul(G2);
+        FloatVector x0 = x.sub(toFloat(i).sub(t));
+        FloatVector y0 = y.sub(toFloat(j).sub(t));
+
+        // i1 = 1, j1 = 0 where x0 > y0, else i1 = 0, j1 = 1
+        VectorMask<Float> xMajor = x0.compare(VectorOperators.GT, y0);
+        FloatVector i1 = FloatVector.zero(F).blend(1, xMajor);
+        FloatVector j1 = FloatVector.broadcast(F, 1).blend(0, xMajor);
+
+        FloatVector x1 = x0.sub(i1).add(G2);
+        FloatVector y1 = y0.sub(j1).add(G2);
+        FloatVector x2 = x0.sub(1).add(G2_2);
+        FloatVector y2 = y0.sub(1).add(G2_2);
+
+        IntVector xp0 = i.mul(X_PRIME);
+        IntVector yp0 = j.mul(Y_PRIME);
+        IntVector xp2 = xp0.add(X_PRIME);
+        IntVector yp2 = yp0.add(Y_PRIME);
+        IntVector xp1 = xp0.blend(xp2, xMajor.cast(I));
+        IntVector yp1 = yp2.blend(yp0, xMajor.cast(I));
+
+        FloatVector n0 = simplexCorner(0.5f, x0, y0, hash(seed, xp0, yp0));
+        FloatVector n1 = simplexCorner(0.5f, x1, y1, hash(seed, xp1, yp1));
+        FloatVector n2 = simplexCorner(0.5f, x2, y2, hash(seed, xp2, yp2));
+
+        return n0.add(n1).add(n2).mul(50);
+    }
+
+    private static FloatVector simplexCorner(float radius, FloatVector x, FloatVector y, IntVector hash) {
+        FloatVector t = FloatVector.broadcast(F, radius).sub(x.mul(x)).sub(y.mul(y));
+        FloatVector tt = t.mul(t);
+        return tt.mul(tt).mul(gradCoord(hash, x, y)).blend(0, t.compare(VectorOperators.LT, 0));
+    }
+
+    private static FloatVector simplex(int seed, FloatVector x, FloatVector y, FloatVector z) {
+        FloatVector t = x.add(y).add(z).mul(F3);
+        IntVector i = floor(x.add(t));
+        IntVector j = floor(y.add(t));
+        IntVector k = floor(z.add(t));
+
+        t = toFloat(i.add(j).add(k)).mul(G3);
+        FloatVector x0 = x.sub(toFloat(i).sub(t));
+        FloatVector y0 = y.sub(toFloat(j).sub(t));
+        FloatVector z0 = z.sub(toFloat(k).sub(t));
+
+        // the six way corner ordering of SingleSimplex, written as masks
+        VectorMask<Float> xy = x0.compare(VectorOperators.GE, y0);
+        VectorMask<Float> yz = y0.compare(VectorOperators.GE, z0);
+        VectorMask<Float> xz = x0.compare(VectorOperators.GE, z0);
+
+        VectorMask<Float> i1 = xy.and(yz.or(xz));
+        VectorMask<Float> j1 = xy.not().and(yz);
+        VectorMask<Float> k1 = yz.not().and(xy.and(xz).not());
+        VectorMask<Float> i2 = xy.or(yz.and(xz));
+        VectorMask<Float> j2 = xy.not().or(yz);
+        VectorMask<Float> k2 = yz.not().or(xy.not().and(xz.not()));
+
+        FloatVector zero = FloatVector.zero(F);
+        FloatVector x1 = x0.sub(zero.blend(1, i1)).add(G3);
+        FloatVector y1 = y0.sub(zero.blend(1, j1)).add(G3);
+        FloatVector z1 = z0.sub(zero.blend(1, k1)).add(G3);
+        FloatVector x2 = x0.sub(zero.blend(1, i2)).add(F3);
+        FloatVector y2 = y0.sub(zero.blend(1, j2)).add(F3);
+        FloatVector z2 = z0.sub(zero.blend(1, k2)).add(F3);
+        FloatVector x3 = x0.add(G33);
+        FloatVector y3 = y0.add(G33);
+        FloatVector z3 = z0.add(G33);
+
+        IntVector xp0 = i.mul(X_PRIME);
+        IntVector yp0 = j.mul(Y_PRIME);
+        IntVector zp0 = k.mul(Z_PRIME);
+        IntVector xp3 = xp0.add(X_PRIME);
+        IntVector yp3 = yp0.add(Y_PRIME);
+        IntVector zp3 = zp0.add(Z_PRIME);
+
+        FloatVector n0 = simplexCorner(x0, y0, z0, hash(seed, xp0, yp0, zp0));
+        FloatVector n1 = simplexCorner(x1, y1, z1, hash(seed,
+                xp0.blend(xp3, i1.cast(I)), yp0.blend(yp3, j1.cast(I)), zp0.blend(zp3, k1.cast(I))));
+        FloatVector n2 = simplexCorner(x2, y2, z2, hash(seed,
+                xp0.blend(xp3, i2.cast(I)), yp0.blend(yp3, j2.cast(I)), zp0.blend(zp3, k2.cast(I))));
+        FloatVector n3 = simplexCorner(x3, y3, z3, hash(seed, xp3, yp3, zp3));
+
+        return n0.add(n1).add(n2).add(n3).mul(32);
+    }
+
+    private static FloatVector simplexCorner(FloatVector x, FloatVector y, FloatVector z, IntVector hash) {
+        FloatVector t = FloatVector.broadcast(F, (float) 0.6).sub(x.mul(x)).sub(y.mul(y)).sub(z.mul(z));
+        FloatVector tt = t.mul(t);
+        return tt.mul(tt).mul(gradCoord(hash, x, y, z)).blend(0, t.compare(VectorOperators.LT, 0));
+    }
+
+    // Cubic Noise
+
+    private static FloatVector cubic(int seed, FloatVector x, FloatVector y) {
+        IntVector x1 = floor(x);
+        IntVector y1 = floor(y);
+
+        FloatVector xs = x.sub(toFloat(x1));
+        FloatVector ys = y.sub(toFloat(y1));
+
+        // prime products of the lattice coordinates x1 - 1 .. x1 + 2 and y1 - 1 .. y1 + 2
+        IntVector xp1 = x1.mul(X_PRIME);
+        IntVector xp0 = xp1.sub(X_PRIME);
+        IntVector xp2 = xp1.add(X_PRIME);
+        IntVector xp3 = xp2.add(X_PRIME);
+        IntVector yp1 = y1.mul(Y_PRIME);
+
+        return cubicLerp(
+                cubicLine(seed, xp0, xp1, xp2, xp3, yp1.sub(Y_PRIME), xs),
+                cubicLine(seed, xp0, xp1, xp2, xp3, yp1, xs),
+                cubicLine(seed, xp0, xp1, xp2, xp3, yp1.add(Y_PRIME), xs),
+                cubicLine(seed, xp0, xp1, xp2, xp3, yp1.add(2 * Y_PRIME), xs),
+                ys).mul(CUBIC_2D_BOUNDING);
+    }
+
+    private static FloatVector cubicLine(int seed, IntVector xp0, IntVector xp1, IntVector xp2, IntVector xp3, IntVector yp, FloatVector xs) {
+        return cubicLerp(valCoord(seed, xp0, yp), valCoord(seed, xp1, yp), valCoord(seed, xp2, yp), valCoord(seed, xp3, yp), xs);
+    }
+
+    private static FloatVector cubic(int seed, FloatVector x, FloatVector y, FloatVector z) {
+        IntVector x1 = floor(x);
+        IntVector y1 = floor(y);
+        IntVector z1 = floor(z);
+
+        FloatVector xs = x.sub(toFloat(x1));
+        FloatVector ys = y.sub(toFloat(y1));
+        FloatVector zs = z.sub(toFloat(z1));
+
+        IntVector xp1 = x1.mul(X_PRIME);
+        IntVector xp0 = xp1.sub(X_PRIME);
+        IntVector xp2 = xp1.add(X_PRIME);
+        IntVector xp3 = xp2.add(X_PRIME);
+        IntVector yp1 = y1.mul(Y_PRIME);
+        IntVector yp0 = yp1.sub(Y_PRIME);
+        IntVector yp2 = yp1.add(Y_PRIME);
+        IntVector yp3 = yp2.add(Y_PRIME);
+        IntVector zp1 = z1.mul(Z_PRIME);
+
+        return cubicLerp(
+                cubicSlice(seed, xp0, xp1, xp2, xp3, yp0, yp1, yp2, yp3, zp1.sub(Z_PRIME), xs, ys),
+                cubicSlice(seed, xp0, xp1, xp2, xp3, yp0, yp1, yp2, yp3, zp1, xs, ys),
+                cubicSlice(seed, xp0, xp1, xp2, xp3, yp0, yp1, yp2, yp3, zp1.add(Z_PRIME), xs, ys),
+                cubicSlice(seed, xp0, xp1, xp2, xp3, yp0, yp1, yp2, yp3, zp1.add(2 * Z_PRIME), xs, ys),
+                zs).mul(CUBIC_3D_BOUNDING);
+    }
+
+    private static FloatVector cubicSlice(int seed, IntVector xp0, IntVector xp1, IntVector xp2, IntVector xp3,
+                                          IntVector yp0, IntVector yp1, IntVector yp2, IntVector yp3, IntVector zp,
+                                          FloatVector xs, FloatVector ys) {
+        return cubicLerp(
+                cubicLine(seed, xp0, xp1, xp2, xp3, yp0, zp, xs),
+                cubicLine(seed, xp0, xp1, xp2, xp3, yp1, zp, xs),
+                cubicLine(seed, xp0, xp1, xp2, xp3, yp2, zp, xs),
+                cubicLine(seed, xp0, xp1, xp2, xp3, yp3, zp, xs),
+                ys);
+    }
+
+    private static FloatVector cubicLine(int seed, IntVector xp0, IntVector xp1, IntVector xp2, IntVector xp3, IntVector yp, IntVector zp,
+                                        FloatVector xs) {
+        return cubicLerp(valCoord(seed, xp0, yp, zp), valCoord(seed, xp1, yp, zp), valCoord(seed, xp2, yp, zp),
+                valCoord(seed, xp3, yp, zp), xs);
+    }
+}
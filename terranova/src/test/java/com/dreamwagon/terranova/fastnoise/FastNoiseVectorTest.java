@@ -0,0 +1,88 @@
+package com.dreamwagon.terranova.fastnoise;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the bulk fill of {@link FastNoise} against per sample getNoise. When the vectorized kernels are loaded
+ * (simd profile on JDK 17+) this compares them with the scalar code, otherwise it covers the scalar row fill.
+ */
+public class FastNoiseVectorTest extends TestCase
+{
+    // not a multiple of any vector length, so the masked tail is used too
+    private static final int WIDTH = 37;
+    private static final int HEIGHT = 9;
+    private static final int DEPTH = 3;
+
+    private static final float TOLERANCE = 1e-5f;
+
+    private static final FastNoise.NoiseType[] NOISE_TYPES = {
+            FastNoise.NoiseType.Value, FastNoise.NoiseType.ValueFractal,
+            FastNoise.NoiseType.Perlin, FastNoise.NoiseType.PerlinFractal,
+            FastNoise.NoiseType.Simplex, FastNoise.NoiseType.SimplexFractal,
+            FastNoise.NoiseType.Cubic, FastNoise.NoiseType.CubicFractal,
+    };
+
+    public void testFillGrid2DMatchesGetNoise()
+    {
+        for (FastNoise noise : configurations()) {
+
+            float[] grid = new float[WIDTH * HEIGHT];
+            // negative origin and a step that lands on lattice points, to cover the floor of negative integers
+            noise.fillGrid2D(grid, -12, -3, 0.75f, 1.25f, WIDTH, HEIGHT);
+
+            for (int j = 0; j < HEIGHT; j++) {
+                for (int i = 0; i < WIDTH; i++) {
+                    float expected = noise.getNoise(-12 + i * 0.75f, -3 + j * 1.25f);
+                    assertEquals(describe(noise), expected, grid[j * WIDTH + i], TOLERANCE);
+                }
+            }
+        }
+    }
+
+    public void testFillGrid3DMatchesGetNoise()
+    {
+        for (FastNoise noise : configurations()) {
+
+            float[] grid = new float[WIDTH * HEIGHT * DEPTH];
+            noise.fillGrid3D(grid, -12, -3, -2, 0.75f, 1.25f, 2, WIDTH, HEIGHT, DEPTH);
+
+            for (int k = 0; k < DEPTH; k++) {
+                for (int j = 0; j < HEIGHT; j++) {
+                    for (int i = 0; i < WIDTH; i++) {
+                        float expected = noise.getNoise(-12 + i * 0.75f, -3 + j * 1.25f, -2 + k * 2f);
+                        assertEquals(describe(noise), expected, grid[(k * HEIGHT + j) * WIDTH + i], TOLERANCE);
+                    }
+                }
+            }
+        }
+    }
+
+    private static FastNoise[] configurations()
+    {
+        FastNoise.FractalType[] fractalTypes = FastNoise.FractalType.values();
+        FastNoise.Interp[] interps = FastNoise.Interp.values();
+        FastNoise[] noises = new FastNoise[NOISE_TYPES.length * fractalTypes.length * interps.length];
+        int index = 0;
+
+        for (FastNoise.NoiseType noiseType : NOISE_TYPES) {
+            for (FastNoise.FractalType fractalType : fractalTypes) {
+                for (FastNoise.Interp interp : interps) {
+                    FastNoise noise = new FastNoise(4321);
+                    noise.setNoiseType(noiseType);
+                    noise.setFractalType(fractalType);
+                    noise.setInterp(interp);
+                    noise.setFrequency(0.5f);
+                    noise.setFractalOctaves(4);
+                    noises[index++] = noise;
+                }
+            }
+        }
+        return noises;
+    }
+
+    private static String describe(FastNoise noise)
+    {
+        return noise.getNoiseType() + " " + noise.getFractalType() + " " + noise.getInterp()
+                + (FastNoise.isVectorized() ? " (vector)" : " (scalar)");
+    }
+}
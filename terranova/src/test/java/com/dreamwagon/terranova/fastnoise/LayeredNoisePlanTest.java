@@ -0,0 +1,87 @@
+package com.dreamwagon.terranova.fastnoise;
+
+import com.jme3.math.Vector2f;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link LayeredNoisePlan}.
+ */
+public class LayeredNoisePlanTest extends TestCase
+{
+    private static final int WIDTH = 67;
+    private static final int HEIGHT = 31;
+
+    /**
+     * The compiled plan must give exactly the same values as the uncompiled stack, sample by sample and in bulk.
+     */
+    public void testPlanMatchesLayeredNoise()
+    {
+        LayeredNoise layeredNoise = createStack();
+        LayeredNoisePlan plan = layeredNoise.compile();
+
+        float[] grid = new float[WIDTH * HEIGHT];
+        plan.fillGrid(grid, 0, -20.5f, 13, 1.5f, 2, WIDTH, HEIGHT);
+
+        float[] values = new float[plan.getSourceCount()];
+        float[] xy = new float[2];
+
+        for (int j = 0; j < HEIGHT; j++) {
+            for (int i = 0; i < WIDTH; i++) {
+                float x = -20.5f + i * 1.5f;
+                float y = 13 + j * 2f;
+                float expected = layeredNoise.evaluate(new Vector2f(x, y));
+
+                assertEquals(expected, plan.evaluate(x, y, values, xy), 0f);
+                assertEquals(expected, grid[j * WIDTH + i], 0f);
+            }
+        }
+    }
+
+    /**
+     * Dead layers are dropped and a layer used both as a layer and as a mask is only evaluated once.
+     */
+    public void testPlanSharesAndSkipsLayers()
+    {
+        LayeredNoisePlan plan = createStack().compile();
+
+        // base, detail (also the mask of ridges) and ridges; the disabled and zero strength layers are gone
+        assertEquals(3, plan.getSourceCount());
+    }
+
+    private LayeredNoise createStack()
+    {
+        NoiseLayer base = createLayer("base", 1, GradientPerturb.Off);
+        NoiseLayer detail = createLayer("detail", 2, GradientPerturb.Fractal);
+        detail.setScale(2, 0.5f);
+        detail.setInverted(true);
+        NoiseLayer ridges = createLayer("ridges", 3, GradientPerturb.On);
+        ridges.setStrength(0.25f);
+        NoiseLayer disabled = createLayer("disabled", 4, GradientPerturb.Off);
+        disabled.setEnabled(false);
+        NoiseLayer silent = createLayer("silent", 5, GradientPerturb.Off);
+        silent.setStrength(0);
+
+        LayeredNoise layeredNoise = new LayeredNoise();
+        layeredNoise.addLayer(base);
+        layeredNoise.addLayer(detail);
+        layeredNoise.addLayer(ridges);
+        layeredNoise.addLayer(disabled);
+        layeredNoise.addLayer(silent);
+        layeredNoise.addLayerMask(new LayerMask(ridges, detail));
+        layeredNoise.addLayerMask(new LayerMask(silent, base));
+        layeredNoise.setHardFloor(true);
+        layeredNoise.setHardFloorHeight(0.1f);
+        return layeredNoise;
+    }
+
+    private NoiseLayer createLayer(String name, int seed, GradientPerturb gradientPerturb)
+    {
+        NoiseLayer layer = new NoiseLayer(name);
+        layer.setSeed(seed);
+        layer.setNoiseType(FastNoise.NoiseType.SimplexFractal);
+        layer.setFrequency(0.05f);
+        layer.setGradientPerturb(gradientPerturb);
+        return layer;
+    }
+}
@@ -0,0 +1,144 @@
+package com.dreamwagon.terranova.fastnoise;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link NoiseConfig} and immutable {@link FastNoise} instances.
+ */
+public class NoiseConfigTest extends TestCase
+{
+    private static final int SIZE = 128;
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 4;
+
+    /**
+     * Many threads sampling one shared immutable FastNoise must all get the single threaded result.
+     */
+    public void testConcurrentSamplingMatchesSerial() throws Exception
+    {
+        for (FastNoise.NoiseType noiseType : FastNoise.NoiseType.values()) {
+
+            NoiseConfig config = createConfig(noiseType);
+            float[] expected = sample(new FastNoise(config));
+
+            FastNoise shared = new FastNoise(config);
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+
+            try {
+                List<Future<float[][]>> futures = new ArrayList<>();
+                for (int t = 0; t < THREADS; t++) {
+                    futures.add(executor.submit(new Callable<float[][]>() {
+                        @Override
+                        public float[][] call() throws Exception
+                        {
+                            start.await();
+                            float[][] results = new float[ROUNDS][];
+                            for (int r = 0; r < ROUNDS; r++) {
+                                results[r] = sample(shared);
+                            }
+                            return results;
+                        }
+                    }));
+                }
+                start.countDown();
+
+                for (Future<float[][]> future : futures) {
+                    for (float[] result : future.get()) {
+                        assertTrue(noiseType.toString(), Arrays.equals(expected, result));
+                    }
+                }
+            }
+            finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    /**
+     * A FastNoise built from a configuration rejects changes, and a mutable one round trips through toConfig.
+     */
+    public void testImmutableFastNoise()
+    {
+        NoiseConfig config = createConfig(FastNoise.NoiseType.Cellular);
+        FastNoise noise = new FastNoise(config);
+
+        assertTrue(noise.isImmutable());
+        assertSame(config, noise.toConfig());
+        try {
+            noise.setSeed(1);
+            fail("expected UnsupportedOperationException");
+        }
+        catch (UnsupportedOperationException expected) {
+        }
+
+        FastNoise mutable = new FastNoise(42);
+        mutable.setNoiseType(FastNoise.NoiseType.PerlinFractal);
+        mutable.setFractalOctaves(5);
+        mutable.setFractalGain(0.4f);
+
+        assertFalse(mutable.isImmutable());
+        assertTrue(Arrays.equals(sample(mutable), sample(new FastNoise(mutable.toConfig()))));
+    }
+
+    public void testValidation()
+    {
+        assertInvalid(NoiseConfig.builder().fractalOctaves(0));
+        assertInvalid(NoiseConfig.builder().frequency(Float.NaN));
+        assertInvalid(NoiseConfig.builder().noiseType(null));
+        assertInvalid(NoiseConfig.builder().cellularReturnType(FastNoise.CellularReturnType.NoiseLookup));
+    }
+
+    private void assertInvalid(NoiseConfig.Builder builder)
+    {
+        try {
+            builder.build();
+            fail("expected IllegalArgumentException");
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static NoiseConfig createConfig(FastNoise.NoiseType noiseType)
+    {
+        NoiseConfig lookup = NoiseConfig.builder()
+                .frequency(0.2f)
+                .build();
+
+        return NoiseConfig.builder()
+                .seed(1234)
+                .frequency(0.03f)
+                .noiseType(noiseType)
+                .fractalOctaves(4)
+                .cellularReturnType(FastNoise.CellularReturnType.NoiseLookup)
+                .cellularNoiseLookup(lookup)
+                .gradientPerturbAmp(30)
+                .build();
+    }
+
+    private static float[] sample(FastNoise noise)
+    {
+        float[] values = new float[SIZE * SIZE * 2];
+        float[] xy = new float[2];
+        int index = 0;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                xy[0] = x;
+                xy[1] = y;
+                noise.gradientPerturbFractal2D(xy);
+                values[index++] = noise.getNoise(xy[0], xy[1]);
+                values[index++] = noise.getNoise(x, y, 0.5f);
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,217 @@
+package com.dreamwagon.terranova.fastnoise;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.jme3.math.Vector2f;
+import com.jme3.math.Vector3f;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for {@link NoiseLayer}.
+ */
+public class NoiseLayerTest extends TestCase
+{
+    private static final int SIZE = 257;
+
+    // looked up once, getThreadMXBean itself allocates and would count against the measured code
+    private static final com.sun.management.ThreadMXBean THREAD_MX_BEAN =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private ForkJoinPool pool;
+
+    @Override
+    protected void setUp()
+    {
+        pool = new ForkJoinPool(4);
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * The tiled fork/join texture must be bit-identical to the serial one for a given seed.
+     */
+    public void testParallelTextureMatchesSerial()
+    {
+        for (GradientPerturb gradientPerturb : GradientPerturb.values()) {
+            for (boolean get3d : new boolean[] { false, true }) {
+                NoiseLayer layer = createLayer(gradientPerturb, get3d);
+
+                ByteBuffer serial = layer.generateTexture(SIZE, null).getImage().getData(0);
+                ByteBuffer parallel = layer.generateTexture(SIZE, pool).getImage().getData(0);
+
+                assertEquals(gradientPerturb + " 3d=" + get3d, serial, parallel);
+            }
+        }
+    }
+
+    /**
+     * Sampling a perturbed layer with a reused scratch array must not allocate per sample.
+     */
+    public void testEvaluateDoesNotAllocate()
+    {
+        NoiseLayer layer = createLayer(GradientPerturb.Fractal, false);
+        float[] xy = new float[2];
+
+        // warm up, so class loading and compilation are not measured
+        float sum = sampleLayer(layer, xy, 100000);
+
+        long before = allocatedBytes();
+        sum += sampleLayer(layer, xy, 100000);
+        long allocated = allocatedBytes() - before;
+
+        assertTrue("allocated " + allocated + " bytes for 100000 samples", allocated < 1024);
+        assertFalse(Float.isNaN(sum));
+    }
+
+    /**
+     * A perturbed texture should only allocate its buffers, not objects per pixel.
+     */
+    public void testPerturbedTextureAllocationIsPerTileNotPerPixel()
+    {
+        NoiseLayer layer = createLayer(GradientPerturb.Fractal, false);
+        layer.generateTexture(SIZE, null);
+
+        long before = allocatedBytes();
+        layer.generateTexture(SIZE, null);
+        long allocated = allocatedBytes() - before;
+
+        // the float[size * size] noise buffer plus a little slack (the texture buffer itself is direct)
+        long expected = 4L * SIZE * SIZE + 16 * 1024;
+        assertTrue("allocated " + allocated + " bytes, expected at most " + expected, allocated < expected);
+    }
+
+    /**
+     * The Vector overloads of gradient perturb must move a point exactly like the float[] variants.
+     */
+    public void testVectorPerturbMatchesArrayPerturb()
+    {
+        FastNoise noise = new FastNoise(1234);
+        noise.setFractalOctaves(4);
+        noise.setGradientPerturbAmp(30);
+        float[] xy = new float[2];
+        float[] xyz = new float[3];
+
+        for (int i = 0; i < 1000; i++) {
+            float x = i * 0.37f - 100, y = i * 0.11f, z = -i * 0.23f;
+
+            Vector2f v2 = new Vector2f(x, y);
+            xy[0] = x;
+            xy[1] = y;
+            noise.gradientPerturb(v2);
+            noise.gradientPerturb2D(xy);
+            assertEquals(xy[0], v2.x, 0f);
+            assertEquals(xy[1], v2.y, 0f);
+
+            noise.gradientPerturbFractal(v2);
+            noise.gradientPerturbFractal2D(xy);
+            assertEquals(xy[0], v2.x, 0f);
+            assertEquals(xy[1], v2.y, 0f);
+
+            Vector3f v3 = new Vector3f(x, y, z);
+            xyz[0] = x;
+            xyz[1] = y;
+            xyz[2] = z;
+            noise.gradientPerturb(v3);
+            noise.gradientPerturb3D(xyz);
+            noise.gradientPerturbFractal(v3);
+            noise.gradientPerturbFractal3D(xyz);
+            assertEquals(xyz[0], v3.x, 0f);
+            assertEquals(xyz[1], v3.y, 0f);
+            assertEquals(xyz[2], v3.z, 0f);
+        }
+    }
+
+    /**
+     * Accumulated float values must agree with the 8 bit texture of the same layer, scaled by the weight.
+     */
+    public void testAccumulateNoiseMatchesTexture()
+    {
+        NoiseLayer layer = createLayer(GradientPerturb.Off, false);
+        ByteBuffer texture = layer.generateTexture(SIZE, pool).getImage().getData(0);
+
+        float[] scratch = new float[SIZE * SIZE];
+        float[] acc = new float[SIZE * SIZE];
+        layer.accumulateNoise(SIZE, 0.5f, scratch, acc, pool);
+        layer.accumulateNoise(SIZE, 0.5f, scratch, acc, null);
+
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            int expected = texture.get(i * 3) & 0xff;
+            assertEquals("pixel " + i, expected, acc[i] * 255, 1f);
+        }
+    }
+
+    /**
+     * Every row is reported exactly once, whether or not the layer is evaluated on a pool.
+     */
+    public void testAccumulateNoiseReportsEveryRow()
+    {
+        NoiseLayer layer = createLayer(GradientPerturb.On, false);
+        float[] scratch = new float[SIZE * SIZE];
+        float[] acc = new float[SIZE * SIZE];
+
+        for (ForkJoinPool p : new ForkJoinPool[] { pool, null }) {
+            AtomicInteger rows = new AtomicInteger();
+            layer.accumulateNoise(SIZE, 1, scratch, acc, p, rows::addAndGet);
+            assertEquals(SIZE, rows.get());
+        }
+    }
+
+    /**
+     * A monitor throwing CancellationException stops the evaluation before all rows are computed.
+     */
+    public void testAccumulateNoiseCancels()
+    {
+        NoiseLayer layer = createLayer(GradientPerturb.Off, false);
+        float[] scratch = new float[SIZE * SIZE];
+        float[] acc = new float[SIZE * SIZE];
+
+        for (ForkJoinPool p : new ForkJoinPool[] { pool, null }) {
+            AtomicInteger rows = new AtomicInteger();
+            try {
+                layer.accumulateNoise(SIZE, 1, scratch, acc, p, units -> {
+                    rows.addAndGet(units);
+                    throw new CancellationException();
+                });
+                fail("expected CancellationException");
+            }
+            catch (CancellationException expected) {
+                assertTrue(rows.get() < SIZE);
+            }
+        }
+    }
+
+    private float sampleLayer(NoiseLayer layer, float[] xy, int samples)
+    {
+        float sum = 0;
+        for (int i = 0; i < samples; i++) {
+            sum += layer.evaluate(i % 512, i / 512, xy);
+        }
+        return sum;
+    }
+
+    private long allocatedBytes()
+    {
+        return THREAD_MX_BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private NoiseLayer createLayer(GradientPerturb gradientPerturb, boolean get3d)
+    {
+        NoiseLayer layer = new NoiseLayer("test");
+        layer.setSeed(1234);
+        layer.setNoiseType(FastNoise.NoiseType.SimplexFractal);
+        layer.setFractalOctaves(4);
+        layer.setGradientPerturb(gradientPerturb);
+        layer.setGradientPerturbAmp(30);
+        layer.setGet3d(get3d);
+        return layer;
+    }
+}
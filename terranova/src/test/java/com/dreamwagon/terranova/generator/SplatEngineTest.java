@@ -0,0 +1,148 @@
+package com.dreamwagon.terranova.generator;
+
+import java.nio.ByteBuffer;
+
+import com.dreamwagon.terranova.util.Rangef;
+import com.dreamwagon.terranova.util.TerrainGradientField;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks layer placement and per texel normalization of {@link SplatEngine}.
+ */
+public class SplatEngineTest extends TestCase
+{
+    private static final int SIZE = 17;
+
+    private TerrainGradientField field;
+    private ByteBuffer[] alphaMaps;
+
+    @Override
+    protected void setUp()
+    {
+        // flat heightmap whose height is the row index
+        float[] heights = new float[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                heights[y * SIZE + x] = y;
+            }
+        }
+        field = TerrainGradientField.compute(heights, SIZE, 1, 1);
+        alphaMaps = new ByteBuffer[SplatEngine.ALPHA_MAPS];
+        for (int i = 0; i < alphaMaps.length; i++) {
+            alphaMaps[i] = ByteBuffer.allocate(SIZE * SIZE * 4);
+        }
+    }
+
+    private static SplatRule heightRule(float min, float max)
+    {
+        return new SplatRule(1, new Rangef(min, max), 0, new Rangef(0, 90), 0, new Rangef(-50, 50), 0);
+    }
+
+    private int weight(int layer, int x, int row)
+    {
+        // heightmap row k is image row SIZE - 1 - k
+        int index = ((SIZE - 1 - row) * SIZE + x) * 4 + layer % SplatEngine.LAYERS_PER_MAP;
+        return alphaMaps[layer / SplatEngine.LAYERS_PER_MAP].get(index) & 0xFF;
+    }
+
+    public void testLayersAcrossAlphaMaps()
+    {
+        SplatRule[] rules = new SplatRule[SplatEngine.MAX_LAYERS];
+        rules[0] = heightRule(0, 7);
+        rules[5] = heightRule(8, 11);
+        rules[11] = heightRule(12, 16);
+        SplatEngine.fill(field, rules, alphaMaps);
+
+        for (int row = 0; row < SIZE; row++) {
+            int expected = row <= 7 ? 0 : row <= 11 ? 5 : 11;
+            for (int layer = 0; layer < SplatEngine.MAX_LAYERS; layer++) {
+                assertEquals(layer == expected ? 255 : 0, weight(layer, 3, row));
+            }
+        }
+    }
+
+    public void testNormalizedOverlap()
+    {
+        SplatRule[] rules = new SplatRule[SplatEngine.MAX_LAYERS];
+        rules[1] = heightRule(0, 16);
+        rules[2] = new SplatRule(0.5f, new Rangef(0, 16), 0, new Rangef(0, 90), 0, new Rangef(-50, 50), 0);
+        SplatEngine.fill(field, rules, alphaMaps);
+
+        assertEquals(170, weight(1, 0, 4));
+        assertEquals(85, weight(2, 0, 4));
+        assertEquals(0, weight(0, 0, 4));
+    }
+
+    public void testBlendAndUncovered()
+    {
+        SplatRule[] rules = new SplatRule[SplatEngine.MAX_LAYERS];
+        rules[3] = new SplatRule(1, new Rangef(0, 4), 4, new Rangef(0, 90), 0, new Rangef(-50, 50), 0);
+        SplatEngine.fill(field, rules, alphaMaps);
+
+        // inside the blend band the only layer still gets all of the normalized weight
+        assertEquals(255, weight(3, 0, 6));
+        // no rule covers rows past the blend band, they go to layer 0
+        assertEquals(255, weight(0, 0, 9));
+        assertEquals(0, weight(3, 0, 9));
+    }
+
+    public void testDownsampledAlphaMaps()
+    {
+        SplatRule[] rules = new SplatRule[SplatEngine.MAX_LAYERS];
+        rules[0] = heightRule(0, 7);
+        rules[4] = heightRule(8, 16);
+        int size = 9;
+        ByteBuffer[] small = new ByteBuffer[SplatEngine.ALPHA_MAPS];
+        for (int i = 0; i < small.length; i++) {
+            small[i] = ByteBuffer.allocate(size * size * 4);
+        }
+        SplatEngine.fill(field, rules, small, size);
+
+        // alpha map row r samples heightmap row 2r, stored flipped
+        for (int row = 0; row < size; row++) {
+            int index = (size - 1 - row) * size * 4;
+            boolean high = 2 * row >= 8;
+            assertEquals(high ? 0 : 255, small[0].get(index) & 0xFF);
+            assertEquals(high ? 255 : 0, small[1].get(index) & 0xFF);
+        }
+        assertEquals(256, SplatEngine.resolveSize("256", 4097));
+        assertEquals(4097, SplatEngine.resolveSize(SplatEngine.HEIGHTMAP_RESOLUTION, 4097));
+    }
+
+    public void testLazyFieldMatchesComputedField()
+    {
+        float[] heights = new float[SIZE * SIZE];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = (float) (4 * Math.sin(i % SIZE * 0.7) * Math.cos(i / SIZE * 0.4));
+        }
+        SplatRule[] rules = new SplatRule[SplatEngine.MAX_LAYERS];
+        rules[0] = new SplatRule(1, new Rangef(-4, 4), 0, new Rangef(0, 30), 10, new Rangef(-50, 50), 0);
+        rules[6] = new SplatRule(1, new Rangef(-4, 4), 0, new Rangef(20, 90), 10, new Rangef(-50, 50), 0);
+        rules[9] = new SplatRule(1, new Rangef(-4, 4), 0, new Rangef(0, 90), 0, new Rangef(1, 50), 2);
+        TerrainGradientField computed = TerrainGradientField.compute(heights, SIZE, 1, 2);
+
+        // downsampled, equal and upsampled past one band of rows
+        for (int size : new int[] { 9, SIZE, 70 }) {
+            ByteBuffer[] expected = new ByteBuffer[SplatEngine.ALPHA_MAPS];
+            ByteBuffer[] lazy = new ByteBuffer[SplatEngine.ALPHA_MAPS];
+            for (int i = 0; i < expected.length; i++) {
+                expected[i] = ByteBuffer.allocate(size * size * 4);
+                lazy[i] = ByteBuffer.allocate(size * size * 4);
+            }
+            SplatEngine.fill(computed, rules, expected, size);
+            SplatEngine.fill(TerrainGradientField.fromHeights(heights, SIZE, 1, 2), rules, lazy, size);
+            for (int i = 0; i < expected.length; i++) {
+                assertEquals(expected[i], lazy[i]);
+            }
+        }
+    }
+
+    public void testRangeWeight()
+    {
+        assertEquals(1f, SplatRule.rangeWeight(5, 0, 10, 0), 0f);
+        assertEquals(0.5f, SplatRule.rangeWeight(12, 0, 10, 4), 1e-6f);
+        assertEquals(0.25f, SplatRule.rangeWeight(-3, 0, 10, 4), 1e-6f);
+        assertEquals(0f, SplatRule.rangeWeight(11, 0, 10, 0), 0f);
+    }
+}
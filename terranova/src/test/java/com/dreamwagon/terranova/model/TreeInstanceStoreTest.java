@@ -0,0 +1,79 @@
+package com.dreamwagon.terranova.model;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks growth, merging, selection and clearing of {@link TreeInstanceStore}.
+ */
+public class TreeInstanceStoreTest extends TestCase
+{
+    private static TreeInstanceStore store(int size, int offset)
+    {
+        TreeInstanceStore store = new TreeInstanceStore(1);
+        for (int i = 0; i < size; i++) {
+            int value = offset + i;
+            assertEquals(i, store.add(value, value + 0.25f, value + 0.5f, value * 0.01f, 1 + value * 0.1f, value % 5));
+        }
+        return store;
+    }
+
+    private static void assertInstance(TreeInstanceStore store, int index, int value)
+    {
+        assertEquals((float) value, store.getX(index), 0f);
+        assertEquals(value + 0.25f, store.getY(index), 0f);
+        assertEquals(value + 0.5f, store.getZ(index), 0f);
+        assertEquals(value * 0.01f, store.getRotationY(index), 0f);
+        assertEquals(1 + value * 0.1f, store.getScale(index), 0f);
+        assertEquals(value % 5, store.getPrototypeId(index));
+    }
+
+    public void testAddGrowsAndKeepsValues()
+    {
+        TreeInstanceStore store = store(1000, 0);
+        assertEquals(1000, store.size());
+        for (int i = 0; i < 1000; i++) {
+            assertInstance(store, i, i);
+        }
+    }
+
+    public void testAddAllAppendsInOrder()
+    {
+        TreeInstanceStore store = store(3, 0);
+        store.addAll(store(40, 3));
+        store.addAll(new TreeInstanceStore());
+        assertEquals(43, store.size());
+        for (int i = 0; i < 43; i++) {
+            assertInstance(store, i, i);
+        }
+    }
+
+    public void testSelect()
+    {
+        TreeInstanceStore selected = store(10, 0).select(new int[] { 1, 4, 9 });
+        assertEquals(3, selected.size());
+        assertInstance(selected, 0, 1);
+        assertInstance(selected, 1, 4);
+        assertInstance(selected, 2, 9);
+        try {
+            store(10, 0).select(new int[] { 10 });
+            fail();
+        }
+        catch (IndexOutOfBoundsException expected) {
+        }
+    }
+
+    public void testClear()
+    {
+        TreeInstanceStore store = store(100, 0);
+        store.clear();
+        assertTrue(store.isEmpty());
+        try {
+            store.getX(0);
+            fail();
+        }
+        catch (IndexOutOfBoundsException expected) {
+        }
+        store.add(7, 7.25f, 7.5f, 0.07f, 1.7f, 2);
+        assertInstance(store, 0, 7);
+    }
+}
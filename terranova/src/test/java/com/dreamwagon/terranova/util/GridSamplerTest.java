@@ -0,0 +1,64 @@
+package com.dreamwagon.terranova.util;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the bilinear resampling of {@link GridSampler}.
+ */
+public class GridSamplerTest extends TestCase
+{
+    private static float[] grid(int size)
+    {
+        float[] values = new float[size * size];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = (float) Math.sin(i * 0.37) * 100;
+        }
+        return values;
+    }
+
+    public void testSameSizeIsExact()
+    {
+        int size = 33;
+        float[] values = grid(size);
+        GridSampler sampler = new GridSampler(size, size);
+        assertEquals(1f, sampler.getRatio(), 0f);
+        float[] row = new float[size];
+        for (int y = 0; y < size; y++) {
+            sampler.sampleRow(values, y, row);
+            for (int x = 0; x < size; x++) {
+                assertEquals(values[y * size + x], row[x], 0f);
+            }
+        }
+    }
+
+    public void testDownsampleHitsSourceTexels()
+    {
+        // 9 -> 5 lands on every second source texel, corners included
+        float[] values = grid(9);
+        GridSampler sampler = new GridSampler(9, 5);
+        float[] row = new float[5];
+        for (int y = 0; y < 5; y++) {
+            sampler.sampleRow(values, y, row);
+            for (int x = 0; x < 5; x++) {
+                assertEquals(values[2 * y * 9 + 2 * x], row[x], 1e-4f);
+            }
+        }
+    }
+
+    public void testUpsampleInterpolates()
+    {
+        float[] values = {0, 10, 20, 30};
+        GridSampler sampler = new GridSampler(2, 3);
+        float[] row = new float[3];
+        sampler.sampleRow(values, 0, row);
+        assertEquals(0f, row[0], 1e-6f);
+        assertEquals(5f, row[1], 1e-6f);
+        assertEquals(10f, row[2], 1e-6f);
+        sampler.sampleRow(values, 1, row);
+        assertEquals(10f, row[0], 1e-6f);
+        assertEquals(15f, row[1], 1e-6f);
+        assertEquals(20f, row[2], 1e-6f);
+        sampler.sampleRow(values, 2, row);
+        assertEquals(30f, row[2], 1e-6f);
+    }
+}
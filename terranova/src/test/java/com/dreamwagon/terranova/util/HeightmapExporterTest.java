@@ -0,0 +1,127 @@
+package com.dreamwagon.terranova.util;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.util.zip.Adler32;
+
+import javax.imageio.ImageIO;
+
+import com.dreamwagon.terranova.util.HeightmapExporter.HeightmapFormat;
+
+import junit.framework.TestCase;
+
+/**
+ * Writes a heightmap in every {@link HeightmapFormat} and reads it back.
+ */
+public class HeightmapExporterTest extends TestCase
+{
+    // odd size, more than one IDAT chunk and more than one deflate band
+    private static final int SIZE = 257;
+
+    private float[] heights;
+    private File file;
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        heights = new float[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                // covers the clamped values below 0 and above 255 as well
+                heights[y * SIZE + x] = (float) (128 + 140 * Math.sin(x * 0.05) * Math.cos(y * 0.07));
+            }
+        }
+        file = File.createTempFile("heightmap", ".tmp");
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        file.delete();
+    }
+
+    public void testPng16() throws IOException
+    {
+        HeightmapExporter.export(heights, SIZE, 1f, HeightmapFormat.PNG16, file);
+
+        BufferedImage image = ImageIO.read(file);
+        assertEquals(BufferedImage.TYPE_USHORT_GRAY, image.getType());
+        assertEquals(SIZE, image.getWidth());
+        assertEquals(SIZE, image.getHeight());
+
+        Raster raster = image.getRaster();
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                assertEquals(HeightmapExporter.toUnsigned16(heights[y * SIZE + x], 1f), raster.getSample(x, y, 0));
+            }
+        }
+    }
+
+    public void testRaw16() throws IOException
+    {
+        HeightmapExporter.export(heights, SIZE, 1f, HeightmapFormat.RAW16, file);
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(SIZE * SIZE * 2, buffer.capacity());
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            assertEquals(HeightmapExporter.toUnsigned16(heights[i], 1f), buffer.getShort() & 0xFFFF);
+        }
+    }
+
+    public void testRaw32F() throws IOException
+    {
+        HeightmapExporter.export(heights, SIZE, 1f, HeightmapFormat.RAW32F, file);
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(SIZE * SIZE * 4, buffer.capacity());
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            assertEquals(heights[i], buffer.getFloat(), 0f);
+        }
+    }
+
+    public void testRaw32FDividesByHeightScale() throws IOException
+    {
+        HeightmapExporter.export(heights, SIZE, 4f, HeightmapFormat.RAW32F, file);
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath())).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < SIZE * SIZE; i++) {
+            assertEquals(heights[i] / 4f, buffer.getFloat(), 0f);
+        }
+    }
+
+    public void testCombineAdler32()
+    {
+        byte[] data = new byte[100000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + (i >> 7));
+        }
+        int split = 70001;
+        Adler32 whole = new Adler32();
+        whole.update(data);
+        Adler32 first = new Adler32();
+        first.update(data, 0, split);
+        Adler32 second = new Adler32();
+        second.update(data, split, data.length - split);
+
+        assertEquals(whole.getValue(), HeightmapExporter.combineAdler32(first.getValue(), second.getValue(), data.length - split));
+    }
+
+    public void testToUnsigned16()
+    {
+        assertEquals(0, HeightmapExporter.toUnsigned16(-3, 1f));
+        assertEquals(0, HeightmapExporter.toUnsigned16(0, 1f));
+        assertEquals(257 * 128, HeightmapExporter.toUnsigned16(128, 1f));
+        assertEquals(65535, HeightmapExporter.toUnsigned16(255, 1f));
+        assertEquals(65535, HeightmapExporter.toUnsigned16(300, 1f));
+
+        // heights of a terrain built at height scale 4 span 0 - 1020
+        assertEquals(257 * 128, HeightmapExporter.toUnsigned16(512, 4f));
+        assertEquals(65535, HeightmapExporter.toUnsigned16(1020, 4f));
+        assertEquals(65535, HeightmapExporter.toUnsigned16(1100, 4f));
+    }
+}
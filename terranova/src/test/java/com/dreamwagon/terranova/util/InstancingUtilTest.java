@@ -0,0 +1,98 @@
+package com.dreamwagon.terranova.util;
+
+import com.jme3.bounding.BoundingBox;
+import com.jme3.math.FastMath;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.shape.Box;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the instance data layout read by the jME instancing shaders.
+ */
+public class InstancingUtilTest extends TestCase
+{
+    private static final float EPSILON = 1e-4f;
+
+    public void testInstanceMatrixTransformsPositions()
+    {
+        Transform world = new Transform(new Vector3f(10, 2, -4),
+                new Quaternion().fromAngles(0, 0.7f, 0), new Vector3f(2, 2, 2));
+        float[] data = new float[2 * InstancingUtil.FLOATS_PER_INSTANCE];
+        InstancingUtil.writeInstance(world, data, InstancingUtil.FLOATS_PER_INSTANCE);
+
+        Vector3f position = new Vector3f(1, 3, 5);
+        Vector3f expected = world.transformVector(position, null);
+        int o = InstancingUtil.FLOATS_PER_INSTANCE;
+        for (int row = 0; row < 3; row++) {
+            float value = data[o + row] * position.x + data[o + 4 + row] * position.y
+                    + data[o + 8 + row] * position.z + data[o + 12 + row];
+            assertEquals(expected.get(row), value, EPSILON);
+        }
+        // first instance untouched
+        for (int i = 0; i < InstancingUtil.FLOATS_PER_INSTANCE; i++) {
+            assertEquals(0f, data[i]);
+        }
+    }
+
+    public void testInstanceQuaternionRotatesNormalsLikeTheShader()
+    {
+        Quaternion rotation = new Quaternion().fromAngles(0.3f, 1.2f, -0.4f);
+        Transform world = new Transform(new Vector3f(5, 6, 7), rotation, new Vector3f(3, 3, 3));
+        float[] data = new float[InstancingUtil.FLOATS_PER_INSTANCE];
+        InstancingUtil.writeInstance(world, data, 0);
+
+        // Instancing.glsllib: vec + 2 * cross(cross(vec, quat.xyz) + quat.w * vec, quat.xyz)
+        Vector3f q = new Vector3f(data[3], data[7], data[11]);
+        float w = data[15];
+        Vector3f normal = new Vector3f(0, 0, 1);
+        Vector3f inner = normal.cross(q).addLocal(normal.mult(w));
+        Vector3f shaded = normal.add(inner.cross(q).multLocal(2));
+
+        Vector3f expected = rotation.mult(normal);
+        assertEquals(expected.x, shaded.x, EPSILON);
+        assertEquals(expected.y, shaded.y, EPSILON);
+        assertEquals(expected.z, shaded.z, EPSILON);
+    }
+
+    public void testInstancedMeshSharesBuffersAndCountsInstances()
+    {
+        Mesh box = new Box(1, 1, 1);
+        float[] data = new float[3 * InstancingUtil.FLOATS_PER_INSTANCE];
+        for (int i = 0; i < 3; i++) {
+            InstancingUtil.writeInstance(new Transform(new Vector3f(i * 10, 0, 0)), data, i * InstancingUtil.FLOATS_PER_INSTANCE);
+        }
+        Mesh instanced = InstancingUtil.createInstancedMesh(box, data);
+
+        assertEquals(3, instanced.getInstanceCount());
+        assertTrue(instanced.getBuffer(VertexBuffer.Type.InstanceData).isInstanced());
+        assertSame(box.getBuffer(VertexBuffer.Type.Position), instanced.getBuffer(VertexBuffer.Type.Position));
+        assertNull(box.getBuffer(VertexBuffer.Type.InstanceData));
+        assertEquals(box.getVertexCount(), instanced.getVertexCount());
+    }
+
+    public void testBoundCoversAllInstances()
+    {
+        Mesh box = new Box(1, 1, 1);
+        float[] data = new float[2 * InstancingUtil.FLOATS_PER_INSTANCE];
+        InstancingUtil.writeInstance(new Transform(new Vector3f(-10, 0, 0)), data, 0);
+        InstancingUtil.writeInstance(new Transform(new Vector3f(20, 5, 0),
+                new Quaternion().fromAngles(0, FastMath.QUARTER_PI, 0), new Vector3f(2, 2, 2)),
+                data, InstancingUtil.FLOATS_PER_INSTANCE);
+
+        BoundingBox bound = InstancingUtil.computeBound(box, data);
+        Vector3f min = bound.getMin(null);
+        Vector3f max = bound.getMax(null);
+        float halfDiagonal = 2 * FastMath.sqrt(2);
+        assertEquals(-11f, min.x, EPSILON);
+        assertEquals(20 + halfDiagonal, max.x, EPSILON);
+        assertEquals(-1f, min.y, EPSILON);
+        assertEquals(7f, max.y, EPSILON);
+        assertEquals(-halfDiagonal, min.z, EPSILON);
+        assertEquals(halfDiagonal, max.z, EPSILON);
+    }
+}
@@ -0,0 +1,49 @@
+package com.dreamwagon.terranova.util;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks the seed derivation used for per-patch random sequences.
+ */
+public class MathUtilTest extends TestCase
+{
+    public void testDeriveSeedIsReproducible()
+    {
+        assertEquals(MathUtil.deriveSeed(325523, 17), MathUtil.deriveSeed(325523, 17));
+
+        Random a = new Random(MathUtil.deriveSeed(325523, "terrainPatch1".hashCode()));
+        Random b = new Random(MathUtil.deriveSeed(325523, "terrainPatch1".hashCode()));
+        for (int i = 0; i < 100; i++) {
+            assertEquals(a.nextInt(), b.nextInt());
+        }
+    }
+
+    public void testDeriveSeedSeparatesSeedsAndIds()
+    {
+        Set<Long> seeds = new HashSet<Long>();
+        for (int seed = 0; seed < 16; seed++) {
+            for (int id = 0; id < 64; id++) {
+                seeds.add(MathUtil.deriveSeed(seed, id));
+            }
+        }
+        assertEquals(16 * 64, seeds.size());
+        assertTrue(MathUtil.deriveSeed(1, 2) != MathUtil.deriveSeed(2, 1));
+    }
+
+    public void testNextIntIsInclusive()
+    {
+        Random random = new Random(7);
+        boolean sawMin = false, sawMax = false;
+        for (int i = 0; i < 1000; i++) {
+            int value = MathUtil.nextInt(3, 5, random);
+            assertTrue(value >= 3 && value <= 5);
+            sawMin |= value == 3;
+            sawMax |= value == 5;
+        }
+        assertTrue(sawMin && sawMax);
+    }
+}
@@ -0,0 +1,84 @@
+package com.dreamwagon.terranova.util;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks spacing, coverage and reproducibility of {@link PoissonDiskSampler}, including across tile borders.
+ */
+public class PoissonDiskSamplerTest extends TestCase
+{
+    private static void assertSpacing(float[] points, float minDistance)
+    {
+        for (int i = 0; i < points.length; i += 2) {
+            for (int j = i + 2; j < points.length; j += 2) {
+                float dx = points[i] - points[j];
+                float dy = points[i + 1] - points[j + 1];
+                assertTrue("points " + i / 2 + " and " + j / 2 + " too close",
+                        dx * dx + dy * dy >= minDistance * minDistance);
+            }
+        }
+    }
+
+    private static void assertCoverage(float[] points, float width, float height, float minDistance)
+    {
+        // a maximal sampling leaves no spot further than 2 * minDistance from a point
+        for (float y = 0; y < height; y += minDistance / 2) {
+            for (float x = 0; x < width; x += minDistance / 2) {
+                float nearest = Float.MAX_VALUE;
+                for (int i = 0; i < points.length; i += 2) {
+                    float dx = points[i] - x;
+                    float dy = points[i + 1] - y;
+                    nearest = Math.min(nearest, dx * dx + dy * dy);
+                }
+                assertTrue("gap at " + x + "," + y, nearest <= 4 * minDistance * minDistance);
+            }
+        }
+    }
+
+    public void testPointsAreSpacedAcrossTiles()
+    {
+        // small tiles, so most points sit near a tile border
+        PoissonDiskSampler sampler = new PoissonDiskSampler(120, 90, 4, 30, 3);
+        float[] points = sampler.sample(11);
+        assertTrue(points.length > 0);
+        for (int i = 0; i < points.length; i += 2) {
+            assertTrue(points[i] >= 0 && points[i] < 120);
+            assertTrue(points[i + 1] >= 0 && points[i + 1] < 90);
+        }
+        assertSpacing(points, 4);
+        assertCoverage(points, 120, 90, 4);
+    }
+
+    public void testSameSeedGivesSamePoints()
+    {
+        PoissonDiskSampler sampler = new PoissonDiskSampler(200, 200, 3, 30, 8);
+        float[] a = sampler.sample(325523);
+        float[] b = sampler.sample(325523);
+        assertTrue(Arrays.equals(a, b));
+        assertFalse(Arrays.equals(a, sampler.sample(325524)));
+    }
+
+    public void testLargeSampling()
+    {
+        PoissonDiskSampler sampler = new PoissonDiskSampler(2048, 2048, 4, 30);
+        float[] points = sampler.sample(5);
+        // a maximal Poisson disk sampling packs about 0.7 / minDistance^2 points per unit area
+        assertTrue("only " + points.length / 2 + " points", points.length / 2 > 100000);
+    }
+
+    public void testInvalidArgumentsAreRejected()
+    {
+        try {
+            new PoissonDiskSampler(10, 10, 0, 30);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            new PoissonDiskSampler(10, 10, 1, 30, 2);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.dreamwagon.terranova.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import com.dreamwagon.terranova.util.HeightmapExporter.HeightmapFormat;
+
+import junit.framework.TestCase;
+
+/**
+ * Round trips heightmaps through {@link HeightmapExporter} and {@link RawHeightmapImporter}.
+ */
+public class RawHeightmapImporterTest extends TestCase
+{
+    private static final int SIZE = 65;
+
+    private float[] heights;
+    private File r16;
+    private File r32;
+
+    @Override
+    protected void setUp() throws IOException
+    {
+        heights = new float[SIZE * SIZE];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = (float) (127.5 + 127.5 * Math.sin(i * 0.37));
+        }
+        r16 = File.createTempFile("heightmap", ".r16");
+        r32 = File.createTempFile("heightmap", ".r32");
+        HeightmapExporter.export(heights, SIZE, 1f, HeightmapFormat.RAW16, r16);
+        HeightmapExporter.export(heights, SIZE, 1f, HeightmapFormat.RAW32F, r32);
+    }
+
+    @Override
+    protected void tearDown()
+    {
+        r16.delete();
+        r32.delete();
+    }
+
+    public void testFormatAndSize() throws IOException
+    {
+        assertEquals(HeightmapFormat.RAW16, RawHeightmapImporter.getFormat(r16));
+        assertEquals(HeightmapFormat.RAW32F, RawHeightmapImporter.getFormat(r32));
+        assertNull(RawHeightmapImporter.getFormat(new File("heightmap.png")));
+        assertEquals(SIZE, RawHeightmapImporter.getSize(r16));
+        assertEquals(SIZE, RawHeightmapImporter.getSize(r32));
+    }
+
+    public void testNotSquare() throws IOException
+    {
+        File file = File.createTempFile("heightmap", ".r32");
+        try {
+            Files.write(file.toPath(), new byte[4 * 10]);
+            RawHeightmapImporter.getSize(file);
+            fail();
+        }
+        catch (IOException expected) {
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    public void testSizeMustBeTerrainSize() throws IOException
+    {
+        // square, but a TerrainQuad needs 2^n + 1
+        for (int size : new int[] { 1, 64, 100 }) {
+            File file = File.createTempFile("heightmap", ".r32");
+            try {
+                Files.write(file.toPath(), new byte[4 * size * size]);
+                RawHeightmapImporter.getSize(file);
+                fail("size " + size);
+            }
+            catch (IOException expected) {
+            }
+            finally {
+                file.delete();
+            }
+        }
+    }
+
+    public void testLoadR32F() throws IOException
+    {
+        float[] loaded = RawHeightmapImporter.load(r32, 0.5f, false, 0, 0);
+        for (int i = 0; i < heights.length; i++) {
+            assertEquals(heights[i] * 0.5f, loaded[i], 0f);
+        }
+    }
+
+    public void testLoadR16() throws IOException
+    {
+        float[] loaded = RawHeightmapImporter.load(r16, 1, false, 0, 0);
+        for (int i = 0; i < heights.length; i++) {
+            // one 16 bit step is 255 / 65535
+            assertEquals(heights[i], loaded[i], 0.5f * 255 / 65535 + 1e-4f);
+        }
+    }
+
+    public void testR16RoundTripAtHeightScale() throws IOException
+    {
+        float heightScale = 4;
+        float[] scaled = new float[heights.length];
+        for (int i = 0; i < heights.length; i++) {
+            scaled[i] = heights[i] * heightScale;
+        }
+        File file = File.createTempFile("heightmap", ".r16");
+        try {
+            HeightmapExporter.export(scaled, SIZE, heightScale, HeightmapFormat.RAW16, file);
+            float[] loaded = RawHeightmapImporter.load(file, heightScale, false, 0, 0);
+            for (int i = 0; i < heights.length; i++) {
+                assertEquals(scaled[i], loaded[i], 0.5f * 255 * heightScale / 65535 + 1e-3f);
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    public void testR32FRoundTripAtHeightScale() throws IOException
+    {
+        float heightScale = 4;
+        float[] scaled = new float[heights.length];
+        for (int i = 0; i < heights.length; i++) {
+            scaled[i] = heights[i] * heightScale;
+        }
+        File file = File.createTempFile("heightmap", ".r32");
+        try {
+            HeightmapExporter.export(scaled, SIZE, heightScale, HeightmapFormat.RAW32F, file);
+            float[] loaded = RawHeightmapImporter.load(file, heightScale, false, 0, 0);
+            for (int i = 0; i < heights.length; i++) {
+                assertEquals(scaled[i], loaded[i], 1e-3f);
+            }
+            // the preview doesn't depend on the height scale either
+            float[] preview = RawHeightmapImporter.loadPreview(file, SIZE);
+            for (int i = 0; i < heights.length; i++) {
+                assertEquals(heights[i] / 255f, preview[i], 1e-5f);
+            }
+        }
+        finally {
+            file.delete();
+        }
+    }
+
+    public void testSmoothing() throws IOException
+    {
+        int radius = 2;
+        float amount = 0.75f;
+        float[] loaded = RawHeightmapImporter.load(r32, 1, true, amount, radius);
+
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                double sum = 0;
+                int count = 0;
+                for (int j = Math.max(0, y - radius); j <= Math.min(SIZE - 1, y + radius); j++) {
+                    for (int i = Math.max(0, x - radius); i <= Math.min(SIZE - 1, x + radius); i++) {
+                        sum += heights[j * SIZE + i];
+                        count++;
+                    }
+                }
+                float expected = (float) (sum / count) * amount + heights[y * SIZE + x] * (1 - amount);
+                assertEquals(expected, loaded[y * SIZE + x], 1e-3f);
+            }
+        }
+    }
+}
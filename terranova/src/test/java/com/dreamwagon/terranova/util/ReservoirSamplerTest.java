@@ -0,0 +1,54 @@
+package com.dreamwagon.terranova.util;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks that {@link ReservoirSampler} caps lists evenly and reproducibly.
+ */
+public class ReservoirSamplerTest extends TestCase
+{
+    public void testSmallListIsKept()
+    {
+        int[] all = ReservoirSampler.sampleIndices(4, 10, new Random(1));
+        assertEquals(4, all.length);
+        for (int i = 0; i < all.length; i++) {
+            assertEquals(i, all[i]);
+        }
+    }
+
+    public void testSampleIsCappedOrderedAndReproducible()
+    {
+        int[] a = ReservoirSampler.sampleIndices(10000, 500, new Random(42));
+        int[] b = ReservoirSampler.sampleIndices(10000, 500, new Random(42));
+        assertEquals(500, a.length);
+        assertTrue(Arrays.equals(a, b));
+        for (int i = 1; i < a.length; i++) {
+            assertTrue(a[i - 1] < a[i]);
+        }
+        assertEquals(0, ReservoirSampler.sampleIndices(10000, 0, new Random(42)).length);
+    }
+
+    public void testSampleCoversTheWholeList()
+    {
+        // the old cap kept only the head of the list, every tenth should keep its share now
+        int[] buckets = new int[10];
+        for (int index : ReservoirSampler.sampleIndices(10000, 1000, new Random(3))) {
+            buckets[index / 1000]++;
+        }
+        for (int bucket : buckets) {
+            assertTrue("bucket " + bucket, bucket > 60 && bucket < 140);
+        }
+    }
+
+    public void testNegativeMaxIsRejected()
+    {
+        try {
+            ReservoirSampler.sampleIndices(3, -1, new Random(1));
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
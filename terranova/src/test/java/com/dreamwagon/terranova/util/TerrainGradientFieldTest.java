@@ -0,0 +1,113 @@
+package com.dreamwagon.terranova.util;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Checks slope and curvature of {@link TerrainGradientField} on analytic surfaces.
+ */
+public class TerrainGradientFieldTest extends TestCase
+{
+    private static final int SIZE = 33;
+
+    public void testFlat()
+    {
+        float[] heights = new float[SIZE * SIZE];
+        Arrays.fill(heights, 42);
+        TerrainGradientField field = TerrainGradientField.compute(heights, SIZE, 1, 1);
+        for (int i = 0; i < heights.length; i++) {
+            assertEquals(0f, field.getSlopes()[i], 0f);
+            assertEquals(0f, field.getCurvatures()[i], 0f);
+        }
+        assertSame(heights, field.getHeights());
+    }
+
+    public void testPlaneSlope()
+    {
+        // rises one unit per column, 45 degrees everywhere, including the one sided border
+        float[] heights = new float[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                heights[y * SIZE + x] = x;
+            }
+        }
+        TerrainGradientField field = TerrainGradientField.compute(heights, SIZE, 1, 1);
+        for (int i = 0; i < heights.length; i++) {
+            assertEquals(45f, field.getSlopes()[i], 1e-4f);
+        }
+        assertEquals(0f, field.getCurvature(SIZE / 2, SIZE / 2), 0f);
+
+        // doubling the horizontal scale halves the gradient
+        TerrainGradientField scaled = TerrainGradientField.compute(heights, SIZE, 2, 1);
+        assertEquals((float) Math.toDegrees(Math.atan(0.5)), scaled.getSlope(SIZE / 2, SIZE / 2), 1e-4f);
+    }
+
+    public void testCurvature()
+    {
+        // paraboloid bowl, laplacian of x^2 + y^2 is 4
+        float[] heights = new float[SIZE * SIZE];
+        int c = SIZE / 2;
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                heights[y * SIZE + x] = (x - c) * (x - c) + (y - c) * (y - c);
+            }
+        }
+        TerrainGradientField field = TerrainGradientField.compute(heights, SIZE, 1, 1);
+        assertEquals(4f, field.getCurvature(c, c), 1e-4f);
+        assertEquals(4f, field.getCurvature(c + 5, c - 3), 1e-4f);
+        assertEquals(0f, field.getSlope(c, c), 1e-4f);
+
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = -heights[i];
+        }
+        assertEquals(-4f, TerrainGradientField.compute(heights, SIZE, 1, 1).getCurvature(c, c), 1e-4f);
+    }
+
+    public void testInterpolatedHeight()
+    {
+        // bilinear sampling is exact on a plane, and clamps outside the map
+        float[] heights = new float[SIZE * SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            for (int x = 0; x < SIZE; x++) {
+                heights[y * SIZE + x] = 2 * x + 3 * y;
+            }
+        }
+        TerrainGradientField field = TerrainGradientField.compute(heights, SIZE, 1, 1);
+        assertEquals(2 * 4.25f + 3 * 7.5f, field.getHeight(4.25f, 7.5f), 1e-4f);
+        assertEquals(2 * (SIZE - 1) + 3 * (SIZE - 1), field.getHeight(SIZE - 1, SIZE - 1), 1e-4f);
+        assertEquals(0f, field.getHeight(-3, -3), 0f);
+        assertEquals(3 * (SIZE - 1), field.getHeight(-1, SIZE + 10), 1e-4f);
+    }
+
+    public void testLazyField()
+    {
+        float[] heights = new float[SIZE * SIZE];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = (i % SIZE) * (i / SIZE) * 0.1f;
+        }
+        TerrainGradientField computed = TerrainGradientField.compute(heights, SIZE, 2, 3);
+        TerrainGradientField lazy = TerrainGradientField.fromHeights(heights, SIZE, 2, 3);
+        float[] rowSlopes = new float[SIZE];
+        float[] rowCurvatures = new float[SIZE];
+        for (int y = 0; y < SIZE; y++) {
+            lazy.computeRow(y, rowSlopes, rowCurvatures);
+            for (int x = 0; x < SIZE; x++) {
+                assertEquals(computed.getSlopes()[y * SIZE + x], rowSlopes[x], 0f);
+                assertEquals(computed.getCurvatures()[y * SIZE + x], rowCurvatures[x], 0f);
+            }
+        }
+        assertEquals(computed.getSlope(3, 5), lazy.getSlope(3, 5), 0f);
+        assertEquals(computed.getCurvature(7, 2), lazy.getCurvature(7, 2), 0f);
+    }
+
+    public void testWrongSize()
+    {
+        try {
+            TerrainGradientField.compute(new float[10], 4, 1, 1);
+            fail();
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+}